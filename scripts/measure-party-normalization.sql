@@ -0,0 +1,74 @@
+-- Row size, index size and lookup latency: denormalized names (before V2) vs party ids (after V2).
+--
+-- The "before" shape is rebuilt as a temp table from the current data, so both sides hold the same rows.
+--
+--   psql -U postgres -d crosspaymentdb -f scripts/measure-party-normalization.sql
+--   psql ... -v seed=1000000 -f scripts/measure-party-normalization.sql   (first inserts synthetic payments)
+
+\timing off
+\pset footer off
+
+\if :{?seed}
+INSERT INTO parties (name)
+SELECT 'Party ' || md5(g::text) FROM generate_series(1, 10000) g
+ON CONFLICT (name) DO NOTHING;
+
+INSERT INTO payments (sender_id, receiver_id, source_currency, destination_currency, amount,
+                      exchange_rate, pay_out_amount, status, message, created_at, processed_at)
+SELECT s.id, r.id, 'USD', 'EUR', 100.00, 0.920000, 92.00, 'SUCCESS', 'Payment processed successfully.', now(), now()
+FROM generate_series(1, :seed) g
+JOIN parties s ON s.name = 'Party ' || md5((g % 10000 + 1)::text)
+JOIN parties r ON r.name = 'Party ' || md5(((g * 7) % 10000 + 1)::text);
+\endif
+
+-- Before: names inline, B-tree on each name column
+CREATE TEMP TABLE payments_denormalized AS
+SELECT p.id, s.name AS sender, r.name AS receiver, p.source_currency, p.destination_currency, p.amount,
+       p.exchange_rate, p.pay_out_amount, p.status, p.message, p.created_at, p.processed_at
+FROM payments p
+JOIN parties s ON s.id = p.sender_id
+JOIN parties r ON r.id = p.receiver_id;
+ALTER TABLE payments_denormalized ADD PRIMARY KEY (id);
+CREATE INDEX ON payments_denormalized (sender);
+CREATE INDEX ON payments_denormalized (receiver);
+ANALYZE payments_denormalized;
+ANALYZE payments;
+ANALYZE parties;
+
+\echo '== Rows, average row size and heap size'
+SELECT 'before' AS layout, count(*) AS rows, round(avg(pg_column_size(d.*))) AS avg_row_bytes,
+       pg_size_pretty(pg_relation_size('payments_denormalized')) AS heap
+FROM payments_denormalized d
+UNION ALL
+SELECT 'after', count(*), round(avg(pg_column_size(p.*))),
+       pg_size_pretty(pg_relation_size('payments') + pg_relation_size('parties'))
+FROM payments p;
+
+\echo '== Sender / receiver index size'
+SELECT 'before' AS layout, pg_size_pretty(sum(pg_relation_size(indexrelid))) AS sender_receiver_indexes
+FROM pg_index WHERE indrelid = 'payments_denormalized'::regclass AND NOT indisprimary
+UNION ALL
+SELECT 'after', pg_size_pretty(sum(pg_relation_size(indexrelid)) + pg_relation_size('uk_parties_name'))
+FROM pg_index WHERE indrelid = 'payments'::regclass AND indexrelid::regclass::text IN ('idx_payments_sender_id', 'idx_payments_receiver_id');
+
+-- Most frequent sender as the lookup key
+SELECT sender AS lookup_sender FROM payments_denormalized GROUP BY sender ORDER BY count(*) DESC LIMIT 1 \gset
+
+\echo '== findBySender before'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM payments_denormalized WHERE sender = :'lookup_sender';
+
+\echo '== findBySender after'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT p.* FROM payments p JOIN parties s ON s.id = p.sender_id WHERE s.name = :'lookup_sender';
+
+\echo '== GET /api/payments/{id} before'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM payments_denormalized WHERE id = (SELECT max(id) FROM payments_denormalized);
+
+\echo '== GET /api/payments/{id} after (findResponseById)'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT p.*, s.name, r.name FROM payments p JOIN parties s ON s.id = p.sender_id JOIN parties r ON r.id = p.receiver_id
+WHERE p.id = (SELECT max(id) FROM payments);
+
+DROP TABLE payments_denormalized;
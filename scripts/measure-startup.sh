@@ -0,0 +1,112 @@
+#!/usr/bin/env bash
+#
+# Startup time and time-to-first-payment: plain fat jar vs fat jar with the prod profile vs AOT + AppCDS.
+#
+#   mvn -Pfast-startup,cds-training package   (AOT processing, thin jar + lib/, CDS training run -> target/fast-startup)
+#   scripts/measure-startup.sh          (needs PostgreSQL as in application.properties and an FX service)
+#
+# For every run, measured from the java launch:
+#   started_in_ms     "Started CrossPaymentServiceApplication in X seconds" (context refresh done)
+#   ready_ms          first UP from /actuator/health
+#   first_payment_ms  first POST /api/payments answered 200 (SUCCESS), includes the FX quote
+#   rss_kb            resident memory after the first payment
+# Results are appended to target/startup/summary.csv, medians printed per mode.
+#
+# Environment:
+#   RUNS=5  PORT=18080  FX_URL=http://localhost:4000  MODES="jar jar-prod aot-cds"
+#   An FX stub on port 4000: mvn exec:java -Dexec.mainClass=com.example.crosspayment.loadtest.FxStubServer \
+#     -Dexec.classpathScope=test -Dfx.stub.port=4000
+
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+RUNS=${RUNS:-5}
+PORT=${PORT:-18080}
+FX_URL=${FX_URL:-http://localhost:4000}
+MODES=${MODES:-"jar jar-prod aot-cds"}
+TIMEOUT_SECONDS=${TIMEOUT_SECONDS:-120}
+
+ARTIFACT=$(ls target/CrossPaymentService-*.jar | grep -v -- '-fast-startup' | head -1)
+FAST_DIR=target/fast-startup
+OUT_DIR=target/startup
+mkdir -p "$OUT_DIR"
+SUMMARY=$OUT_DIR/summary.csv
+[ -f "$SUMMARY" ] || echo "timestamp,mode,run,started_in_ms,ready_ms,first_payment_ms,rss_kb" > "$SUMMARY"
+
+case " $MODES " in
+  *" aot-cds "*) [ -f "$FAST_DIR/app.jsa" ] || { echo "No $FAST_DIR/app.jsa, run mvn -Pfast-startup,cds-training package first" >&2; exit 1; } ;;
+esac
+
+PAYMENT='{"sender":"Startup Sender","receiver":"Startup Receiver","amount":"100.00","sourceCurrency":"USD","destinationCurrency":"EUR"}'
+
+now_ms() { echo $(( $(date +%s%N) / 1000000 )); }
+
+launch() {
+  local mode=$1 log=$2
+  local common=(--server.port="$PORT" --fx.service.url="$FX_URL")
+  case "$mode" in
+    jar)      java -jar "$ARTIFACT" "${common[@]}" > "$log" 2>&1 & ;;
+    jar-prod) java -Dspring.profiles.active=prod -jar "$ARTIFACT" "${common[@]}" > "$log" 2>&1 & ;;
+    aot-cds)
+      (cd "$FAST_DIR" && exec java -XX:SharedArchiveFile=app.jsa -Dspring.aot.enabled=true \
+        -Dspring.profiles.active=prod -jar CrossPaymentService-*-fast-startup.jar "${common[@]}") > "$log" 2>&1 & ;;
+    *) echo "Unknown mode $mode" >&2; exit 1 ;;
+  esac
+  echo $!
+}
+
+# Waits until the command succeeds, prints the elapsed ms since $1
+wait_for() {
+  local start=$1; shift
+  local deadline=$(( $(now_ms) + TIMEOUT_SECONDS * 1000 ))
+  until "$@"; do
+    if [ "$(now_ms)" -gt "$deadline" ]; then
+      echo "timeout"
+      return 1
+    fi
+    sleep 0.02
+  done
+  echo $(( $(now_ms) - start ))
+}
+
+health_up() { curl -sf "http://localhost:$PORT/actuator/health" 2>/dev/null | grep -q '"UP"'; }
+
+payment_ok() {
+  [ "$(curl -s -o /dev/null -w '%{http_code}' -H 'Content-Type: application/json' -d "$PAYMENT" \
+    "http://localhost:$PORT/api/payments")" = "200" ]
+}
+
+for mode in $MODES; do
+  for run in $(seq 1 "$RUNS"); do
+    log=$OUT_DIR/$mode-$run.log
+    start=$(now_ms)
+    pid=$(launch "$mode" "$log")
+    trap 'kill $pid 2>/dev/null || true' EXIT
+
+    ready=$(wait_for "$start" health_up) || { echo "$mode run $run did not become ready, see $log" >&2; kill "$pid"; exit 1; }
+    first_payment=$(wait_for "$start" payment_ok) || { echo "$mode run $run: no successful payment, see $log" >&2; kill "$pid"; exit 1; }
+    started_in=$(grep -o 'Started CrossPaymentServiceApplication in [0-9.]*' "$log" | awk '{printf "%d", $4 * 1000}')
+    rss=$(awk '/VmRSS/ {print $2}' "/proc/$pid/status" 2>/dev/null || echo "")
+
+    kill "$pid"
+    while kill -0 "$pid" 2>/dev/null; do sleep 0.1; done
+    trap - EXIT
+
+    echo "$(date -u +%Y-%m-%dT%H:%M:%SZ),$mode,$run,$started_in,$ready,$first_payment,$rss" >> "$SUMMARY"
+    printf '%-8s run %d: started in %s ms, ready %s ms, first payment %s ms, rss %s kB\n' \
+      "$mode" "$run" "$started_in" "$ready" "$first_payment" "$rss"
+  done
+done
+
+echo
+echo "Medians over the last $RUNS runs per mode:"
+for mode in $MODES; do
+  grep ",$mode," "$SUMMARY" | tail -n "$RUNS" | awk -F, -v mode="$mode" '
+    { s[NR]=$4; r[NR]=$5; p[NR]=$6 }
+    function median(a, n,   i, j, t) {
+      for (i = 1; i <= n; i++) for (j = i + 1; j <= n; j++) if (a[j] < a[i]) { t = a[i]; a[i] = a[j]; a[j] = t }
+      return n % 2 ? a[(n + 1) / 2] : (a[n / 2] + a[n / 2 + 1]) / 2
+    }
+    END { printf "  %-8s started in %6d ms   ready %6d ms   first payment %6d ms\n", mode, median(s, NR), median(r, NR), median(p, NR) }'
+done
@@ -0,0 +1,116 @@
+package com.example.crosspayment.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ *  Adaptive concurrency limiter (gradient style):
+ *
+ *  Keeps an estimate of how many payments can be in flight before latency starts to queue up,
+ *  instead of a fixed thread/connection count that is only discovered when everything times out.
+ *
+ *      - longRtt is a slow moving average of observed latency (the "no load" baseline)
+ *      - every completed request compares its latency against that baseline:
+ *          gradient = clamp(tolerance * longRtt / sampleRtt, 0.5, 1.0)
+ *          newLimit = limit * gradient + sqrt(limit)      (sqrt term leaves headroom to probe upwards)
+ *      - latency at baseline -> limit grows, latency inflating -> limit shrinks
+ *      - a dropped request (5xx/exception) backs the limit off multiplicatively (AIMD)
+ *      - samples taken while less than half the limit is used are ignored, an idle service should not grow its limit
+ *
+ *  Admission is a single CAS on the in-flight counter, the limit update is a short synchronized block.
+ *
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double LONG_WINDOW_ALPHA = 2.0 / (600 + 1);
+
+    private static final double DROP_BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double smoothing;
+
+    private final double rttTolerance;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile int limit;
+
+    private double estimatedLimit;
+
+    private double longRttNanos;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double smoothing, double rttTolerance) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.rttTolerance = rttTolerance;
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     *
+     * @return true if the request may proceed, it must then call {@link #release(long, boolean)}
+     */
+    public boolean tryAcquire(){
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     *
+     * @param rttNanos latency of the request that is finishing
+     * @param dropped true if the request failed in a way that signals overload
+     */
+    public void release(long rttNanos, boolean dropped){
+        int inFlightAtCompletion = inFlight.getAndDecrement();
+        onSample(rttNanos, inFlightAtCompletion, dropped);
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtCompletion, boolean dropped){
+        if (longRttNanos == 0) {
+            longRttNanos = rttNanos;
+        } else {
+            longRttNanos = longRttNanos * (1 - LONG_WINDOW_ALPHA) + rttNanos * LONG_WINDOW_ALPHA;
+        }
+
+        double newLimit;
+        if (dropped) {
+            newLimit = estimatedLimit * DROP_BACKOFF_RATIO;
+        } else {
+            if (inFlightAtCompletion < estimatedLimit / 2) {
+                return;
+            }
+
+            // The baseline drifts up under sustained load, pull it back when the gap gets large
+            if (longRttNanos / rttNanos > 2) {
+                longRttNanos *= 0.95;
+            }
+
+            double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRttNanos / rttNanos));
+            newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+            newLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+        }
+
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    public int getLimit(){
+        return limit;
+    }
+
+    public int getInFlight(){
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.crosspayment.admission;
+
+import com.example.crosspayment.dto.ErrorResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+/**
+ *
+ *  Payment admission filter:
+ *      Sits in front of PaymentController for POST /api/payments and admits work only while the
+ *      {@link AdaptiveConcurrencyLimiter} has room. Everything above the limit is rejected with
+ *      503 + Retry-After before the body is parsed, a thread does FX work or a DB connection is taken.
+ *
+ *      Rejecting early keeps the admitted requests fast (goodput stays flat under 2-3x overload)
+ *      instead of letting every request queue and time out together.
+ *
+ *      5xx responses and exceptions count as drops and shrink the limit.
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "payment.admission.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class PaymentAdmissionFilter extends OncePerRequestFilter {
+
+    private static final String PAYMENTS_PATH = "/api/payments";
+
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    private final ObjectMapper objectMapper;
+
+    private final long retryAfterSeconds;
+
+    private final Counter rejected;
+
+    public PaymentAdmissionFilter(@Value("${payment.admission.initial-limit:20}") int initialLimit,
+                                  @Value("${payment.admission.min-limit:5}") int minLimit,
+                                  @Value("${payment.admission.max-limit:200}") int maxLimit,
+                                  @Value("${payment.admission.smoothing:0.2}") double smoothing,
+                                  @Value("${payment.admission.rtt-tolerance:1.5}") double rttTolerance,
+                                  @Value("${payment.admission.retry-after-seconds:1}") long retryAfterSeconds,
+                                  ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry) {
+        this.limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, smoothing, rttTolerance);
+        this.objectMapper = objectMapper;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.rejected = Counter.builder("payment.admission.rejected").tag("reason", "concurrency-limit").register(meterRegistry);
+        Gauge.builder("payment.admission.limit", limiter, AdaptiveConcurrencyLimiter::getLimit).register(meterRegistry);
+        Gauge.builder("payment.admission.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight).register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request){
+        return !(HttpMethod.POST.matches(request.getMethod()) && PAYMENTS_PATH.equals(request.getRequestURI()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!limiter.tryAcquire()) {
+            rejected.increment();
+            log.debug("Payment rejected, concurrency limit {} reached", limiter.getLimit());
+            reject(response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean dropped = true;
+        try {
+            filterChain.doFilter(request, response);
+            dropped = response.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value();
+        } finally {
+            limiter.release(System.nanoTime() - start, dropped);
+        }
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        ErrorResponse body = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .message("Payment service is at capacity, please retry later.")
+                .build();
+
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+}
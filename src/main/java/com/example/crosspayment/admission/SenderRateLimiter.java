@@ -0,0 +1,92 @@
+package com.example.crosspayment.admission;
+
+import com.example.crosspayment.exception.AdmissionRejectedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ *
+ *  Per sender rate limiter:
+ *      One lock-free {@link TokenBucket} per sender, so a single noisy sender gets 429s
+ *      while everyone else keeps being admitted.
+ *
+ *      The map is bounded softly: once it grows past max-tracked-senders, buckets that are full again
+ *      (sender idle long enough to refill) are dropped. A dropped bucket is indistinguishable from a new one.
+ *
+ *      A rate of 0 disables the check.
+ *
+ */
+@Component
+public class SenderRateLimiter {
+
+    private final long emissionIntervalNanos;
+
+    private final int burst;
+
+    private final int maxTrackedSenders;
+
+    private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    private final Counter rejected;
+
+    public SenderRateLimiter(@Value("${payment.admission.sender.rate-per-second:10}") double ratePerSecond,
+                             @Value("${payment.admission.sender.burst:20}") int burst,
+                             @Value("${payment.admission.sender.max-tracked-senders:100000}") int maxTrackedSenders,
+                             MeterRegistry meterRegistry) {
+        this.emissionIntervalNanos = ratePerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond) : 0;
+        this.burst = Math.max(1, burst);
+        this.maxTrackedSenders = maxTrackedSenders;
+        this.rejected = Counter.builder("payment.admission.rejected").tag("reason", "sender-rate").register(meterRegistry);
+        Gauge.builder("payment.admission.tracked.senders", buckets, ConcurrentMap::size).register(meterRegistry);
+    }
+
+    /**
+     *
+     * Takes a token for the sender or throws.
+     *
+     * @throws AdmissionRejectedException 429 with Retry-After when the sender is over its rate
+     */
+    public void acquire(String sender){
+        if (emissionIntervalNanos == 0) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.get(sender);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(sender, s -> new TokenBucket(emissionIntervalNanos, burst, now));
+            if (buckets.size() > maxTrackedSenders) {
+                evictIdle(now);
+            }
+        }
+
+        long waitNanos = bucket.tryAcquire(now);
+        if (waitNanos > 0) {
+            rejected.increment();
+            long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+            throw new AdmissionRejectedException("Too many payments from sender, please retry later.",
+                    HttpStatus.TOO_MANY_REQUESTS, retryAfterSeconds);
+        }
+    }
+
+    private void evictIdle(long now){
+        if (sweeping.compareAndSet(false, true)) {
+            try {
+                buckets.values().removeIf(bucket -> bucket.isFull(now));
+            } finally {
+                sweeping.set(false);
+            }
+        }
+    }
+}
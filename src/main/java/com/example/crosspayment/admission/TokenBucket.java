@@ -0,0 +1,52 @@
+package com.example.crosspayment.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ *  Lock-free token bucket.
+ *
+ *  Implemented as GCRA (generic cell rate algorithm): instead of a token count plus a refill timestamp,
+ *  the whole bucket state is one "theoretical arrival time" (TAT), so acquire is a single CAS loop.
+ *
+ *      - every admitted request pushes TAT forward by one emission interval (1 / rate)
+ *      - a request is admitted while TAT is at most (burst - 1) intervals ahead of now
+ *      - TAT <= now means the bucket is full, i.e. the same as never having seen the sender
+ *
+ */
+class TokenBucket {
+
+    private final long emissionIntervalNanos;
+
+    private final long burstToleranceNanos;
+
+    private final AtomicLong theoreticalArrivalNanos;
+
+    TokenBucket(long emissionIntervalNanos, int burst, long nowNanos) {
+        this.emissionIntervalNanos = emissionIntervalNanos;
+        this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+        this.theoreticalArrivalNanos = new AtomicLong(nowNanos);
+    }
+
+    /**
+     *
+     * @return 0 if a token was taken, otherwise how long (nanos) until the next token is available
+     */
+    long tryAcquire(long nowNanos){
+        while (true) {
+            long tat = theoreticalArrivalNanos.get();
+            long start = Math.max(tat, nowNanos);
+            long wait = start - nowNanos - burstToleranceNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrivalNanos.compareAndSet(tat, start + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    boolean isFull(long nowNanos){
+        return theoreticalArrivalNanos.get() - nowNanos <= 0;
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.crosspayment.archive;
+
+import com.example.crosspayment.dto.PaymentResponse;
+import com.example.crosspayment.model.PaymentStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ *
+ *  Columnar archive file for payments.
+ *
+ *  File:   "PCOL" | version byte | group*
+ *  Group:  minId long | maxId long | rows int | length int | deflated column data
+ *
+ *  Rows are written sorted by id in groups of at most GROUP_ROWS. Group headers are uncompressed,
+ *  so a reader can index the id range of every group and inflate only the one it needs. The id column
+ *  comes first, so the ids alone only inflate the start of a group (readIds).
+ *
+ *  Column data, one column after the other:
+ *      id                                  first id, then deltas (varlong)
+ *      sender, receiver, currencies,
+ *      status, message                     per group dictionary + one varint code per row (0 = null)
+ *      amount, exchange rate, payout       scale + unscaled bytes (varint length, 0 = null)
+ *      createdAt, updatedAt                epoch micros (UTC wall clock), zigzag deltas
+ *      fxDegraded                          bitmap, one bit per row (since version 2, false in version 1 files)
+ *
+ *  Names, currencies, statuses and messages repeat heavily, so most rows cost a few bytes per column
+ *  before deflate.
+ *
+ */
+final class ColumnarPaymentFile {
+
+    static final int MAGIC = 0x50434F4C;
+
+    static final byte VERSION = 2;
+
+    static final int GROUP_ROWS = 8192;
+
+    private ColumnarPaymentFile() {
+    }
+
+    static void writeHeader(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+    }
+
+    /**
+     *
+     * @return the file's format version, files of every version up to VERSION are readable
+     */
+    static byte readHeader(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a payment archive file");
+        }
+        byte version = in.readByte();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported payment archive version: " + version);
+        }
+        return version;
+    }
+
+    /**
+     *
+     * Writes one group. Rows must be sorted by id.
+     *
+     */
+    static void writeGroup(DataOutput out, List<PaymentResponse> rows) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(rows.size() * 16);
+        try (DataOutputStream columns = new DataOutputStream(new DeflaterOutputStream(compressed))) {
+            long previousId = 0;
+            for (PaymentResponse row : rows) {
+                writeVarLong(columns, row.getId() - previousId);
+                previousId = row.getId();
+            }
+            writeStrings(columns, rows, PaymentResponse::getSender);
+            writeStrings(columns, rows, PaymentResponse::getReceiver);
+            writeStrings(columns, rows, PaymentResponse::getSourceCurrency);
+            writeStrings(columns, rows, PaymentResponse::getDestinationCurrency);
+            writeStrings(columns, rows, row -> row.getStatus() == null ? null : row.getStatus().name());
+            writeStrings(columns, rows, PaymentResponse::getMessage);
+            writeDecimals(columns, rows, PaymentResponse::getAmount);
+            writeDecimals(columns, rows, PaymentResponse::getExchangeRate);
+            writeDecimals(columns, rows, PaymentResponse::getPayoutAmount);
+            writeTimestamps(columns, rows, PaymentResponse::getCreatedAt);
+            writeTimestamps(columns, rows, PaymentResponse::getUpdatedAt);
+            writeFlags(columns, rows, PaymentResponse::isFxDegraded);
+        }
+
+        out.writeLong(rows.get(0).getId());
+        out.writeLong(rows.get(rows.size() - 1).getId());
+        out.writeInt(rows.size());
+        out.writeInt(compressed.size());
+        out.write(compressed.toByteArray());
+    }
+
+    /**
+     *
+     * Decodes the column data of one group (the bytes after its header).
+     *
+     */
+    static List<PaymentResponse> readGroup(byte[] data, int rows, byte version) throws IOException {
+        try (DataInputStream columns = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data)))) {
+            List<PaymentResponse> result = new ArrayList<>(rows);
+            long id = 0;
+            for (int i = 0; i < rows; i++) {
+                id += readVarLong(columns);
+                PaymentResponse row = new PaymentResponse();
+                row.setId(id);
+                result.add(row);
+            }
+            assign(result, readStrings(columns, rows), PaymentResponse::setSender);
+            assign(result, readStrings(columns, rows), PaymentResponse::setReceiver);
+            assign(result, readStrings(columns, rows), PaymentResponse::setSourceCurrency);
+            assign(result, readStrings(columns, rows), PaymentResponse::setDestinationCurrency);
+            assign(result, readStrings(columns, rows), (row, status) -> row.setStatus(status == null ? null : PaymentStatus.valueOf(status)));
+            assign(result, readStrings(columns, rows), PaymentResponse::setMessage);
+            assign(result, readDecimals(columns, rows), PaymentResponse::setAmount);
+            assign(result, readDecimals(columns, rows), PaymentResponse::setExchangeRate);
+            assign(result, readDecimals(columns, rows), PaymentResponse::setPayoutAmount);
+            assign(result, readTimestamps(columns, rows), PaymentResponse::setCreatedAt);
+            assign(result, readTimestamps(columns, rows), PaymentResponse::setUpdatedAt);
+            if (version >= 2) {
+                assign(result, readFlags(columns, rows), PaymentResponse::setFxDegraded);
+            }
+            return result;
+        }
+    }
+
+    /**
+     *
+     * Decodes only the id column of one group, the rest of the column data is never inflated.
+     *
+     */
+    static long[] readIds(byte[] data, int rows) throws IOException {
+        try (DataInputStream columns = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data)))) {
+            long[] ids = new long[rows];
+            long id = 0;
+            for (int i = 0; i < rows; i++) {
+                id += readVarLong(columns);
+                ids[i] = id;
+            }
+            return ids;
+        }
+    }
+
+    private static <T> void assign(List<PaymentResponse> rows, T[] values, BiConsumer<PaymentResponse, T> setter){
+        for (int i = 0; i < values.length; i++) {
+            setter.accept(rows.get(i), values[i]);
+        }
+    }
+
+    private static void writeStrings(DataOutput out, List<PaymentResponse> rows, Function<PaymentResponse, String> column) throws IOException {
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> entries = new ArrayList<>();
+        int[] codes = new int[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            String value = column.apply(rows.get(i));
+            if (value != null) {
+                Integer code = dictionary.get(value);
+                if (code == null) {
+                    entries.add(value);
+                    code = entries.size();
+                    dictionary.put(value, code);
+                }
+                codes[i] = code;
+            }
+        }
+        writeVarLong(out, entries.size());
+        for (String entry : entries) {
+            out.writeUTF(entry);
+        }
+        for (int code : codes) {
+            writeVarLong(out, code);
+        }
+    }
+
+    private static String[] readStrings(DataInput in, int rows) throws IOException {
+        String[] entries = new String[(int) readVarLong(in) + 1];
+        for (int i = 1; i < entries.length; i++) {
+            entries[i] = in.readUTF();
+        }
+        String[] values = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            values[i] = entries[(int) readVarLong(in)];
+        }
+        return values;
+    }
+
+    private static void writeDecimals(DataOutput out, List<PaymentResponse> rows, Function<PaymentResponse, BigDecimal> column) throws IOException {
+        for (PaymentResponse row : rows) {
+            BigDecimal value = column.apply(row);
+            if (value == null) {
+                writeVarLong(out, 0);
+                continue;
+            }
+            byte[] unscaled = value.unscaledValue().toByteArray();
+            writeVarLong(out, unscaled.length);
+            out.write(unscaled);
+            writeVarLong(out, value.scale());
+        }
+    }
+
+    private static BigDecimal[] readDecimals(DataInput in, int rows) throws IOException {
+        BigDecimal[] values = new BigDecimal[rows];
+        for (int i = 0; i < rows; i++) {
+            int length = (int) readVarLong(in);
+            if (length == 0) {
+                continue;
+            }
+            byte[] unscaled = new byte[length];
+            in.readFully(unscaled);
+            values[i] = new BigDecimal(new BigInteger(unscaled), (int) readVarLong(in));
+        }
+        return values;
+    }
+
+    private static void writeTimestamps(DataOutput out, List<PaymentResponse> rows, Function<PaymentResponse, LocalDateTime> column) throws IOException {
+        long previous = 0;
+        for (PaymentResponse row : rows) {
+            LocalDateTime value = column.apply(row);
+            if (value == null) {
+                out.writeBoolean(false);
+                continue;
+            }
+            out.writeBoolean(true);
+            long micros = ChronoUnit.MICROS.between(LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC), value);
+            long delta = micros - previous;
+            writeVarLong(out, (delta << 1) ^ (delta >> 63));
+            previous = micros;
+        }
+    }
+
+    private static LocalDateTime[] readTimestamps(DataInput in, int rows) throws IOException {
+        LocalDateTime epoch = LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC);
+        LocalDateTime[] values = new LocalDateTime[rows];
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            if (!in.readBoolean()) {
+                continue;
+            }
+            long zigzag = readVarLong(in);
+            previous += (zigzag >>> 1) ^ -(zigzag & 1);
+            values[i] = epoch.plus(previous, ChronoUnit.MICROS);
+        }
+        return values;
+    }
+
+    private static void writeFlags(DataOutput out, List<PaymentResponse> rows, Predicate<PaymentResponse> column) throws IOException {
+        byte[] bits = new byte[(rows.size() + 7) / 8];
+        for (int i = 0; i < rows.size(); i++) {
+            if (column.test(rows.get(i))) {
+                bits[i >>> 3] |= (byte) (1 << (i & 7));
+            }
+        }
+        out.write(bits);
+    }
+
+    private static Boolean[] readFlags(DataInput in, int rows) throws IOException {
+        byte[] bits = new byte[(rows + 7) / 8];
+        in.readFully(bits);
+        Boolean[] values = new Boolean[rows];
+        for (int i = 0; i < rows; i++) {
+            values[i] = (bits[i >>> 3] & (1 << (i & 7))) != 0;
+        }
+        return values;
+    }
+
+    private static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
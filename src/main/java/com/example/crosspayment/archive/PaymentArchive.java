@@ -0,0 +1,359 @@
+package com.example.crosspayment.archive;
+
+import com.example.crosspayment.dto.PaymentResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongConsumer;
+
+/**
+ *
+ *  Cold archive of terminal payments moved out of the payments table (see PaymentPartitionService).
+ *
+ *  One {@link ColumnarPaymentFile} per archive run and partition in payment.archive.directory.
+ *  The id range of every row group is kept in memory, so a lookup inflates at most the groups
+ *  whose range contains the id, usually one. The last payment.archive.cache-groups decoded groups
+ *  are kept (LRU), so lookups of recently read ranges, e.g. a customer paging through old
+ *  payments, don't inflate the same 8192 rows again. Cached payments are shared: read-only.
+ *
+ *  The archive is read-only for the API: GET /api/payments/{id} falls back to it when the row
+ *  is no longer in the database.
+ *
+ *  The directory is shared by all instances (see PaymentPartitionService), files archived by another instance
+ *  are picked up on a lookup miss, at most every payment.archive.refresh-ms.
+ *
+ */
+@Component
+@Slf4j
+public class PaymentArchive {
+
+    private static final String EXTENSION = ".pcol";
+
+    private final Path directory;
+
+    private final long refreshMillis;
+
+    /**
+     * decoded groups, least recently used first, guarded by itself
+     */
+    private final Map<GroupRef, List<PaymentResponse>> decoded;
+
+    private final List<GroupRef> groups = new CopyOnWriteArrayList<>();
+
+    /**
+     * files already in groups, guarded by this
+     */
+    private final Set<Path> indexed = new HashSet<>();
+
+    private volatile long lastRefreshMillis;
+
+    private final Counter archiveHits;
+
+    private final Counter archiveMisses;
+
+    private final Counter groupsInflated;
+
+    public PaymentArchive(@Value("${payment.archive.directory:archive}") String directory,
+                          @Value("${payment.archive.refresh-ms:1000}") long refreshMillis,
+                          @Value("${payment.archive.cache-groups:8}") int cacheGroups,
+                          MeterRegistry meterRegistry) {
+        this.directory = Paths.get(directory);
+        this.refreshMillis = refreshMillis;
+        this.decoded = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<GroupRef, List<PaymentResponse>> eldest) {
+                return size() > cacheGroups;
+            }
+        };
+        this.archiveHits = Counter.builder("payment.archive.lookups").tag("result", "hit").register(meterRegistry);
+        this.archiveMisses = Counter.builder("payment.archive.lookups").tag("result", "miss").register(meterRegistry);
+        this.groupsInflated = Counter.builder("payment.archive.groups.inflated").register(meterRegistry);
+        Gauge.builder("payment.archive.rows", groups, refs -> refs.stream().mapToLong(ref -> ref.rows).sum()).register(meterRegistry);
+    }
+
+    @PostConstruct
+    void loadIndex() throws IOException {
+        refresh();
+        log.info("Payment archive {}: {} row groups", directory.toAbsolutePath(), groups.size());
+    }
+
+    /**
+     *
+     * Indexes the archive files written since the last refresh, by this or another instance.
+     *
+     * @return the number of new files
+     */
+    public synchronized int refresh() throws IOException {
+        lastRefreshMillis = System.currentTimeMillis();
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        int added = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                if (indexed.add(file)) {
+                    groups.addAll(readGroupHeaders(file));
+                    added++;
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     *
+     * @return the archived payment, empty if no archive file holds it
+     */
+    public Optional<PaymentResponse> find(long id){
+        Optional<PaymentResponse> payment = lookup(id);
+        if (payment.isEmpty() && System.currentTimeMillis() - lastRefreshMillis >= refreshMillis && refreshQuietly() > 0) {
+            payment = lookup(id);
+        }
+        (payment.isPresent() ? archiveHits : archiveMisses).increment();
+        return payment;
+    }
+
+    private int refreshQuietly(){
+        try {
+            return refresh();
+        } catch (IOException e) {
+            log.warn("Could not refresh payment archive {}: {}", directory, e.getMessage());
+            return 0;
+        }
+    }
+
+    private Optional<PaymentResponse> lookup(long id){
+        for (GroupRef group : groups) {
+            if (id < group.minId || id > group.maxId) {
+                continue;
+            }
+            // Rows of a group are sorted by id
+            List<PaymentResponse> payments = decodedGroup(group);
+            int low = 0;
+            int high = payments.size() - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                long middleId = payments.get(middle).getId();
+                if (middleId < id) {
+                    low = middle + 1;
+                } else if (middleId > id) {
+                    high = middle - 1;
+                } else {
+                    return Optional.of(payments.get(middle));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     *
+     * Every archived payment id, group by group (used to rebuild the PaymentIdFilter). Only the id
+     * column of each group is inflated.
+     *
+     */
+    public void forEachId(LongConsumer action){
+        for (GroupRef group : groups) {
+            try {
+                for (long id : ColumnarPaymentFile.readIds(readGroupData(group), group.rows)) {
+                    action.accept(id);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read payment archive " + group.file, e);
+            }
+        }
+    }
+
+    /**
+     *
+     * Starts a new archive file. Rows must be added in id order; nothing is visible until commit().
+     *
+     */
+    public Writer open(String name){
+        try {
+            Files.createDirectories(directory);
+            Path target = directory.resolve(name + "-" + System.currentTimeMillis() + EXTENSION);
+            return new Writer(target);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<GroupRef> readGroupHeaders(Path file) throws IOException {
+        List<GroupRef> refs = new ArrayList<>();
+        try (RandomAccessFile in = new RandomAccessFile(file.toFile(), "r")) {
+            byte version = ColumnarPaymentFile.readHeader(in);
+            while (in.getFilePointer() < in.length()) {
+                long minId = in.readLong();
+                long maxId = in.readLong();
+                int rows = in.readInt();
+                int length = in.readInt();
+                refs.add(new GroupRef(file, version, in.getFilePointer(), length, rows, minId, maxId));
+                in.seek(in.getFilePointer() + length);
+            }
+        }
+        return refs;
+    }
+
+    private List<PaymentResponse> decodedGroup(GroupRef group){
+        synchronized (decoded) {
+            List<PaymentResponse> cached = decoded.get(group);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        // Inflated outside the lock, two lookups of the same cold group may both decode it
+        List<PaymentResponse> payments;
+        try {
+            payments = ColumnarPaymentFile.readGroup(readGroupData(group), group.rows, group.version);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read payment archive " + group.file, e);
+        }
+        groupsInflated.increment();
+        synchronized (decoded) {
+            decoded.put(group, payments);
+        }
+        return payments;
+    }
+
+    private static byte[] readGroupData(GroupRef group) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(group.file.toFile(), "r")) {
+            byte[] data = new byte[group.length];
+            in.seek(group.offset);
+            in.readFully(data);
+            return data;
+        }
+    }
+
+    /**
+     *
+     * Buffers rows into groups of ColumnarPaymentFile.GROUP_ROWS, written to a temp file.
+     * commit() syncs it, renames it into place and makes it visible to find().
+     *
+     */
+    public final class Writer {
+
+        private final Path target;
+
+        private final Path temp;
+
+        private final FileOutputStream fileOut;
+
+        private final DataOutputStream out;
+
+        private final List<PaymentResponse> group = new ArrayList<>(ColumnarPaymentFile.GROUP_ROWS);
+
+        private long rows;
+
+        private Writer(Path target) throws IOException {
+            this.target = target;
+            this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+            this.fileOut = new FileOutputStream(temp.toFile());
+            this.out = new DataOutputStream(new BufferedOutputStream(fileOut));
+            ColumnarPaymentFile.writeHeader(out);
+        }
+
+        public void add(PaymentResponse payment){
+            group.add(payment);
+            rows++;
+            if (group.size() == ColumnarPaymentFile.GROUP_ROWS) {
+                flushGroup();
+            }
+        }
+
+        public long getRows(){
+            return rows;
+        }
+
+        public void commit(){
+            try {
+                flushGroup();
+                out.flush();
+                fileOut.getFD().sync();
+                out.close();
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                synchronized (PaymentArchive.this) {
+                    if (indexed.add(target)) {
+                        groups.addAll(readGroupHeaders(target));
+                    }
+                }
+                log.info("Archived {} payments to {}", rows, target);
+            } catch (IOException e) {
+                abort();
+                throw new UncheckedIOException("Could not write payment archive " + target, e);
+            }
+        }
+
+        public void abort(){
+            try {
+                out.close();
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                log.warn("Could not remove {}: {}", temp, e.getMessage());
+            }
+        }
+
+        private void flushGroup(){
+            if (group.isEmpty()) {
+                return;
+            }
+            try {
+                ColumnarPaymentFile.writeGroup(out, group);
+                group.clear();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write payment archive " + target, e);
+            }
+        }
+    }
+
+    private static final class GroupRef {
+
+        private final Path file;
+
+        private final byte version;
+
+        private final long offset;
+
+        private final int length;
+
+        private final int rows;
+
+        private final long minId;
+
+        private final long maxId;
+
+        private GroupRef(Path file, byte version, long offset, int length, int rows, long minId, long maxId) {
+            this.file = file;
+            this.version = version;
+            this.offset = offset;
+            this.length = length;
+            this.rows = rows;
+            this.minId = minId;
+            this.maxId = maxId;
+        }
+    }
+}
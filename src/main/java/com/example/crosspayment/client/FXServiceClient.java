@@ -6,8 +6,13 @@ import com.example.crosspayment.dto.FXRateResponse;
 import com.example.crosspayment.dto.FXSupportedCurrency;
 import com.example.crosspayment.dto.PaymentRequest;
 import com.example.crosspayment.exception.FxServiceException;
+import com.example.crosspayment.tracing.PaymentTracer;
+import com.example.crosspayment.tracing.Span;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import io.github.resilience4j.retry.annotation.Retry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -18,67 +23,175 @@ import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
-import java.time.Instant;
+import java.net.URI;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 
 @Component
 @Slf4j
 public class FXServiceClient {
 
+    private static final String QUOTE_PATH = "/twirp/payments.v1.FXService/GetQuote";
+
+    private static final String SUPPORTED_CURRENCIES_PATH = "/twirp/payments.v1.FXService/GetSupportedCurrencies";
+
+    /**
+     * GetSupportedCurrencies takes an empty message
+     */
+    private static final Map<String, Object> EMPTY_BODY = Map.of();
+
     private final RestTemplate restTemplate;
 
-    private final String fxServiceUrl;
+    /**
+     * Resolved once: the String overloads of postForEntity expand the URL as a template on every call
+     */
+    private final URI quoteUri;
+
+    private final URI supportedCurrenciesUri;
+
+    private final FxCorridorResilience corridorResilience;
+
+    private final FxRateCache rateCache;
+
+    private final FxLastGoodRates lastGoodRates;
+
+    private final ObjectProvider<FxRateBroadcaster> rateBroadcaster;
+
+    private final PaymentTracer tracer;
+
+    private final long currenciesTtlMillis;
+
+    private volatile SupportedCurrencies supportedCurrencies;
 
     public FXServiceClient(RestTemplate restTemplate,
-                           @Value("${fx.service.url}") String fxServiceUrl) {
+                           @Value("${fx.service.url}") String fxServiceUrl,
+                           FxCorridorResilience corridorResilience,
+                           FxRateCache rateCache,
+                           FxLastGoodRates lastGoodRates,
+                           ObjectProvider<FxRateBroadcaster> rateBroadcaster,
+                           PaymentTracer tracer,
+                           @Value("${fx.currencies.cache-ttl-ms:60000}") long currenciesTtlMillis) {
         this.restTemplate = restTemplate;
-        this.fxServiceUrl = fxServiceUrl;
+        this.quoteUri = URI.create(fxServiceUrl + QUOTE_PATH);
+        this.supportedCurrenciesUri = URI.create(fxServiceUrl + SUPPORTED_CURRENCIES_PATH);
+        this.corridorResilience = corridorResilience;
+        this.rateCache = rateCache;
+        this.lastGoodRates = lastGoodRates;
+        this.rateBroadcaster = rateBroadcaster;
+        this.tracer = tracer;
+        this.currenciesTtlMillis = currenciesTtlMillis;
     }
 
-    @Retry(name = "fxService", fallbackMethod = "getDefaultExchangeRate")
-    @CircuitBreaker(name = "fxService", fallbackMethod = "getDefaultExchangeRate")
+    /**
+     *
+     * Gets the exchange rate for a currency pair.
+     * Retry, circuit breaker and bulkhead are per corridor (see {@link FxCorridorResilience}), so a degraded
+     * pair is shed on its own instead of sharing the fxService instances with every other pair.
+     * In degraded mode this may be a last good rate, use getQuote where that has to be known.
+     *
+     */
     public BigDecimal getExchangeRate(String sourceCountry, String destinationCounter){
-        log.info("Calling FX service for exchange rate from {} to {}", sourceCountry, destinationCounter);
+        return getQuote(sourceCountry, destinationCounter).getExchangeRate();
+    }
+
+    /**
+     *
+     * Gets the full FX quote (rate + expiry time) for a currency pair.
+     * Same call and resilience as getExchangeRate, used where the expiry or the degraded flag matters
+     * (locked quotes, settled payments).
+     *
+     * Served from {@link FxRateCache} while the last quote is still valid. On a miss one caller per corridor
+     * goes to the FX service and the fresh quote is published to the other instances ({@link FxRateBroadcaster}).
+     *
+     * Traced as an fx.quote span (cache hit / miss) with one fx.attempt child per retry attempt.
+     *
+     * With fx.degraded.enabled an open corridor breaker yields the last good rate instead of an error,
+     * see getDefaultQuote; check isDegraded() before relying on the quote's expiry.
+     *
+     */
+    public FXRateResponse getQuote(String sourceCountry, String destinationCounter){
+        String corridor = FxCorridorResilience.corridorKey(sourceCountry, destinationCounter);
+        try (Span span = tracer.startSpan("fx.quote").tag("corridor", corridor)) {
+            FXRateResponse cached = rateCache.get(corridor);
+            if (cached != null) {
+                span.tag("cache", "hit");
+                return cached;
+            }
+            span.tag("cache", "miss");
+            return rateCache.load(corridor, () -> {
+                FXRateResponse quote;
+                int[] attempts = {0};
+                try {
+                    quote = corridorResilience.execute(corridor, () -> attemptQuote(sourceCountry, destinationCounter, ++attempts[0]));
+                } catch (RuntimeException e) {
+                    span.error(e);
+                    return getDefaultQuote(sourceCountry, destinationCounter, e);
+                }
+                lastGoodRates.record(corridor, quote);
+                rateBroadcaster.ifAvailable(broadcaster -> broadcaster.publishQuote(sourceCountry, destinationCounter, quote));
+                return quote;
+            });
+        }
+    }
+
+    /**
+     *
+     * Drops the cached quote of a pair on this instance and on every peer.
+     *
+     */
+    public void evictQuote(String sourceCountry, String destinationCounter){
+        String corridor = FxCorridorResilience.corridorKey(sourceCountry, destinationCounter);
+        rateCache.evict(corridor);
+        lastGoodRates.evict(corridor);
+        rateBroadcaster.ifAvailable(broadcaster -> broadcaster.publishEviction(sourceCountry, destinationCounter));
+    }
+
+    /**
+     *
+     * One GetQuote call as retried by the corridor Retry, traced as its own fx.attempt span
+     * (the traceparent sent to the FX service points at it).
+     *
+     */
+    private FXRateResponse attemptQuote(String sourceCountry, String destinationCounter, int attempt){
+        try (Span span = tracer.startSpan("fx.attempt").tag("attempt", attempt)) {
+            try {
+                return requestQuote(sourceCountry, destinationCounter);
+            } catch (RuntimeException e) {
+                span.error(e);
+                throw e;
+            }
+        }
+    }
+
+    private FXRateResponse requestQuote(String sourceCountry, String destinationCounter){
+        log.debug("Calling FX service for exchange rate from {} to {}", sourceCountry, destinationCounter);
 
         try{
-            String url = fxServiceUrl + "/twirp/payments.v1.FXService/GetQuote";
-            FXRateQuote request = FXRateQuote.builder()
-                    .sourceCountry(sourceCountry)
-                    .targetCountry(destinationCounter)
-                    .build();
+            FXRateQuote request = new FXRateQuote(sourceCountry, destinationCounter);
 
-            ResponseEntity<FXRateResponse> response = restTemplate.postForEntity(url, request, FXRateResponse.class);
+            ResponseEntity<FXRateResponse> response = restTemplate.postForEntity(quoteUri, request, FXRateResponse.class);
 
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null){
                 FXRateResponse fxRateResponse = response.getBody();
-                log.info("Received exchange rate: {} with expiry time: {}", fxRateResponse.getExchangeRate(), fxRateResponse.getExpiryTime());
+                log.debug("Received exchange rate: {} with expiry time: {}", fxRateResponse.getExchangeRate(), fxRateResponse.getExpiryTime());
 
                 if (fxRateResponse.getExchangeRate() == null || fxRateResponse.getExchangeRate().compareTo(BigDecimal.ZERO) <= 0){
                     log.error("Invalid exchange rate received: {}", fxRateResponse.getExchangeRate());
                     throw new FxServiceException("Invalid exchange rate received from FX service");
                 }
 
-                if (fxRateResponse.getExpiryTime() != null){
-                    String convertedExpiryTime = fxRateResponse.getExpiryTime();
-                    Instant expiryInstant = Instant.parse(convertedExpiryTime);
-                    Instant currentTime = Instant.now();
-                    if (currentTime.isAfter(expiryInstant)){
-                        log.error("Received expired exchange rate with expiry time: {}", convertedExpiryTime);
-                        throw new FxServiceException("Received expired exchange rate from FX service");
-                    }
+                if (System.currentTimeMillis() > fxRateResponse.getExpiryEpochMillis()){
+                    log.error("Received expired exchange rate with expiry time: {}", fxRateResponse.getExpiryTime());
+                    throw new FxServiceException("Received expired exchange rate from FX service");
                 }
-                log.info("Successfully retrieved exchange rate from FX service",
-                    fxRateResponse.getExchangeRate(),
-                    fxRateResponse.getExpiryTime());
-
 
-                return fxRateResponse.getExchangeRate();
+                return fxRateResponse;
             }else{
-                log.error("Invalid response from FX service: {}", response.getStatusCode(), response.getBody());
+                log.error("Invalid response from FX service: {} {}", response.getStatusCode(), response.getBody());
                 throw new FxServiceException("Invalid response from FX service");
             }
         }catch(HttpClientErrorException e){
@@ -92,8 +205,27 @@ public class FXServiceClient {
 
 
 
-    public BigDecimal getDefaultExchangeRate(String sourceCountry, String destinationCounter, Exception t){
-        log.error("FX service is unavailable.", sourceCountry, destinationCounter, t);
+    /**
+     *
+     * Fallback of getQuote. An open breaker (CallNotPermittedException) is answered with the corridor's last good
+     * rate when degraded mode allows it (FxLastGoodRates: staleness budget and tolerance band), so payments keep
+     * settling, flagged, through an FX blip instead of failing and being resubmitted. Everything else throws.
+     *
+     */
+    public FXRateResponse getDefaultQuote(String sourceCountry, String destinationCounter, Exception t){
+        if (t instanceof CallNotPermittedException && lastGoodRates.isEnabled()){
+            FXRateResponse degraded = lastGoodRates.degradedQuote(FxCorridorResilience.corridorKey(sourceCountry, destinationCounter));
+            if (degraded != null) {
+                return degraded;
+            }
+        }
+        if (t instanceof BulkheadFullException || t instanceof CallNotPermittedException){
+            log.warn("FX corridor {} is shedding load: {}", FxCorridorResilience.corridorKey(sourceCountry, destinationCounter), t.getMessage());
+            throw new FxServiceException(
+                "FX corridor " + FxCorridorResilience.corridorKey(sourceCountry, destinationCounter) + " is temporarily unavailable, please try again later.", t
+            );
+        }
+        log.error("FX service is unavailable for {} -> {}", sourceCountry, destinationCounter, t);
 
         throw new FxServiceException(
             "FX service is unavailable after multiple attempts. Cannot retrieve exchange rate from " + sourceCountry + " to " + destinationCounter, t
@@ -114,10 +246,7 @@ public class FXServiceClient {
         log.info("Calling FX service for supported currencies");
 
         try{
-            String url = fxServiceUrl + "/twirp/payments.v1.FXService/GetSupportedCurrencies";
-            Map<String, Object> body = new HashMap<>();
-
-            ResponseEntity<FXSupportedCurrency> response = restTemplate.postForEntity(url, body, FXSupportedCurrency.class);
+            ResponseEntity<FXSupportedCurrency> response = restTemplate.postForEntity(supportedCurrenciesUri, EMPTY_BODY, FXSupportedCurrency.class);
 
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null){
                 List<String> supportedCurrenciesResponse = response.getBody().getCurrencies();
@@ -147,15 +276,41 @@ public class FXServiceClient {
      *
      * Future methods for FX service can be added here.
      * Is Currency Supported should be added to validate currencies.
+     *
+     * Checked on every payment, so the list is kept for fx.currencies.cache-ttl-ms instead of calling
+     * GetSupportedCurrencies each time. An empty (fallback) list is never cached, and if a refresh fails
+     * the previous list keeps being used.
      */
 
     public boolean isCurrencySupported(String currencyCode) {
-        try {
-            List<String> supportedCurrencies = getSupportedCurrency();
-            return supportedCurrencies.contains(currencyCode);
-        }catch (FxServiceException e){
-            log.error("Failed to check if currency is supported: {}", currencyCode, e);
-            return false;
+        SupportedCurrencies cached = supportedCurrencies;
+        if (cached == null || System.currentTimeMillis() >= cached.expiresAtMillis) {
+            try {
+                List<String> currencies = getSupportedCurrency();
+                if (!currencies.isEmpty()) {
+                    cached = new SupportedCurrencies(new HashSet<>(currencies), System.currentTimeMillis() + currenciesTtlMillis);
+                    supportedCurrencies = cached;
+                }
+            }catch (FxServiceException e){
+                if (cached == null) {
+                    log.error("Failed to check if currency is supported: {}", currencyCode, e);
+                    return false;
+                }
+                log.warn("Could not refresh supported currencies, using the previous list: {}", e.getMessage());
+            }
+        }
+        return cached != null && cached.currencies.contains(currencyCode);
+    }
+
+    private static final class SupportedCurrencies {
+
+        private final Set<String> currencies;
+
+        private final long expiresAtMillis;
+
+        private SupportedCurrencies(Set<String> currencies, long expiresAtMillis) {
+            this.currencies = currencies;
+            this.expiresAtMillis = expiresAtMillis;
         }
     }
 }
@@ -0,0 +1,130 @@
+package com.example.crosspayment.client;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ *
+ *  FX corridor resilience:
+ *      Per currency pair (corridor) isolation for FX quote calls.
+ *
+ *      Every corridor gets its own fxService-SRC-DST retry, circuit breaker and semaphore bulkhead, created on
+ *      first use from the fxCorridor defaults in application.properties. A slow or failing pair (e.g. USD-INR)
+ *      fills its own bulkhead and opens its own breaker, the other pairs keep their permits and latency.
+ *
+ *      Individual corridors can be tuned with resilience4j.*.instances.fxService-SRC-DST.* properties,
+ *      those instances are created at startup and picked up here instead of the defaults.
+ *
+ *      All instances live in the Resilience4j registries, so they show up in the actuator metrics tagged by name.
+ *
+ */
+@Component
+@RequiredArgsConstructor
+public class FxCorridorResilience {
+
+    public static final String CORRIDOR_CONFIG = "fxCorridor";
+
+    private static final String INSTANCE_PREFIX = "fxService-";
+
+    /**
+     * Bounds the corridor key cache (per source and per destination currency), unknown codes are not validated upstream
+     */
+    private static final int MAX_CACHED_CURRENCIES = 256;
+
+    private static final ConcurrentMap<String, ConcurrentMap<String, String>> CORRIDOR_KEYS = new ConcurrentHashMap<>();
+
+    private final RetryRegistry retryRegistry;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
+
+    private final ConcurrentMap<String, CorridorInstances> instances = new ConcurrentHashMap<>();
+
+    /**
+     *
+     * Corridor key for a currency pair, e.g. USD-EUR
+     * Looked up on every quote and stats update, so each key is built once and reused.
+     *
+     */
+    public static String corridorKey(String sourceCurrency, String destinationCurrency){
+        ConcurrentMap<String, String> byDestination = CORRIDOR_KEYS.get(sourceCurrency);
+        String key = byDestination == null ? null : byDestination.get(destinationCurrency);
+        if (key != null) {
+            return key;
+        }
+        key = sourceCurrency + "-" + destinationCurrency;
+        if (byDestination == null && CORRIDOR_KEYS.size() < MAX_CACHED_CURRENCIES) {
+            byDestination = CORRIDOR_KEYS.computeIfAbsent(sourceCurrency, currency -> new ConcurrentHashMap<>());
+        }
+        if (byDestination != null && byDestination.size() < MAX_CACHED_CURRENCIES) {
+            byDestination.putIfAbsent(destinationCurrency, key);
+        }
+        return key;
+    }
+
+    public Retry retry(String corridor){
+        return instances(corridor).retry;
+    }
+
+    public CircuitBreaker circuitBreaker(String corridor){
+        return instances(corridor).circuitBreaker;
+    }
+
+    public Bulkhead bulkhead(String corridor){
+        return instances(corridor).bulkhead;
+    }
+
+    /**
+     *
+     * Runs the call as Retry(CircuitBreaker(Bulkhead(call))), the same nesting the annotations use.
+     * A full bulkhead fails fast with BulkheadFullException, an open breaker with CallNotPermittedException.
+     * Neither is retried (see fxCorridor retry config).
+     *
+     */
+    public <T> T execute(String corridor, Supplier<T> call){
+        CorridorInstances corridorInstances = instances(corridor);
+        Supplier<T> bulkheaded = Bulkhead.decorateSupplier(corridorInstances.bulkhead, call);
+        Supplier<T> guarded = CircuitBreaker.decorateSupplier(corridorInstances.circuitBreaker, bulkheaded);
+        return Retry.decorateSupplier(corridorInstances.retry, guarded).get();
+    }
+
+    /**
+     *
+     * The three registry lookups (and instance name concatenations) happen once per corridor.
+     *
+     */
+    private CorridorInstances instances(String corridor){
+        CorridorInstances cached = instances.get(corridor);
+        if (cached != null) {
+            return cached;
+        }
+        return instances.computeIfAbsent(corridor, key -> new CorridorInstances(
+                retryRegistry.retry(INSTANCE_PREFIX + key, CORRIDOR_CONFIG),
+                circuitBreakerRegistry.circuitBreaker(INSTANCE_PREFIX + key, CORRIDOR_CONFIG),
+                bulkheadRegistry.bulkhead(INSTANCE_PREFIX + key, CORRIDOR_CONFIG)));
+    }
+
+    private static final class CorridorInstances {
+
+        private final Retry retry;
+
+        private final CircuitBreaker circuitBreaker;
+
+        private final Bulkhead bulkhead;
+
+        private CorridorInstances(Retry retry, CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+            this.retry = retry;
+            this.circuitBreaker = circuitBreaker;
+            this.bulkhead = bulkhead;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.crosspayment.client;
+
+import com.example.crosspayment.dto.FXRateResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ *
+ *  Last known good FX rates, for the degraded mode of FXServiceClient (fx.degraded.enabled=true).
+ *
+ *  Every quote the FX service answered is remembered per corridor, the ones fetched here as well as the ones peers
+ *  published (FxRateBroadcaster); an evicted rate is forgotten. While the corridor's circuit breaker is open, the
+ *  last of them is served instead of failing the payment, as long as:
+ *
+ *      - it is at most max-staleness-ms old
+ *      - the corridor was calm: the good rates seen within max-staleness-ms stayed within tolerance-bps
+ *        (high - low, relative to the last rate) of each other
+ *
+ *  Both default to fx.degraded.*, a corridor can be tuned with fx.degraded.corridors.SRC-DST.max-staleness-ms and
+ *  fx.degraded.corridors.SRC-DST.tolerance-bps (e.g. a tight budget for a volatile pair, 0 staleness to exclude it).
+ *
+ *  Metered as fx.degraded.quotes{corridor, result = served | stale | out-of-band | none} and the age of the served
+ *  rates, fx.degraded.age{corridor}.
+ *
+ */
+@Component
+@Slf4j
+public class FxLastGoodRates {
+
+    private static final String CORRIDOR_PREFIX = "fx.degraded.corridors.";
+
+    /**
+     * Per corridor, enough for one quote every few seconds over the default budget
+     */
+    private static final int MAX_SAMPLES = 64;
+
+    private static final BigDecimal BASIS_POINTS = BigDecimal.valueOf(10_000);
+
+    private final boolean enabled;
+
+    private final long maxStalenessMillis;
+
+    private final long toleranceBps;
+
+    private final Environment environment;
+
+    private final MeterRegistry meterRegistry;
+
+    private final LongSupplier clock;
+
+    private final ConcurrentMap<String, Corridor> corridors = new ConcurrentHashMap<>();
+
+    @Autowired
+    public FxLastGoodRates(@Value("${fx.degraded.enabled:false}") boolean enabled,
+                           @Value("${fx.degraded.max-staleness-ms:120000}") long maxStalenessMillis,
+                           @Value("${fx.degraded.tolerance-bps:50}") long toleranceBps,
+                           Environment environment,
+                           MeterRegistry meterRegistry) {
+        this(enabled, maxStalenessMillis, toleranceBps, environment, meterRegistry, System::currentTimeMillis);
+    }
+
+    FxLastGoodRates(boolean enabled, long maxStalenessMillis, long toleranceBps, Environment environment,
+                    MeterRegistry meterRegistry, LongSupplier clock) {
+        this.enabled = enabled;
+        this.maxStalenessMillis = maxStalenessMillis;
+        this.toleranceBps = toleranceBps;
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+    }
+
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    /**
+     *
+     * Remembers a rate the FX service answered for the corridor.
+     *
+     */
+    public void record(String corridor, FXRateResponse quote){
+        if (!enabled) {
+            return;
+        }
+        corridor(corridor).add(quote.getExchangeRate(), clock.getAsLong());
+    }
+
+    /**
+     *
+     * Forgets the corridor's rates, e.g. after its last rate was evicted as a bad tick.
+     *
+     */
+    public void evict(String corridor){
+        Corridor state = corridors.get(corridor);
+        if (state != null) {
+            state.clear();
+        }
+    }
+
+    /**
+     *
+     * @return the last good quote of the corridor marked degraded, null if there is none within its budget
+     */
+    public FXRateResponse degradedQuote(String corridor){
+        if (!enabled) {
+            return null;
+        }
+        Corridor state = corridor(corridor);
+        long now = clock.getAsLong();
+        Sample last;
+        BigDecimal spreadBps;
+        synchronized (state) {
+            last = state.samples.peekLast();
+            spreadBps = last == null ? null : state.spreadBps(now - state.maxStalenessMillis, last.rate);
+        }
+
+        String result;
+        if (last == null) {
+            result = "none";
+        } else if (now - last.atMillis > state.maxStalenessMillis) {
+            result = "stale";
+        } else if (spreadBps.compareTo(BigDecimal.valueOf(state.toleranceBps)) > 0) {
+            result = "out-of-band";
+        } else {
+            result = "served";
+        }
+        Counter.builder("fx.degraded.quotes").tag("corridor", corridor).tag("result", result)
+                .register(meterRegistry).increment();
+        if (!"served".equals(result)) {
+            log.warn("No degraded FX rate for {}: {}", corridor, result);
+            return null;
+        }
+
+        DistributionSummary.builder("fx.degraded.age").baseUnit("milliseconds").tag("corridor", corridor)
+                .register(meterRegistry).record(now - last.atMillis);
+        log.warn("FX corridor {} unavailable, serving last good rate {} from {} ms ago", corridor, last.rate, now - last.atMillis);
+        FXRateResponse quote = new FXRateResponse(last.rate, null);
+        quote.setDegraded(true);
+        return quote;
+    }
+
+    private Corridor corridor(String corridor){
+        Corridor cached = corridors.get(corridor);
+        if (cached != null) {
+            return cached;
+        }
+        return corridors.computeIfAbsent(corridor, key -> new Corridor(
+                environment.getProperty(CORRIDOR_PREFIX + key + ".max-staleness-ms", Long.class, maxStalenessMillis),
+                environment.getProperty(CORRIDOR_PREFIX + key + ".tolerance-bps", Long.class, toleranceBps)));
+    }
+
+    private static final class Sample {
+
+        private final BigDecimal rate;
+
+        private final long atMillis;
+
+        private Sample(BigDecimal rate, long atMillis) {
+            this.rate = rate;
+            this.atMillis = atMillis;
+        }
+    }
+
+    private static final class Corridor {
+
+        private final long maxStalenessMillis;
+
+        private final long toleranceBps;
+
+        /**
+         * oldest first, guarded by this
+         */
+        private final ArrayDeque<Sample> samples = new ArrayDeque<>();
+
+        private Corridor(long maxStalenessMillis, long toleranceBps) {
+            this.maxStalenessMillis = maxStalenessMillis;
+            this.toleranceBps = toleranceBps;
+        }
+
+        synchronized void clear(){
+            samples.clear();
+        }
+
+        synchronized void add(BigDecimal rate, long now){
+            samples.addLast(new Sample(rate, now));
+            while (samples.size() > MAX_SAMPLES || samples.peekFirst().atMillis < now - maxStalenessMillis) {
+                samples.removeFirst();
+            }
+        }
+
+        /**
+         *
+         * @return high - low of the rates since `since`, in basis points of `reference`
+         */
+        BigDecimal spreadBps(long since, BigDecimal reference){
+            BigDecimal low = reference;
+            BigDecimal high = reference;
+            for (Iterator<Sample> it = samples.descendingIterator(); it.hasNext(); ) {
+                Sample sample = it.next();
+                if (sample.atMillis < since) {
+                    break;
+                }
+                low = low.min(sample.rate);
+                high = high.max(sample.rate);
+            }
+            return high.subtract(low).multiply(BASIS_POINTS).divide(reference, MathContext.DECIMAL64);
+        }
+    }
+}
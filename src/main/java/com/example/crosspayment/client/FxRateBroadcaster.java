@@ -0,0 +1,204 @@
+package com.example.crosspayment.client;
+
+import com.example.crosspayment.dto.FXRateResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ *
+ *  Shares FX quotes and evictions between instances over PostgreSQL LISTEN/NOTIFY.
+ *
+ *      - every quote fetched from the FX service is published on the channel, peers put it in their {@link FxRateCache}
+ *        and record it as the corridor's last good rate ({@link FxLastGoodRates})
+ *      - an eviction (DELETE /api/fx/rates/{source}/{target}) is published too, so a bad tick is dropped everywhere
+ *
+ *  Payload: instanceId|Q|SRC|DST|rate|expiry   or   instanceId|E|SRC|DST
+ *
+ *  NOTIFY runs on a single "fx-cache-publisher" thread (autocommit, outside the payment transaction),
+ *  LISTEN holds one dedicated connection outside the Hikari pool on the "fx-cache-listener" thread.
+ *  While that connection is down peers may have evicted rates we never heard about, so the local cache
+ *  is cleared on every reconnect.
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "fx.cache.sync.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class FxRateBroadcaster implements SmartLifecycle {
+
+    private static final Pattern CHANNEL_NAME = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private static final String QUOTE = "Q";
+
+    private static final String EVICT = "E";
+
+    private final FxRateCache rateCache;
+
+    private final FxLastGoodRates lastGoodRates;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final DataSourceProperties dataSourceProperties;
+
+    private final String channel;
+
+    private final long reconnectMillis;
+
+    private final String instanceId = UUID.randomUUID().toString().substring(0, 8);
+
+    private final ThreadPoolExecutor publisher;
+
+    private final Counter published;
+
+    private final Counter received;
+
+    private volatile boolean running;
+
+    private Thread listener;
+
+    public FxRateBroadcaster(FxRateCache rateCache,
+                             FxLastGoodRates lastGoodRates,
+                             JdbcTemplate jdbcTemplate,
+                             DataSourceProperties dataSourceProperties,
+                             @Value("${fx.cache.sync.channel:fx_rates}") String channel,
+                             @Value("${fx.cache.sync.reconnect-ms:5000}") long reconnectMillis,
+                             MeterRegistry meterRegistry) {
+        if (!CHANNEL_NAME.matcher(channel).matches()) {
+            throw new IllegalArgumentException("fx.cache.sync.channel must be a lower case identifier: " + channel);
+        }
+        this.rateCache = rateCache;
+        this.lastGoodRates = lastGoodRates;
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.channel = channel;
+        this.reconnectMillis = reconnectMillis;
+        this.publisher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1000),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "fx-cache-publisher");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardOldestPolicy());
+        this.published = Counter.builder("fx.cache.sync.messages").tag("direction", "published").register(meterRegistry);
+        this.received = Counter.builder("fx.cache.sync.messages").tag("direction", "received").register(meterRegistry);
+    }
+
+    public void publishQuote(String sourceCurrency, String targetCurrency, FXRateResponse quote){
+        String expiry = quote.getExpiryTime() == null ? "" : quote.getExpiryTime();
+        publish(instanceId + '|' + QUOTE + '|' + sourceCurrency + '|' + targetCurrency + '|'
+                + quote.getExchangeRate().toPlainString() + '|' + expiry);
+    }
+
+    public void publishEviction(String sourceCurrency, String targetCurrency){
+        publish(instanceId + '|' + EVICT + '|' + sourceCurrency + '|' + targetCurrency);
+    }
+
+    private void publish(String payload){
+        publisher.execute(() -> {
+            try {
+                jdbcTemplate.queryForObject("select pg_notify(?, ?)", Object.class, channel, payload);
+                published.increment();
+            } catch (RuntimeException e) {
+                log.warn("Could not publish FX cache message on {}: {}", channel, e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        listener = new Thread(this::listen, "fx-cache-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+        publisher.shutdown();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen(){
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                rateCache.clear();
+                log.info("Listening for FX cache messages on channel {} as instance {}", channel, instanceId);
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(1000);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        apply(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("FX cache listener lost its connection, retrying in {} ms: {}", reconnectMillis, e.getMessage());
+                try {
+                    Thread.sleep(reconnectMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    void apply(String payload){
+        String[] fields = payload.split("\\|", -1);
+        if (fields.length < 4 || instanceId.equals(fields[0])) {
+            return;
+        }
+        received.increment();
+
+        String corridor = FxCorridorResilience.corridorKey(fields[2], fields[3]);
+        if (EVICT.equals(fields[1])) {
+            rateCache.evict(corridor);
+            lastGoodRates.evict(corridor);
+        } else if (QUOTE.equals(fields[1]) && fields.length == 6) {
+            try {
+                FXRateResponse quote = new FXRateResponse(new BigDecimal(fields[4]), fields[5].isEmpty() ? null : fields[5]);
+                rateCache.put(corridor, quote);
+                lastGoodRates.record(corridor, quote);
+            } catch (RuntimeException e) {
+                log.warn("Ignoring malformed FX cache message: {}", payload);
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.crosspayment.client;
+
+import com.example.crosspayment.dto.FXRateResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ *
+ *  FX rate cache:
+ *      - Keeps the last FX quote per corridor until shortly before its expiry_time (capped at max-ttl-ms)
+ *      - Concurrent misses for the same corridor share one FX call (single flight), the others wait for its result
+ *      - Entries can be seeded or evicted by peers through {@link FxRateBroadcaster}
+ *
+ *  A cached quote is only served while it is still valid for at least expiry-margin-ms,
+ *  so a payment never settles on a quote that is about to expire.
+ *
+ */
+@Component
+@Slf4j
+public class FxRateCache {
+
+    private final boolean enabled;
+
+    private final long maxTtlMillis;
+
+    private final long expiryMarginMillis;
+
+    private final ConcurrentMap<String, CachedRate> rates = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, CompletableFuture<FXRateResponse>> loads = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    public FxRateCache(@Value("${fx.cache.enabled:true}") boolean enabled,
+                       @Value("${fx.cache.max-ttl-ms:5000}") long maxTtlMillis,
+                       @Value("${fx.cache.expiry-margin-ms:1000}") long expiryMarginMillis,
+                       MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxTtlMillis = maxTtlMillis;
+        this.expiryMarginMillis = expiryMarginMillis;
+        this.hits = Counter.builder("fx.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("fx.cache.requests").tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     *
+     * @return the cached quote for the corridor, or null if there is none or it is too close to expiry
+     */
+    public FXRateResponse get(String corridor){
+        if (!enabled) {
+            return null;
+        }
+        CachedRate cached = rates.get(corridor);
+        if (cached != null && System.currentTimeMillis() < cached.usableUntilMillis) {
+            hits.increment();
+            return cached.quote;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     *
+     * Runs the loader once per corridor no matter how many threads miss at the same time, and caches the result.
+     * Errors from the loader are rethrown to every waiting caller.
+     *
+     */
+    public FXRateResponse load(String corridor, Supplier<FXRateResponse> loader){
+        if (!enabled) {
+            return loader.get();
+        }
+
+        CompletableFuture<FXRateResponse> mine = new CompletableFuture<>();
+        CompletableFuture<FXRateResponse> existing = loads.putIfAbsent(corridor, mine);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            FXRateResponse quote = loader.get();
+            put(corridor, quote);
+            mine.complete(quote);
+            return quote;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(corridor, mine);
+        }
+    }
+
+    /**
+     *
+     * Stores a quote unless a quote that expires later is already cached (a late peer message must not win).
+     * Degraded quotes are not stored, the next payment tries the FX service again.
+     *
+     */
+    public void put(String corridor, FXRateResponse quote){
+        if (!enabled || quote.isDegraded()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long usableUntil = Math.min(now + maxTtlMillis, quote.getExpiryEpochMillis() - expiryMarginMillis);
+        if (usableUntil <= now) {
+            return;
+        }
+
+        CachedRate fresh = new CachedRate(quote, usableUntil);
+        rates.merge(corridor, fresh, (current, candidate) ->
+                candidate.usableUntilMillis >= current.usableUntilMillis ? candidate : current);
+    }
+
+    public void evict(String corridor){
+        if (rates.remove(corridor) != null) {
+            log.info("Evicted cached FX rate for {}", corridor);
+        }
+    }
+
+    public void clear(){
+        rates.clear();
+    }
+
+    private static final class CachedRate {
+
+        private final FXRateResponse quote;
+
+        private final long usableUntilMillis;
+
+        private CachedRate(FXRateResponse quote, long usableUntilMillis) {
+            this.quote = quote;
+            this.usableUntilMillis = usableUntilMillis;
+        }
+    }
+}
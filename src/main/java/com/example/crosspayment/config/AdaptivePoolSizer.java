@@ -0,0 +1,216 @@
+package com.example.crosspayment.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.PoolStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ *  Adaptive pool sizer (payment.datasource.pool-sizing.enabled=true):
+ *      Every interval, moves each pool's maximum size within [min, max]:
+ *
+ *      - database response (median of 3 SELECT 1 on a probe connection outside the pool) above db-latency-limit-ms:
+ *        shrink by step, the database is the bottleneck and more connections only add contention there
+ *      - otherwise mean acquire wait above acquire-target-ms, or acquire timeouts: grow by step
+ *      - otherwise more than `step` idle connections for shrink-after intervals in a row: shrink by one
+ *
+ *      The acquire wait comes from ConnectionPoolMonitor. Changes are logged and counted in
+ *      payment.datasource.pool.resizes{pool, direction}; the current size is hikaricp.connections.max.
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "payment.datasource.pool-sizing.enabled", havingValue = "true")
+@Slf4j
+public class AdaptivePoolSizer {
+
+    private static final String PROBE_QUERY = "SELECT 1";
+
+    private final ConnectionPoolMonitor connectionPoolMonitor;
+
+    private final MeterRegistry meterRegistry;
+
+    private final int minSize;
+
+    private final int maxSize;
+
+    private final int step;
+
+    private final Duration interval;
+
+    private final double acquireTargetMillis;
+
+    private final double dbLatencyLimitMillis;
+
+    private final int shrinkAfter;
+
+    /**
+     * only touched by the sizer thread
+     */
+    private final Map<String, Connection> probes = new HashMap<>();
+
+    private final Map<String, Integer> quietIntervals = new HashMap<>();
+
+    private ScheduledExecutorService sizer;
+
+    public AdaptivePoolSizer(ConnectionPoolMonitor connectionPoolMonitor,
+                             MeterRegistry meterRegistry,
+                             @Value("${payment.datasource.pool-sizing.min:5}") int minSize,
+                             @Value("${payment.datasource.pool-sizing.max:40}") int maxSize,
+                             @Value("${payment.datasource.pool-sizing.step:2}") int step,
+                             @Value("${payment.datasource.pool-sizing.interval:10s}") Duration interval,
+                             @Value("${payment.datasource.pool-sizing.acquire-target-ms:10}") double acquireTargetMillis,
+                             @Value("${payment.datasource.pool-sizing.db-latency-limit-ms:20}") double dbLatencyLimitMillis,
+                             @Value("${payment.datasource.pool-sizing.shrink-after:6}") int shrinkAfter) {
+        this.connectionPoolMonitor = connectionPoolMonitor;
+        this.meterRegistry = meterRegistry;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.step = step;
+        this.interval = interval;
+        this.acquireTargetMillis = acquireTargetMillis;
+        this.dbLatencyLimitMillis = dbLatencyLimitMillis;
+        this.shrinkAfter = shrinkAfter;
+    }
+
+    @PostConstruct
+    void start(){
+        sizer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pool-sizer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sizer.scheduleWithFixedDelay(this::adjustAll, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        log.info("Adaptive pool sizing between {} and {} connections every {}", minSize, maxSize, interval);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        sizer.shutdown();
+        sizer.awaitTermination(2, TimeUnit.SECONDS);
+        probes.values().forEach(this::closeQuietly);
+    }
+
+    private void adjustAll(){
+        for (HikariDataSource pool : connectionPoolMonitor.getDataSources()) {
+            try {
+                if (!pool.isClosed()) {
+                    adjust(pool);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not size pool {}: {}", pool.getPoolName(), e.getMessage());
+            }
+        }
+    }
+
+    private void adjust(HikariDataSource pool){
+        String name = pool.getPoolName();
+        ConnectionPoolMonitor.AcquireWindow window = connectionPoolMonitor.window(name);
+        if (window == null) {
+            return;
+        }
+        double acquireMillis = window.drainMeanAcquireMillis();
+        long timeouts = window.drainTimeouts();
+        PoolStats stats = window.getPoolStats();
+        double dbMillis = probe(pool);
+        if (Double.isNaN(dbMillis)) {
+            // Database unreachable: acquire timeouts say nothing about the pool size
+            return;
+        }
+
+        int current = pool.getMaximumPoolSize();
+        int target = current;
+        String reason = null;
+        if (dbMillis > dbLatencyLimitMillis) {
+            target = Math.max(minSize, current - step);
+            reason = String.format("database response %.1f ms over %.1f ms", dbMillis, dbLatencyLimitMillis);
+        } else if (acquireMillis > acquireTargetMillis || timeouts > 0) {
+            target = Math.min(maxSize, current + step);
+            reason = String.format("acquire wait %.1f ms, %d timeouts, %d pending, database response %.1f ms",
+                    acquireMillis, timeouts, stats.getPendingThreads(), dbMillis);
+        } else if (stats.getIdleConnections() > step) {
+            int quiet = quietIntervals.merge(name, 1, Integer::sum);
+            if (quiet >= shrinkAfter) {
+                target = Math.max(minSize, current - 1);
+                reason = String.format("%d idle connections for %d intervals", stats.getIdleConnections(), quiet);
+            }
+        } else {
+            quietIntervals.remove(name);
+        }
+
+        if (target == current) {
+            return;
+        }
+        quietIntervals.remove(name);
+        // Both are runtime settable through the config MXBean; minimum-idle must not exceed the maximum
+        if (pool.getMinimumIdle() > target) {
+            pool.getHikariConfigMXBean().setMinimumIdle(target);
+        }
+        pool.getHikariConfigMXBean().setMaximumPoolSize(target);
+        String direction = target > current ? "grow" : "shrink";
+        Counter.builder("payment.datasource.pool.resizes").tag("pool", name).tag("direction", direction)
+                .register(meterRegistry).increment();
+        log.info("Pool {}: maximum size {} -> {} ({})", name, current, target, reason);
+    }
+
+    /**
+     *
+     * @return median of 3 probe round trips in ms, NaN when the probe connection fails
+     */
+    private double probe(HikariDataSource pool){
+        String name = pool.getPoolName();
+        try {
+            Connection connection = probes.get(name);
+            if (connection == null || connection.isClosed()) {
+                connection = DriverManager.getConnection(pool.getJdbcUrl(), pool.getUsername(), pool.getPassword());
+                probes.put(name, connection);
+            }
+            long[] nanos = new long[3];
+            try (Statement statement = connection.createStatement()) {
+                for (int i = 0; i < nanos.length; i++) {
+                    long start = System.nanoTime();
+                    statement.execute(PROBE_QUERY);
+                    nanos[i] = System.nanoTime() - start;
+                }
+            }
+            Arrays.sort(nanos);
+            Timer.builder("payment.datasource.db.response").tag("pool", name).register(meterRegistry)
+                    .record(nanos[1], TimeUnit.NANOSECONDS);
+            return nanos[1] / 1_000_000.0;
+        } catch (SQLException e) {
+            log.warn("Database probe for pool {} failed: {}", name, e.getMessage());
+            closeQuietly(probes.remove(name));
+            return Double.NaN;
+        }
+    }
+
+    private void closeQuietly(Connection connection){
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Could not close probe connection: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.crosspayment.config;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ *
+ *  Connection caller context:
+ *      Names the PaymentService method a thread is running ("PaymentService.processPayment"), so the connections
+ *      it takes are attributed to it in the pool metrics and leak reports (ConnectionPoolMonitor).
+ *
+ *      Runs outside the transaction interceptor (highest precedence), so the connection the transaction opens is
+ *      taken while the name is set. Nested calls keep the outermost name. Threads outside PaymentService are
+ *      reported as "other".
+ *
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ConnectionCallerContext {
+
+    public static final String OTHER = "other";
+
+    private static final ThreadLocal<String> CALLER = new ThreadLocal<>();
+
+    private final ConcurrentMap<Method, String> names = new ConcurrentHashMap<>();
+
+    public static String current(){
+        String caller = CALLER.get();
+        return caller == null ? OTHER : caller;
+    }
+
+    @Around("execution(public * com.example.crosspayment.service.PaymentService.*(..))")
+    public Object nameCaller(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (CALLER.get() != null) {
+            return joinPoint.proceed();
+        }
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        CALLER.set(names.computeIfAbsent(method, m -> m.getDeclaringClass().getSimpleName() + "." + m.getName()));
+        try {
+            return joinPoint.proceed();
+        } finally {
+            CALLER.remove();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.crosspayment.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ *
+ *  Connection pool config:
+ *      Hands the auto-configured Hikari pool to ConnectionPoolMonitor before it starts. Spring Boot then leaves its
+ *      metrics tracker alone, the monitor records the standard hikaricp.* meters itself.
+ *      The routing pools (DataSourceRoutingConfig) are not beans and register themselves.
+ *
+ */
+@Configuration
+public class ConnectionPoolConfig {
+
+    @Bean
+    public static BeanPostProcessor hikariPoolRegistration(ObjectProvider<ConnectionPoolMonitor> connectionPoolMonitor){
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource) {
+                    connectionPoolMonitor.getObject().register(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+}
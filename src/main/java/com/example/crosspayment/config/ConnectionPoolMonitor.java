@@ -0,0 +1,279 @@
+package com.example.crosspayment.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ *
+ *  Connection pool monitor:
+ *      Hikari metrics tracker of every pool (the auto-configured one and the routing pools), on top of the
+ *      standard hikaricp.* meters (active, idle, pending, max, acquire and usage timers):
+ *
+ *      - payment.datasource.connection.acquire / .usage{pool, method}: wait for a connection and time it was held,
+ *        by calling PaymentService method (ConnectionCallerContext)
+ *      - leak detection: a connection held longer than payment.datasource.leak-threshold is reported once, with
+ *        the method that took it and where the holding thread is now, and counted in
+ *        payment.datasource.connection.leaks{pool, method}. The threshold has to stay above the worst case FX
+ *        retry budget (21s by default), processPayment holds its connection for all of it
+ *      - per pool acquire window for AdaptivePoolSizer
+ *
+ *  Hikari calls the tracker on the borrowing thread when a connection is handed out and when it is closed, so the
+ *  connections a thread holds are a thread local stack; the leak detector scans the set of open holdings.
+ *
+ */
+@Component
+@Slf4j
+public class ConnectionPoolMonitor implements MetricsTrackerFactory {
+
+    private final MeterRegistry meterRegistry;
+
+    private final MicrometerMetricsTrackerFactory micrometer;
+
+    private final long leakThresholdNanos;
+
+    private final Set<Holding> holdings = ConcurrentHashMap.newKeySet();
+
+    private final ThreadLocal<ArrayDeque<Holding>> held = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final Map<String, AcquireWindow> windows = new ConcurrentHashMap<>();
+
+    private final List<HikariDataSource> dataSources = new CopyOnWriteArrayList<>();
+
+    private ScheduledExecutorService leakDetector;
+
+    public ConnectionPoolMonitor(MeterRegistry meterRegistry,
+                                 @Value("${payment.datasource.leak-threshold:30s}") Duration leakThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.micrometer = new MicrometerMetricsTrackerFactory(meterRegistry);
+        this.leakThresholdNanos = leakThreshold.toNanos();
+    }
+
+    @PostConstruct
+    void start(){
+        if (leakThresholdNanos <= 0) {
+            return;
+        }
+        long period = Math.max(TimeUnit.SECONDS.toNanos(1), leakThresholdNanos / 2);
+        leakDetector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-leak-detector");
+            thread.setDaemon(true);
+            return thread;
+        });
+        leakDetector.scheduleWithFixedDelay(this::detectLeaks, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    void stop(){
+        if (leakDetector != null) {
+            leakDetector.shutdownNow();
+        }
+    }
+
+    /**
+     *
+     * Tracks the pool with this monitor; call before the pool starts.
+     *
+     */
+    public void register(HikariDataSource dataSource){
+        dataSource.setMetricsTrackerFactory(this);
+        dataSources.add(dataSource);
+    }
+
+    public List<HikariDataSource> getDataSources(){
+        return dataSources;
+    }
+
+    /**
+     *
+     * @return acquire statistics of the pool, null until it has started
+     */
+    public AcquireWindow window(String pool){
+        return windows.get(pool);
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        AcquireWindow window = new AcquireWindow(poolStats);
+        windows.put(poolName, window);
+        return new Tracker(poolName, micrometer.create(poolName, poolStats), window);
+    }
+
+    private void detectLeaks(){
+        long now = System.nanoTime();
+        for (Holding holding : holdings) {
+            if (holding.reported || now - holding.acquiredNanos < leakThresholdNanos) {
+                continue;
+            }
+            holding.reported = true;
+            Counter.builder("payment.datasource.connection.leaks")
+                    .tag("pool", holding.pool).tag("method", holding.caller)
+                    .register(meterRegistry).increment();
+            log.warn("Possible connection leak: connection from pool {} taken by {} held for {} ms on thread {}, now at:\n\t{}",
+                    holding.pool, holding.caller, TimeUnit.NANOSECONDS.toMillis(now - holding.acquiredNanos),
+                    holding.thread.getName(), Arrays.stream(holding.thread.getStackTrace())
+                            .map(StackTraceElement::toString).collect(Collectors.joining("\n\t")));
+        }
+    }
+
+    /**
+     *
+     * Connection acquire wait of one pool since the last drain, plus the pool's live counts.
+     *
+     */
+    public static final class AcquireWindow {
+
+        private final PoolStats poolStats;
+
+        private final LongAdder acquireNanos = new LongAdder();
+
+        private final LongAdder acquires = new LongAdder();
+
+        private final LongAdder timeouts = new LongAdder();
+
+        private AcquireWindow(PoolStats poolStats) {
+            this.poolStats = poolStats;
+        }
+
+        public PoolStats getPoolStats(){
+            return poolStats;
+        }
+
+        /**
+         *
+         * @return mean acquire wait in ms since the last call, 0 without acquires
+         */
+        public double drainMeanAcquireMillis(){
+            long count = acquires.sumThenReset();
+            long nanos = acquireNanos.sumThenReset();
+            return count == 0 ? 0 : nanos / (double) count / 1_000_000;
+        }
+
+        public long drainTimeouts(){
+            return timeouts.sumThenReset();
+        }
+    }
+
+    private static final class Holding {
+
+        private final Thread thread;
+
+        private final String pool;
+
+        private final String caller;
+
+        private final long acquiredNanos;
+
+        private volatile boolean reported;
+
+        private Holding(Thread thread, String pool, String caller, long acquiredNanos) {
+            this.thread = thread;
+            this.pool = pool;
+            this.caller = caller;
+            this.acquiredNanos = acquiredNanos;
+        }
+    }
+
+    private final class Tracker implements IMetricsTracker {
+
+        private final String pool;
+
+        private final IMetricsTracker delegate;
+
+        private final AcquireWindow window;
+
+        private final Map<String, Timer> acquireTimers = new ConcurrentHashMap<>();
+
+        private final Map<String, Timer> usageTimers = new ConcurrentHashMap<>();
+
+        private Tracker(String pool, IMetricsTracker delegate, AcquireWindow window) {
+            this.pool = pool;
+            this.delegate = delegate;
+            this.window = window;
+        }
+
+        @Override
+        public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+            delegate.recordConnectionCreatedMillis(connectionCreatedMillis);
+        }
+
+        /**
+         * Also called, followed by recordConnectionTimeout, when the wait timed out
+         */
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            delegate.recordConnectionAcquiredNanos(elapsedAcquiredNanos);
+            window.acquireNanos.add(elapsedAcquiredNanos);
+            window.acquires.increment();
+
+            String caller = ConnectionCallerContext.current();
+            acquireTimers.computeIfAbsent(caller, method -> timer("payment.datasource.connection.acquire", method))
+                    .record(elapsedAcquiredNanos, TimeUnit.NANOSECONDS);
+            Holding holding = new Holding(Thread.currentThread(), pool, caller, System.nanoTime());
+            held.get().push(holding);
+            holdings.add(holding);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            delegate.recordConnectionUsageMillis(elapsedBorrowedMillis);
+            Holding holding = release();
+            String caller = holding == null ? ConnectionCallerContext.current() : holding.caller;
+            usageTimers.computeIfAbsent(caller, method -> timer("payment.datasource.connection.usage", method))
+                    .record(elapsedBorrowedMillis, TimeUnit.MILLISECONDS);
+            if (holding != null && holding.reported) {
+                log.info("Connection from pool {} reported as leaked was returned by {} after {} ms",
+                        pool, holding.caller, elapsedBorrowedMillis);
+            }
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            delegate.recordConnectionTimeout();
+            window.timeouts.increment();
+            release();
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+
+        private Holding release(){
+            // Assumes connections are closed by the thread that took them, as Spring's transaction management does
+            Holding holding = held.get().poll();
+            if (holding != null) {
+                holdings.remove(holding);
+            }
+            return holding;
+        }
+
+        private Timer timer(String name, String method){
+            return Timer.builder(name).tag("pool", pool).tag("method", method).register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.crosspayment.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ *  Read replica routing config (payment.datasource.routing.enabled=true):
+ *
+ *      - primary pool from spring.datasource.*
+ *      - one pool per payment.datasource.replica-urls entry, same credentials
+ *      - every pool gets the spring.datasource.hikari.* settings and its own name (primary, replica-0, ...),
+ *        so hikaricp.* metrics are reported per pool, and is tracked by ConnectionPoolMonitor
+ *
+ *  When disabled, Spring Boot's single auto-configured pool is used as before.
+ *
+ */
+@Configuration
+@ConditionalOnProperty(name = "payment.datasource.routing.enabled", havingValue = "true")
+@Slf4j
+public class DataSourceRoutingConfig {
+
+    @Bean
+    public ReadReplicaRoutingDataSource routingDataSource(DataSourceProperties properties,
+                                                          Environment environment,
+                                                          MeterRegistry meterRegistry,
+                                                          ConnectionPoolMonitor connectionPoolMonitor,
+                                                          @Value("${payment.datasource.replica-urls:}") List<String> replicaUrls) {
+        HikariDataSource primary = pool(properties, properties.determineUrl(), "primary", environment, connectionPoolMonitor);
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (String replicaUrl : replicaUrls) {
+            if (!replicaUrl.isBlank()) {
+                replicas.add(pool(properties, replicaUrl.trim(), "replica-" + replicas.size(), environment, connectionPoolMonitor));
+            }
+        }
+        log.info("Routing read-only transactions to {} replica pool(s)", replicas.size());
+
+        return new ReadReplicaRoutingDataSource(primary, replicas, meterRegistry);
+    }
+
+    /**
+     *
+     * The DataSource everything else (JPA, JdbcTemplate, ...) uses.
+     *
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadReplicaRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    private HikariDataSource pool(DataSourceProperties properties, String url, String name,
+                                  Environment environment, ConnectionPoolMonitor connectionPoolMonitor) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).url(url).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        connectionPoolMonitor.register(pool);
+        return pool;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.crosspayment.config;
+
+import com.example.crosspayment.dto.FXRateResponse;
+import com.example.crosspayment.dto.FXSupportedCurrency;
+import com.example.crosspayment.dto.PaymentRequest;
+import com.example.crosspayment.dto.QuoteRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ *
+ *  JSON binding of the payment hot path.
+ *
+ *  The converter bean is picked up by HttpMessageConverters ahead of the defaults, for Spring MVC (request
+ *  bodies) and for the RestTemplate of the FX client (FXRateResponse, FXSupportedCurrency). It only reads,
+ *  everything written stays with Spring's converter (see PaymentJsonMessageConverter).
+ *
+ *  json.fast-path.enabled=false goes back to the plain Spring Boot setup.
+ *
+ */
+@Configuration
+@ConditionalOnProperty(name = "json.fast-path.enabled", havingValue = "true", matchIfMissing = true)
+public class JsonConfig {
+
+    /**
+     * DTOs read on the payment, quote and FX client paths
+     */
+    static final List<Class<?>> FAST_PATH_TYPES = List.of(PaymentRequest.class, QuoteRequest.class,
+            FXRateResponse.class, FXSupportedCurrency.class);
+
+    @Bean
+    public PaymentJsonMessageConverter paymentJsonMessageConverter(ObjectMapper objectMapper){
+        return new PaymentJsonMessageConverter(objectMapper, FAST_PATH_TYPES);
+    }
+}
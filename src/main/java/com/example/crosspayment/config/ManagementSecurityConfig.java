@@ -0,0 +1,57 @@
+package com.example.crosspayment.config;
+
+import com.example.crosspayment.diagnostics.ProfilingEndpoint;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.config.Customizer;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+
+/**
+ *
+ *  Security of the actuator endpoints and of the operational API calls.
+ *
+ *  Two filter chains, each scoped to its own paths; the rest of /api/** matches no chain and runs without
+ *  security filters, as before:
+ *      - /actuator/**: /actuator/profiling (JFR recordings, thread and pool state) needs HTTP basic and
+ *        payment.diagnostics.role. The other endpoints stay open.
+ *      - DELETE /api/fx/rates/**: evicts a rate on every instance (FxRateBroadcaster), needs HTTP basic and
+ *        payment.diagnostics.role as well.
+ *
+ *  The user comes from spring.security.user.*.
+ *
+ */
+@Configuration
+public class ManagementSecurityConfig {
+
+    @Value("${payment.diagnostics.role:OPS}")
+    private String diagnosticsRole;
+
+    @Bean
+    public SecurityFilterChain managementSecurityFilterChain(HttpSecurity http) throws Exception {
+        return http.securityMatcher(EndpointRequest.toAnyEndpoint())
+                .authorizeHttpRequests(requests -> requests
+                        .requestMatchers(EndpointRequest.to(ProfilingEndpoint.class)).hasRole(diagnosticsRole)
+                        .anyRequest().permitAll())
+                .httpBasic(Customizer.withDefaults())
+                .csrf(AbstractHttpConfigurer::disable)
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .build();
+    }
+
+    @Bean
+    public SecurityFilterChain fxRateEvictionSecurityFilterChain(HttpSecurity http) throws Exception {
+        return http.securityMatcher(AntPathRequestMatcher.antMatcher(HttpMethod.DELETE, "/api/fx/rates/**"))
+                .authorizeHttpRequests(requests -> requests.anyRequest().hasRole(diagnosticsRole))
+                .httpBasic(Customizer.withDefaults())
+                .csrf(AbstractHttpConfigurer::disable)
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .build();
+    }
+}
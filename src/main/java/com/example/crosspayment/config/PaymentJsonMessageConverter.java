@@ -0,0 +1,78 @@
+package com.example.crosspayment.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ *
+ *  JSON reader for the inbound payment and FX DTOs, ahead of Spring's MappingJackson2HttpMessageConverter.
+ *
+ *  MappingJackson2HttpMessageConverter resolves a reader for the target type on every message (type lookup,
+ *  ObjectReader copy). Here one is built per DTO at startup from the application ObjectMapper (same modules
+ *  and date format, see JsonConfig) and the body is bound straight from the request stream.
+ *
+ *  Read only: writing through this converter measured slower and allocated more than Spring's (see
+ *  PaymentJsonBenchmark), so responses and FX requests stay with MappingJackson2HttpMessageConverter, Content-Type
+ *  included.
+ *
+ *  Only UTF-8 bodies (or no charset) are handled here, anything else falls through to the Spring converter.
+ *  Bean Validation (@Valid) still runs after binding.
+ *
+ */
+public class PaymentJsonMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    private final Map<Class<?>, ObjectReader> readers;
+
+    public PaymentJsonMessageConverter(ObjectMapper objectMapper, List<Class<?>> types) {
+        super(StandardCharsets.UTF_8, MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+        this.readers = types.stream().collect(Collectors.toUnmodifiableMap(Function.identity(), objectMapper::readerFor));
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return readers.containsKey(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return super.canRead(mediaType) && isUtf8(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        try {
+            return readers.get(clazz).readValue(inputMessage.getBody());
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotReadableException("JSON parse error: " + e.getOriginalMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object value, HttpOutputMessage outputMessage) {
+        throw new HttpMessageNotWritableException("Read only converter, " + value.getClass().getName()
+                + " is written by MappingJackson2HttpMessageConverter");
+    }
+
+    private static boolean isUtf8(MediaType mediaType){
+        return mediaType == null || mediaType.getCharset() == null || StandardCharsets.UTF_8.equals(mediaType.getCharset());
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.crosspayment.config;
 
+import com.example.crosspayment.tracing.PaymentTracer;
+import com.example.crosspayment.tracing.TraceparentInterceptor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
@@ -22,8 +24,9 @@ public class RESTTemplateConfig {
 
     @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection")
     @Bean
-    public RestTemplate restTemplate(RestTemplateBuilder builder){
+    public RestTemplate restTemplate(RestTemplateBuilder builder, PaymentTracer tracer){
         return builder.setConnectTimeout(Duration.ofMillis(timeout)).
-                setReadTimeout(Duration.ofMillis(timeout)).build();
+                setReadTimeout(Duration.ofMillis(timeout)).
+                additionalInterceptors(new TraceparentInterceptor(tracer)).build();
     }
 }
@@ -0,0 +1,106 @@
+package com.example.crosspayment.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ *  Read replica routing DataSource:
+ *      - read-only transactions (@Transactional(readOnly = true)) take connections from the replica pools, round robin
+ *      - everything else, and reads inside ReadRoutingContext.onPrimary, stays on the primary
+ *      - a replica that cannot hand out a connection falls back to the primary for that call
+ *
+ *  Must sit behind a LazyConnectionDataSourceProxy: the transaction manager asks for a connection
+ *  before it publishes the read-only flag, the proxy delays the real getConnection until the first statement.
+ *
+ */
+@Slf4j
+public class ReadReplicaRoutingDataSource extends AbstractDataSource implements DisposableBean {
+
+    private final DataSource primary;
+
+    private final List<DataSource> replicas;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final Counter primaryReads;
+
+    private final Counter replicaReads;
+
+    private final Counter replicaFallbacks;
+
+    public ReadReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.primaryReads = Counter.builder("payment.datasource.reads").tag("target", "primary").register(meterRegistry);
+        this.replicaReads = Counter.builder("payment.datasource.reads").tag("target", "replica").register(meterRegistry);
+        this.replicaFallbacks = Counter.builder("payment.datasource.replica.fallbacks").register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!isReplicaRead()) {
+            return primary.getConnection();
+        }
+        return replicaConnection(null, null);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (!isReplicaRead()) {
+            return primary.getConnection(username, password);
+        }
+        return replicaConnection(username, password);
+    }
+
+    /**
+     *
+     * The pools are not beans of their own, close them with the routing DataSource.
+     *
+     */
+    @Override
+    public void destroy() throws Exception {
+        for (DataSource replica : replicas) {
+            if (replica instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+        if (primary instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private boolean isReplicaRead(){
+        if (replicas.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return false;
+        }
+        if (ReadRoutingContext.isPrimaryForced()) {
+            primaryReads.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private Connection replicaConnection(String username, String password) throws SQLException {
+        DataSource replica = replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+        try {
+            Connection connection = username == null ? replica.getConnection() : replica.getConnection(username, password);
+            replicaReads.increment();
+            return connection;
+        } catch (SQLException e) {
+            replicaFallbacks.increment();
+            log.warn("Replica connection failed, reading from primary: {}", e.getMessage());
+            return username == null ? primary.getConnection() : primary.getConnection(username, password);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.crosspayment.config;
+
+import java.util.function.Supplier;
+
+/**
+ *
+ *  Read routing context:
+ *      Thread bound override that sends read-only work to the primary pool,
+ *      used when a replica may not have caught up with a recent write yet.
+ *
+ */
+public final class ReadRoutingContext {
+
+    private static final ThreadLocal<Boolean> PRIMARY_FORCED = new ThreadLocal<>();
+
+    private ReadRoutingContext() {
+    }
+
+    public static boolean isPrimaryForced(){
+        return PRIMARY_FORCED.get() != null;
+    }
+
+    /**
+     *
+     * Runs the supplier with every connection taken from the primary pool.
+     *
+     */
+    public static <T> T onPrimary(Supplier<T> work){
+        if (isPrimaryForced()) {
+            return work.get();
+        }
+        PRIMARY_FORCED.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            PRIMARY_FORCED.remove();
+        }
+    }
+}
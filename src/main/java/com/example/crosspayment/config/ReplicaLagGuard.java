@@ -0,0 +1,124 @@
+package com.example.crosspayment.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ *
+ *  Replica lag guard:
+ *      Decides whether a payment id is too fresh to be read from a replica.
+ *
+ *      Payment ids come from a sequence, so "created within the last N ms" is tracked as an id threshold
+ *      instead of a timestamp per payment:
+ *          - committed writes (and primary reads that found a row) raise currentMax
+ *          - every lag-ms the window rotates: settledMax <- previousMax <- currentMax
+ *          - ids above settledMax were seen less than lag-ms (at most 2 x lag-ms) ago and are read from the primary
+ *
+ *      Ids this instance never saw (created elsewhere moments ago) are above the threshold too, so they
+ *      also go to the primary until a primary read confirms them.
+ *
+ *      Writes are recorded after commit (recordWriteAfterCommit), so the window starts when the row can reach
+ *      the replicas, not when a long transaction (FX retries) inserted it.
+ *
+ *      A committed update of an id already at or below previousMax (e.g. a netting batch settled late) can't
+ *      be expressed by the threshold: those ids are kept as such for the same one to two windows. Only such
+ *      late updates cost per payment state.
+ *
+ */
+@Component
+public class ReplicaLagGuard {
+
+    private final long lagMillis;
+
+    private final AtomicLong windowStart = new AtomicLong(System.currentTimeMillis());
+
+    private final AtomicLong currentMax = new AtomicLong();
+
+    private volatile long previousMax;
+
+    private volatile long settledMax;
+
+    private volatile Set<Long> currentUpdates = ConcurrentHashMap.newKeySet();
+
+    private volatile Set<Long> previousUpdates = ConcurrentHashMap.newKeySet();
+
+    public ReplicaLagGuard(@Value("${payment.datasource.replica-lag-ms:1000}") long lagMillis) {
+        this.lagMillis = lagMillis;
+    }
+
+    public void recordWrite(long id){
+        rotateIfDue();
+        if (id <= previousMax) {
+            // The next rotation would settle it right away
+            currentUpdates.add(id);
+        }
+        currentMax.accumulateAndGet(id, Math::max);
+    }
+
+    /**
+     *
+     * Records the write once the surrounding transaction commits, right away if there is none.
+     * A rolled back write is not recorded.
+     *
+     */
+    public void recordWriteAfterCommit(long id){
+        recordWritesAfterCommit(List.of(id));
+    }
+
+    public void recordWritesAfterCommit(Collection<Long> ids){
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ids.forEach(ReplicaLagGuard.this::recordWrite);
+                }
+            });
+        } else {
+            ids.forEach(this::recordWrite);
+        }
+    }
+
+    public boolean mayBeStale(long id){
+        rotateIfDue();
+        return id > settledMax || currentUpdates.contains(id) || previousUpdates.contains(id);
+    }
+
+    /**
+     *
+     * Runs a lookup by id on a replica, or on the primary if the id may not be replicated yet.
+     * A fresh row found on the primary is remembered, so later reads of it move to the replicas.
+     *
+     */
+    public <T> Optional<T> readById(long id, Supplier<Optional<T>> lookup){
+        if (!mayBeStale(id)) {
+            return lookup.get();
+        }
+        Optional<T> result = ReadRoutingContext.onPrimary(lookup);
+        if (result.isPresent()) {
+            // Only raises the threshold: a late update is not renewed by reading it
+            currentMax.accumulateAndGet(id, Math::max);
+        }
+        return result;
+    }
+
+    private void rotateIfDue(){
+        long now = System.currentTimeMillis();
+        long start = windowStart.get();
+        if (now - start >= lagMillis && windowStart.compareAndSet(start, now)) {
+            settledMax = previousMax;
+            previousMax = currentMax.get();
+            previousUpdates = currentUpdates;
+            currentUpdates = ConcurrentHashMap.newKeySet();
+        }
+    }
+}
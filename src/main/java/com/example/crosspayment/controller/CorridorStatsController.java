@@ -0,0 +1,59 @@
+package com.example.crosspayment.controller;
+
+import com.example.crosspayment.dto.CorridorStatsResponse;
+import com.example.crosspayment.service.CorridorStatsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/stats/corridors")
+@RequiredArgsConstructor
+public class CorridorStatsController {
+
+    private final CorridorStatsService corridorStatsService;
+
+    /**
+     *
+     * Per corridor, per minute stats of this instance - GET /api/stats/corridors?minutes=15
+     *
+     * Served from memory, no database access.
+     *
+     * Response:
+     * [
+     *   {
+     *     "minute": "2026-01-20T20:18:00Z",
+     *     "sourceCurrency": "USD",
+     *     "destinationCurrency": "EUR",
+     *     "payments": 420,
+     *     "successRate": 0.9881,
+     *     ...
+     *   }
+     * ]
+     *
+     * @return {@link ResponseEntity}
+     */
+    @GetMapping
+    public ResponseEntity<List<CorridorStatsResponse>> getRecentStats(@RequestParam(defaultValue = "15") int minutes){
+        return ResponseEntity.ok(corridorStatsService.getRecentStats(minutes));
+    }
+
+    /**
+     *
+     * Cluster wide per minute stats from the summary table - GET /api/stats/corridors/summary?hours=24
+     *
+     * @return {@link ResponseEntity}
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<List<CorridorStatsResponse>> getRolledUpStats(@RequestParam(defaultValue = "24") int hours){
+        Instant now = Instant.now();
+        return ResponseEntity.ok(corridorStatsService.getRolledUpStats(now.minus(Duration.ofHours(hours)), now));
+    }
+}
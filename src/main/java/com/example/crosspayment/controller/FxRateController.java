@@ -0,0 +1,35 @@
+package com.example.crosspayment.controller;
+
+import com.example.crosspayment.client.FXServiceClient;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/fx/rates")
+@RequiredArgsConstructor
+@Slf4j
+public class FxRateController {
+
+    private final FXServiceClient fxServiceClient;
+
+    /**
+     *
+     * Evict a cached FX rate on every instance - DELETE /api/fx/rates/{sourceCurrency}/{destinationCurrency}
+     *
+     * The next payment on the pair fetches a fresh quote from the FX service.
+     * Needs HTTP basic and payment.diagnostics.role (see ManagementSecurityConfig).
+     *
+     * @return 204 No Content
+     */
+    @DeleteMapping("/{sourceCurrency}/{destinationCurrency}")
+    public ResponseEntity<Void> evictRate(@PathVariable String sourceCurrency, @PathVariable String destinationCurrency){
+        log.info("Evicting cached FX rate {} -> {}", sourceCurrency, destinationCurrency);
+        fxServiceClient.evictQuote(sourceCurrency, destinationCurrency);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.crosspayment.controller;
+
+import com.example.crosspayment.dto.NetPositionResponse;
+import com.example.crosspayment.service.CorridorNettingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/netting")
+@RequiredArgsConstructor
+public class NettingController {
+
+    private final CorridorNettingService nettingService;
+
+    /**
+     *
+     * GET net positions - GET /api/netting/positions
+     *
+     * Response:
+     * [
+     *   {
+     *     "corridor": "EUR/USD",
+     *     "pendingPayments": 12,
+     *     "forwardAmount": 5400.00,
+     *     "reverseAmount": 3100.00,
+     *     "netAmountInBase": 2551.72,
+     *     ...
+     *   }
+     * ]
+     *
+     * @return {@link ResponseEntity}
+     */
+    @GetMapping("/positions")
+    public ResponseEntity<List<NetPositionResponse>> getNetPositions(){
+        return ResponseEntity.ok(nettingService.getNetPositions());
+    }
+}
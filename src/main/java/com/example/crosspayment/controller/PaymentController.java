@@ -1,9 +1,12 @@
 package com.example.crosspayment.controller;
 
+import com.example.crosspayment.admission.SenderRateLimiter;
 import com.example.crosspayment.model.PaymentStatus;
 import com.example.crosspayment.service.PaymentService;
 import com.example.crosspayment.dto.PaymentRequest;
 import com.example.crosspayment.dto.PaymentResponse;
+import com.example.crosspayment.tracing.PaymentTracer;
+import com.example.crosspayment.tracing.Span;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +22,10 @@ public class PaymentController {
 
     private final PaymentService paymentService;
 
+    private final SenderRateLimiter senderRateLimiter;
+
+    private final PaymentTracer tracer;
+
 
     /**
      * create payment
@@ -42,6 +49,9 @@ public class PaymentController {
      *    ...
      * }
      *
+     * Response (sender over its rate): 429 with Retry-After
+     * Response (service at its concurrency limit, see PaymentAdmissionFilter): 503 with Retry-After
+     *
      * @param request request
      * @return {@link ResponseEntity}
      * @see ResponseEntity
@@ -50,11 +60,27 @@ public class PaymentController {
     @PostMapping
     public ResponseEntity<PaymentResponse> createPayment(@Valid @RequestBody PaymentRequest request){
 
-        PaymentResponse response = paymentService.processPayment(request);
+        senderRateLimiter.acquire(request.getSender());
 
-        HttpStatus status = PaymentStatus.SUCCESS.equals(response.getStatus()) ? HttpStatus.OK : HttpStatus.CREATED;
+        /**
+         *
+         * Root of the payment trace (see PaymentTracer); payment.transaction includes the commit
+         *
+         */
+        try (Span trace = tracer.startTrace("POST /api/payments")) {
+            PaymentResponse response;
+            try (Span transaction = tracer.startSpan("payment.transaction")) {
+                response = paymentService.processPayment(request);
+            } catch (RuntimeException e) {
+                trace.error(e);
+                throw e;
+            }
+            trace.tag("paymentId", response.getId()).tag("status", response.getStatus());
 
-        return ResponseEntity.status(status).body(response);
+            HttpStatus status = PaymentStatus.SUCCESS.equals(response.getStatus()) ? HttpStatus.OK : HttpStatus.CREATED;
+
+            return ResponseEntity.status(status).body(response);
+        }
     }
 
 
@@ -0,0 +1,48 @@
+package com.example.crosspayment.controller;
+
+import com.example.crosspayment.dto.QuoteRequest;
+import com.example.crosspayment.dto.QuoteResponse;
+import com.example.crosspayment.service.QuoteService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/quotes")
+@RequiredArgsConstructor
+@Slf4j
+public class QuoteController {
+
+    private final QuoteService quoteService;
+
+    /**
+     * lock a quote
+     * POST /api/quotes
+     *
+     * Request Body:
+     * {
+     *     "sourceCurrency": "USD",
+     *     "destinationCurrency": "EUR"
+     * }
+     *
+     * Response (201):
+     * {
+     *    "quoteId": "3f9a6c1e-8b2d-4d7a-9c5e-2a1f0b7d4e63",
+     *    "exchangeRate": "0.875",
+     *    "expiresAt": "2026-01-20T20:18:42Z",
+     *    ...
+     * }
+     *
+     * Pass quoteId in POST /api/payments to execute at this rate without another FX call.
+     *
+     * @param request currency pair
+     * @return {@link ResponseEntity}
+     */
+    @PostMapping
+    public ResponseEntity<QuoteResponse> createQuote(@Valid @RequestBody QuoteRequest request){
+        return ResponseEntity.status(HttpStatus.CREATED).body(quoteService.createQuote(request));
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.crosspayment.controller;
+
+import com.example.crosspayment.dto.TraceResponse;
+import com.example.crosspayment.tracing.PaymentTracer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/traces")
+@RequiredArgsConstructor
+public class TraceController {
+
+    private final PaymentTracer paymentTracer;
+
+    /**
+     *
+     * Last sampled (slow or failed) payment traces of this instance, newest first - GET /api/traces?limit=20
+     *
+     * Served from memory; the same traces are appended to payment.tracing.file.
+     *
+     * @return {@link ResponseEntity}
+     */
+    @GetMapping
+    public ResponseEntity<List<TraceResponse>> getRecentTraces(@RequestParam(defaultValue = "20") int limit){
+        return ResponseEntity.ok(paymentTracer.getRecentTraces(limit));
+    }
+}
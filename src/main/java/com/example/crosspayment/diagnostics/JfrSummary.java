@@ -0,0 +1,109 @@
+package com.example.crosspayment.diagnostics;
+
+import com.example.crosspayment.dto.ProfilingReport.FrameCount;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ *  Top CPU and allocation frames of a JFR recording, attributed to the first frame in com.example.crosspayment.
+ *
+ *  CPU:        jdk.ExecutionSample, one count per sample
+ *  allocation: jdk.ObjectAllocationSample, weighted by the bytes each sample stands for
+ *
+ *  Samples without a frame of ours (GC, Tomcat idle loops, Hikari housekeeping) count towards the totals only.
+ *
+ */
+final class JfrSummary {
+
+    static final String OWN_PACKAGE = "com.example.crosspayment.";
+
+    final long cpuSamples;
+
+    final List<FrameCount> cpu;
+
+    final long allocatedBytes;
+
+    final List<FrameCount> allocation;
+
+    private JfrSummary(long cpuSamples, List<FrameCount> cpu, long allocatedBytes, List<FrameCount> allocation) {
+        this.cpuSamples = cpuSamples;
+        this.cpu = cpu;
+        this.allocatedBytes = allocatedBytes;
+        this.allocation = allocation;
+    }
+
+    /**
+     *
+     * Streams the file once, only the per frame totals are kept in memory.
+     *
+     */
+    static JfrSummary read(Path jfr, int topFrames) throws IOException {
+        long cpuSamples = 0;
+        long allocatedBytes = 0;
+        Map<String, Long> cpu = new HashMap<>();
+        Map<String, Long> allocation = new HashMap<>();
+        try (RecordingFile recording = new RecordingFile(jfr)) {
+            while (recording.hasMoreEvents()) {
+                RecordedEvent event = recording.readEvent();
+                switch (event.getEventType().getName()) {
+                    case "jdk.ExecutionSample" -> {
+                        cpuSamples++;
+                        String frame = ownFrame(event.getStackTrace());
+                        if (frame != null) {
+                            cpu.merge(frame, 1L, Long::sum);
+                        }
+                    }
+                    case "jdk.ObjectAllocationSample" -> {
+                        long weight = event.getLong("weight");
+                        allocatedBytes += weight;
+                        String frame = ownFrame(event.getStackTrace());
+                        if (frame != null) {
+                            allocation.merge(frame, weight, Long::sum);
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            }
+        }
+        return new JfrSummary(cpuSamples, top(cpu, cpuSamples, topFrames), allocatedBytes, top(allocation, allocatedBytes, topFrames));
+    }
+
+    /**
+     *
+     * @return "client.FXServiceClient.requestQuote:162" for the innermost frame of ours, null if there is none
+     */
+    static String ownFrame(RecordedStackTrace stackTrace){
+        if (stackTrace == null) {
+            return null;
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (type.startsWith(OWN_PACKAGE)) {
+                return type.substring(OWN_PACKAGE.length()) + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+            }
+        }
+        return null;
+    }
+
+    static List<FrameCount> top(Map<String, Long> values, long total, int limit){
+        return values.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(limit)
+                .map(entry -> FrameCount.builder()
+                        .frame(entry.getKey())
+                        .value(entry.getValue())
+                        .percent(total == 0 ? 0 : Math.round(entry.getValue() * 1000.0 / total) / 10.0)
+                        .build())
+                .toList();
+    }
+}
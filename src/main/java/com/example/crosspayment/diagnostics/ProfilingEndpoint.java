@@ -0,0 +1,199 @@
+package com.example.crosspayment.diagnostics;
+
+import com.example.crosspayment.dto.ProfilingReport;
+import com.example.crosspayment.dto.ProfilingReport.RecordingInfo;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ *
+ *  On-demand JFR profiling of a running instance, no restart or JVM flags needed - /actuator/profiling
+ *
+ *      POST   /actuator/profiling                  start a recording, body {"maxDurationSeconds": 120} optional
+ *      DELETE /actuator/profiling                  stop it, returns the report
+ *      GET    /actuator/profiling                  report: last recording's top CPU / allocation frames in our code,
+ *                                                  plus live Hikari, FX corridor, thread and heap state
+ *      GET    /actuator/profiling/{file}           the .jfr file, for JDK Mission Control
+ *
+ *  Recordings use the JDK "default" settings (payment.diagnostics.jfr.settings), the preset meant for continuous
+ *  production use (~1% overhead: 20 ms execution sampling, throttled allocation sampling), and stop by themselves
+ *  after payment.diagnostics.jfr.max-duration. One recording at a time; starting a new one deletes the previous file.
+ *
+ *  Only reachable with HTTP basic and the payment.diagnostics.role role, see ManagementSecurityConfig.
+ *
+ */
+@Component
+@WebEndpoint(id = "profiling")
+@Slf4j
+public class ProfilingEndpoint {
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final RuntimeDiagnostics runtimeDiagnostics;
+
+    private final String settings;
+
+    private final Duration maxDuration;
+
+    private final Path directory;
+
+    private final int topFrames;
+
+    private Recording recording;
+
+    private Path file;
+
+    private Instant startedAt;
+
+    /**
+     * summary of `file`, read once after the recording stopped
+     */
+    private JfrSummary summary;
+
+    public ProfilingEndpoint(RuntimeDiagnostics runtimeDiagnostics,
+                             @Value("${payment.diagnostics.jfr.settings:default}") String settings,
+                             @Value("${payment.diagnostics.jfr.max-duration:5m}") Duration maxDuration,
+                             @Value("${payment.diagnostics.jfr.directory:diagnostics}") String directory,
+                             @Value("${payment.diagnostics.top-frames:20}") int topFrames) {
+        this.runtimeDiagnostics = runtimeDiagnostics;
+        this.settings = settings;
+        this.maxDuration = maxDuration;
+        this.directory = Paths.get(directory);
+        this.topFrames = topFrames;
+    }
+
+    @ReadOperation
+    public synchronized ProfilingReport report(){
+        ProfilingReport.ProfilingReportBuilder report = ProfilingReport.builder()
+                .recording(recordingInfo())
+                .hikariPools(runtimeDiagnostics.hikariPools())
+                .fxCorridors(runtimeDiagnostics.fxCorridors())
+                .threads(runtimeDiagnostics.threads(topFrames))
+                .heap(runtimeDiagnostics.heap());
+        JfrSummary jfr = summary();
+        if (jfr != null) {
+            report.cpuSamples(jfr.cpuSamples).cpu(jfr.cpu).allocatedBytes(jfr.allocatedBytes).allocation(jfr.allocation);
+        }
+        return report.build();
+    }
+
+    /**
+     *
+     * @return 409 while a recording is running
+     */
+    @WriteOperation
+    public synchronized WebEndpointResponse<ProfilingReport> start(@Nullable Long maxDurationSeconds) throws IOException, ParseException {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            return new WebEndpointResponse<>(report(), HttpStatus.CONFLICT.value());
+        }
+        close();
+        Duration duration = maxDurationSeconds == null || maxDurationSeconds <= 0
+                ? maxDuration : Duration.ofSeconds(Math.min(maxDurationSeconds, maxDuration.toSeconds()));
+
+        Files.createDirectories(directory);
+        startedAt = Instant.now();
+        file = directory.resolve("profile-" + FILE_TIMESTAMP.format(startedAt) + ".jfr");
+        recording = new Recording(Configuration.getConfiguration(settings));
+        recording.setName("crosspayment-profiling");
+        recording.setToDisk(true);
+        recording.setDuration(duration);
+        // Written on stop, also when max-duration stops it
+        recording.setDestination(file);
+        recording.start();
+        log.info("JFR recording started: settings {}, max {}s, destination {}", settings, duration.toSeconds(), file);
+        return new WebEndpointResponse<>(report(), WebEndpointResponse.STATUS_OK);
+    }
+
+    @DeleteOperation
+    public synchronized WebEndpointResponse<ProfilingReport> stop(){
+        if (recording == null || recording.getState() != RecordingState.RUNNING) {
+            return new WebEndpointResponse<>(report(), WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        recording.stop();
+        log.info("JFR recording stopped: {}", file);
+        return new WebEndpointResponse<>(report(), WebEndpointResponse.STATUS_OK);
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public synchronized WebEndpointResponse<Resource> download(@Selector String name){
+        // Only the current file, the name is never used to build a path
+        if (file == null || !file.getFileName().toString().equals(name) || !isWritten()) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        return new WebEndpointResponse<>(new FileSystemResource(file), WebEndpointResponse.STATUS_OK);
+    }
+
+    @PreDestroy
+    synchronized void shutdown(){
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+    }
+
+    private boolean isWritten(){
+        return recording.getState() == RecordingState.STOPPED && Files.exists(file);
+    }
+
+    private RecordingInfo recordingInfo(){
+        if (recording == null) {
+            return null;
+        }
+        RecordingState state = recording.getState();
+        Instant stoppedAt = recording.getStopTime();
+        return RecordingInfo.builder()
+                .file(file.getFileName().toString())
+                .state(state.name())
+                .settings(settings)
+                .startedAt(startedAt)
+                .stoppedAt(state == RecordingState.RUNNING ? null : stoppedAt)
+                .maxDurationSeconds(recording.getDuration() == null ? 0 : recording.getDuration().toSeconds())
+                .sizeBytes(isWritten() ? file.toFile().length() : recording.getSize())
+                .build();
+    }
+
+    private JfrSummary summary(){
+        if (summary == null && recording != null && isWritten()) {
+            try {
+                summary = JfrSummary.read(file, topFrames);
+            } catch (IOException e) {
+                log.warn("Could not read JFR recording {}: {}", file, e.getMessage());
+            }
+        }
+        return summary;
+    }
+
+    private void close() throws IOException {
+        if (recording != null) {
+            recording.close();
+            Files.deleteIfExists(file);
+        }
+        recording = null;
+        file = null;
+        summary = null;
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.crosspayment.diagnostics;
+
+import com.example.crosspayment.dto.ProfilingReport.CorridorState;
+import com.example.crosspayment.dto.ProfilingReport.FrameCount;
+import com.example.crosspayment.dto.ProfilingReport.HeapState;
+import com.example.crosspayment.dto.ProfilingReport.PoolState;
+import com.example.crosspayment.dto.ProfilingReport.ThreadState;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadInfo;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ *
+ *  Live state of the resources a payment waits on, for /actuator/profiling:
+ *      - Hikari pools, read from the hikaricp.connections.* gauges (one per pool, also with replica routing)
+ *      - FX corridors: the per corridor circuit breaker and bulkhead (FxCorridorResilience); FX calls run on
+ *        the request threads, so a full bulkhead or a pile of request threads inside FXServiceClient is the
+ *        FX "thread pool" being exhausted
+ *      - threads by state, Tomcat request threads, and where threads in our code are right now
+ *      - heap and GC totals
+ *
+ */
+@Component
+@RequiredArgsConstructor
+public class RuntimeDiagnostics {
+
+    private static final String REQUEST_THREAD_PREFIX = "http-nio-";
+
+    private static final String REQUEST_FRAME = "org.apache.catalina.core.ApplicationFilterChain";
+
+    private static final int STACK_DEPTH = 128;
+
+    private final MeterRegistry meterRegistry;
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+
+    private final BulkheadRegistry bulkheadRegistry;
+
+    public List<PoolState> hikariPools(){
+        List<PoolState> pools = new ArrayList<>();
+        for (Gauge active : meterRegistry.find("hikaricp.connections.active").gauges()) {
+            String pool = active.getId().getTag("pool");
+            pools.add(PoolState.builder()
+                    .pool(pool)
+                    .active((int) active.value())
+                    .idle((int) gauge("hikaricp.connections.idle", pool))
+                    .pending((int) gauge("hikaricp.connections.pending", pool))
+                    .max((int) gauge("hikaricp.connections.max", pool))
+                    .build());
+        }
+        pools.sort(Comparator.comparing(PoolState::getPool));
+        return pools;
+    }
+
+    public List<CorridorState> fxCorridors(){
+        List<CorridorState> corridors = new ArrayList<>();
+        for (Bulkhead bulkhead : bulkheadRegistry.getAllBulkheads()) {
+            CircuitBreaker circuitBreaker = circuitBreakerRegistry.find(bulkhead.getName()).orElse(null);
+            corridors.add(CorridorState.builder()
+                    .name(bulkhead.getName())
+                    .circuitBreaker(circuitBreaker == null ? null : circuitBreaker.getState().name())
+                    .failureRate(circuitBreaker == null ? -1 : circuitBreaker.getMetrics().getFailureRate())
+                    .bulkheadAvailable(bulkhead.getMetrics().getAvailableConcurrentCalls())
+                    .bulkheadMax(bulkhead.getMetrics().getMaxAllowedConcurrentCalls())
+                    .build());
+        }
+        corridors.sort(Comparator.comparing(CorridorState::getName));
+        return corridors;
+    }
+
+    public ThreadState threads(int topFrames){
+        ThreadInfo[] threads = ManagementFactory.getThreadMXBean().dumpAllThreads(false, false, STACK_DEPTH);
+        Map<String, Integer> byState = new TreeMap<>();
+        Map<String, Long> inOwnCode = new HashMap<>();
+        int requestThreads = 0;
+        int requestThreadsBusy = 0;
+        long threadsInOwnCode = 0;
+        for (ThreadInfo thread : threads) {
+            byState.merge(thread.getThreadState().name(), 1, Integer::sum);
+            if (thread.getThreadName().startsWith(REQUEST_THREAD_PREFIX)) {
+                requestThreads++;
+                if (inRequest(thread.getStackTrace())) {
+                    requestThreadsBusy++;
+                }
+            }
+            String frame = ownFrame(thread.getStackTrace());
+            if (frame != null) {
+                threadsInOwnCode++;
+                inOwnCode.merge(thread.getThreadState().name() + " " + frame, 1L, Long::sum);
+            }
+        }
+        return ThreadState.builder()
+                .total(threads.length)
+                .byState(byState)
+                .requestThreads(requestThreads)
+                .requestThreadsBusy(requestThreadsBusy)
+                .inOwnCode(JfrSummary.top(inOwnCode, threadsInOwnCode, topFrames))
+                .build();
+    }
+
+    public HeapState heap(){
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        MemoryUsage heap = memory.getHeapMemoryUsage();
+        long gcCount = 0;
+        long gcTime = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, collector.getCollectionCount());
+            gcTime += Math.max(0, collector.getCollectionTime());
+        }
+        return HeapState.builder()
+                .usedBytes(heap.getUsed())
+                .committedBytes(heap.getCommitted())
+                .maxBytes(heap.getMax())
+                .nonHeapUsedBytes(memory.getNonHeapMemoryUsage().getUsed())
+                .gcCount(gcCount)
+                .gcTimeMillis(gcTime)
+                .build();
+    }
+
+    private double gauge(String name, String pool){
+        Gauge gauge = meterRegistry.find(name).tag("pool", pool).gauge();
+        return gauge == null ? 0 : gauge.value();
+    }
+
+    private static boolean inRequest(StackTraceElement[] stack){
+        for (StackTraceElement frame : stack) {
+            if (REQUEST_FRAME.equals(frame.getClassName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String ownFrame(StackTraceElement[] stack){
+        for (StackTraceElement frame : stack) {
+            if (frame.getClassName().startsWith(JfrSummary.OWN_PACKAGE)) {
+                return frame.getClassName().substring(JfrSummary.OWN_PACKAGE.length()) + "." + frame.getMethodName()
+                        + ":" + frame.getLineNumber();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.crosspayment.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ *
+ *  Volume and outcome of one currency pair (directional, USD -> EUR) during one minute.
+ *
+ *  Example:
+ *  {
+ *      "minute": "2026-01-20T20:18:00Z",
+ *      "sourceCurrency": "USD",
+ *      "destinationCurrency": "EUR",
+ *      "payments": 420,               (payments that reached SUCCESS or FAILED in that minute)
+ *      "succeeded": 415,
+ *      "failed": 5,
+ *      "successRate": 0.9881,
+ *      "volume": 183250.00,           (sum of successful amounts, source currency)
+ *      "averageRate": 0.9164          (null if nothing succeeded)
+ *  }
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CorridorStatsResponse {
+
+    private Instant minute;
+
+    private String sourceCurrency;
+
+    private String destinationCurrency;
+
+    private long payments;
+
+    private long succeeded;
+
+    private long failed;
+
+    private double successRate;
+
+    private BigDecimal volume;
+
+    private BigDecimal averageRate;
+}
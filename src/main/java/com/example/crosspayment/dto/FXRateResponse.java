@@ -1,13 +1,18 @@
 package com.example.crosspayment.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.time.Instant;
 
 /**
  *
@@ -26,11 +31,11 @@ import java.time.LocalDateTime;
  * }
  */
 @Data
-@Builder
 @NoArgsConstructor
-@AllArgsConstructor
 public class FXRateResponse {
 
+    private static final long UNPARSED = Long.MIN_VALUE;
+
     /**
      * exchange rate
      * The FX rate from source to target currency
@@ -45,4 +50,48 @@ public class FXRateResponse {
     @JsonProperty("expiry_time")
     private String expiryTime;
 
+    /**
+     * expiry_time in epoch millis, parsed on first use (see getExpiryEpochMillis)
+     */
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile long expiryEpochMillis = UNPARSED;
+
+    /**
+     * true for a last known good rate served while the corridor is unavailable (FxLastGoodRates), never cached
+     * or locked; such a quote has no expiry_time
+     */
+    @JsonIgnore
+    private boolean degraded;
+
+    @Builder
+    public FXRateResponse(BigDecimal exchangeRate, String expiryTime) {
+        this.exchangeRate = exchangeRate;
+        this.expiryTime = expiryTime;
+    }
+
+    public void setExpiryTime(String expiryTime){
+        this.expiryTime = expiryTime;
+        this.expiryEpochMillis = UNPARSED;
+    }
+
+    /**
+     *
+     * Expiry of the quote, parsed once per quote: a cached quote is checked on every payment
+     * and Instant.parse allocates a parser context per call.
+     *
+     * @return expiry_time in epoch millis, Long.MAX_VALUE if the quote has none
+     */
+    @JsonIgnore
+    public long getExpiryEpochMillis(){
+        long millis = expiryEpochMillis;
+        if (millis == UNPARSED) {
+            millis = expiryTime == null ? Long.MAX_VALUE : Instant.parse(expiryTime).toEpochMilli();
+            expiryEpochMillis = millis;
+        }
+        return millis;
+    }
 }
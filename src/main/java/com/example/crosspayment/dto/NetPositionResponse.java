@@ -0,0 +1,56 @@
+package com.example.crosspayment.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ *
+ *  Net position of a corridor as seen by the netting engine.
+ *
+ *  A corridor is an unordered currency pair, e.g. EUR/USD covers both EUR -> USD and USD -> EUR payments.
+ *  The base currency is the alphabetically first one, lastRate is quoted base -> quote.
+ *
+ *  Example:
+ *  {
+ *      "corridor": "EUR/USD",
+ *      "baseCurrency": "EUR",
+ *      "quoteCurrency": "USD",
+ *      "pendingPayments": 12,
+ *      "forwardAmount": 5400.00,      (EUR waiting to go EUR -> USD)
+ *      "reverseAmount": 3100.00,      (USD waiting to go USD -> EUR)
+ *      "netAmountInBase": 2551.72,    (forward - reverse / lastRate, null until the pair was quoted once)
+ *      "lastRate": 1.0850,
+ *      "settledPayments": 1840,
+ *      "settledBatches": 97
+ *  }
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NetPositionResponse {
+
+    private String corridor;
+
+    private String baseCurrency;
+
+    private String quoteCurrency;
+
+    private int pendingPayments;
+
+    private BigDecimal forwardAmount;
+
+    private BigDecimal reverseAmount;
+
+    private BigDecimal netAmountInBase;
+
+    private BigDecimal lastRate;
+
+    private long settledPayments;
+
+    private long settledBatches;
+}
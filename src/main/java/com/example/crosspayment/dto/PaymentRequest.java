@@ -22,7 +22,8 @@ import java.math.BigDecimal;
  *     "receiver": "John Wick",
  *     "amount": "400.00",
  *     "source currency": "USD",
- *     "destination currency": "EUR"
+ *     "destination currency": "EUR",
+ *     "quoteId": "3f9a6c1e-8b2d-4d7a-9c5e-2a1f0b7d4e63"      (optional)
  * }
  *
  *
@@ -83,4 +84,11 @@ public class PaymentRequest {
     @NotBlank(message = "Destination currency cannot be blank")
     @Pattern(regexp = "^[A-Z]{3}$", message = "Destination currency must be a valid 3-letter ISO currency code")
     private String destinationCurrency;
+
+    /**
+     * quote id
+     * Optional reference to a locked quote from POST /api/quotes
+     * When set, the payment is executed at the locked rate and the FX service is not called
+     */
+    private String quoteId;
 }
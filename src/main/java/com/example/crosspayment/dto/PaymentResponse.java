@@ -150,4 +150,12 @@ public class PaymentResponse {
      *
      */
     private LocalDateTime updatedAt;
+
+    /**
+     * fx degraded - true when the payment was settled with the last known good FX rate
+     * because the FX service was unavailable (degraded mode, fx.degraded.enabled)
+     * The rate may differ slightly from the live rate at that time.
+     *
+     */
+    private boolean fxDegraded;
 }
@@ -0,0 +1,184 @@
+package com.example.crosspayment.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ *  On-demand profiling report of /actuator/profiling: the last JFR recording and a live snapshot of the
+ *  connection pools, FX corridors, threads and heap.
+ *
+ *  Example:
+ *  {
+ *      "recording": { "file": "profile-20260120T201803Z.jfr", "state": "STOPPED", "startedAt": "...", "sizeBytes": 2310411, ... },
+ *      "cpuSamples": 18231,
+ *      "cpu": [ { "frame": "client.FXServiceClient.requestQuote:162", "value": 4120, "percent": 22.6 }, ... ],
+ *      "allocatedBytes": 9812331520,
+ *      "allocation": [ { "frame": "service.PaymentService.mapToResponse:241", "value": 811230144, "percent": 8.3 }, ... ],
+ *      "hikariPools": [ { "pool": "HikariPool-1", "active": 9, "idle": 1, "pending": 14, "max": 10 } ],
+ *      "fxCorridors": [ { "name": "fxService-USD-INR", "circuitBreaker": "OPEN", "failureRate": 62.5, "bulkheadAvailable": 0, "bulkheadMax": 20 } ],
+ *      "threads": { "total": 231, "byState": { "RUNNABLE": 31, "WAITING": 170, ... }, "requestThreads": 200, "requestThreadsBusy": 187, "inOwnCode": [...] },
+ *      "heap": { "usedBytes": ..., "committedBytes": ..., "maxBytes": ..., "gcCount": 812, "gcTimeMillis": 3410 }
+ *  }
+ *
+ *  Frames are the first frame of each sample inside com.example.crosspayment (package prefix dropped), so time
+ *  spent in libraries called from our code is attributed to the calling line.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProfilingReport {
+
+    /**
+     * null before the first recording
+     */
+    private RecordingInfo recording;
+
+    /**
+     * jdk.ExecutionSample events in the recording
+     */
+    private long cpuSamples;
+
+    private List<FrameCount> cpu;
+
+    /**
+     * sum of jdk.ObjectAllocationSample weights in the recording
+     */
+    private long allocatedBytes;
+
+    private List<FrameCount> allocation;
+
+    private List<PoolState> hikariPools;
+
+    private List<CorridorState> fxCorridors;
+
+    private ThreadState threads;
+
+    private HeapState heap;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RecordingInfo {
+
+        private String file;
+
+        /**
+         * NEW, RUNNING, STOPPED or CLOSED (jdk.jfr.RecordingState)
+         */
+        private String state;
+
+        private String settings;
+
+        private Instant startedAt;
+
+        private Instant stoppedAt;
+
+        private long maxDurationSeconds;
+
+        private long sizeBytes;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FrameCount {
+
+        private String frame;
+
+        /**
+         * samples for CPU and threads, bytes for allocation
+         */
+        private long value;
+
+        private double percent;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PoolState {
+
+        private String pool;
+
+        private int active;
+
+        private int idle;
+
+        /**
+         * threads waiting for a connection
+         */
+        private int pending;
+
+        private int max;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CorridorState {
+
+        private String name;
+
+        private String circuitBreaker;
+
+        private float failureRate;
+
+        private int bulkheadAvailable;
+
+        private int bulkheadMax;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ThreadState {
+
+        private int total;
+
+        private Map<String, Integer> byState;
+
+        /**
+         * Tomcat request threads (http-nio-*), and how many are inside a request right now
+         */
+        private int requestThreads;
+
+        private int requestThreadsBusy;
+
+        /**
+         * threads currently in com.example.crosspayment code, by state and frame ("WAITING client.FXServiceClient...")
+         */
+        private List<FrameCount> inOwnCode;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class HeapState {
+
+        private long usedBytes;
+
+        private long committedBytes;
+
+        private long maxBytes;
+
+        private long nonHeapUsedBytes;
+
+        private long gcCount;
+
+        private long gcTimeMillis;
+    }
+}
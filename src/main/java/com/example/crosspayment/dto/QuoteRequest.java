@@ -0,0 +1,42 @@
+package com.example.crosspayment.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * quote request dto:
+ * The JSON our API receives when a client asks to lock an FX rate before paying.
+ *
+ * example request:
+ * POST api/quotes
+ * {
+ *     "sourceCurrency": "USD",
+ *     "destinationCurrency": "EUR"
+ * }
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuoteRequest {
+
+    /**
+     * source currency
+     * Regex to validate 3-letter ISO currency codes (e.g., USD, EUR, GBP)
+     */
+    @NotBlank(message = "Source currency cannot be blank")
+    @Pattern(regexp = "^[A-Z]{3}$", message = "Source currency must be a valid 3-letter ISO currency code")
+    private String sourceCurrency;
+
+    /**
+     * destination currency
+     * Regex to validate 3-letter ISO currency codes (e.g., USD, EUR, GBP)
+     */
+    @NotBlank(message = "Destination currency cannot be blank")
+    @Pattern(regexp = "^[A-Z]{3}$", message = "Destination currency must be a valid 3-letter ISO currency code")
+    private String destinationCurrency;
+}
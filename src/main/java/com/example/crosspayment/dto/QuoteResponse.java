@@ -0,0 +1,51 @@
+package com.example.crosspayment.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * quote response dto:
+ * A locked FX rate the client can pay against until it expires, by sending quoteId in the PaymentRequest.
+ *
+ * example response:
+ * {
+ *     "quoteId": "3f9a6c1e-8b2d-4d7a-9c5e-2a1f0b7d4e63",
+ *     "sourceCurrency": "USD",
+ *     "destinationCurrency": "EUR",
+ *     "exchangeRate": 0.916487620119132,
+ *     "expiresAt": "2026-01-20T20:18:42Z"
+ * }
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuoteResponse {
+
+    /**
+     * quote id
+     * Reference to pass as quoteId when creating the payment
+     */
+    private String quoteId;
+
+    private String sourceCurrency;
+
+    private String destinationCurrency;
+
+    /**
+     * exchange rate
+     * The rate the payment will be executed at
+     */
+    private BigDecimal exchangeRate;
+
+    /**
+     * expires at
+     * After this instant the quote can no longer be used, the client has to request a new one
+     */
+    private Instant expiresAt;
+}
@@ -0,0 +1,72 @@
+package com.example.crosspayment.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ *  One sampled (slow or failed) payment trace, as exported to the trace file and GET /api/traces.
+ *
+ *  Example:
+ *  {
+ *      "traceId": "4bf92f3577b34da6a3ce929d0e0e4736",
+ *      "name": "POST /api/payments",
+ *      "startedAt": "2026-01-20T20:18:03.120Z",
+ *      "durationMicros": 812340,
+ *      "error": false,
+ *      "spans": [
+ *          { "spanId": "00f067aa0ba902b7", "parentSpanId": null, "name": "POST /api/payments", "startMicros": 0, "durationMicros": 812340, ... },
+ *          { "spanId": "a3ce929d0e0e4736", "parentSpanId": "...", "name": "fx.attempt", "startMicros": 2210,
+ *            "durationMicros": 501200, "attributes": { "attempt": 1, "corridor": "USD-EUR" }, "error": "FxServiceException: ..." },
+ *          ...
+ *      ]
+ *  }
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TraceResponse {
+
+    private String traceId;
+
+    private String name;
+
+    private Instant startedAt;
+
+    private long durationMicros;
+
+    private boolean error;
+
+    private List<SpanData> spans;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SpanData {
+
+        private String spanId;
+
+        private String parentSpanId;
+
+        private String name;
+
+        /**
+         * offset from the start of the trace
+         */
+        private long startMicros;
+
+        private long durationMicros;
+
+        private Map<String, Object> attributes;
+
+        private String error;
+    }
+}
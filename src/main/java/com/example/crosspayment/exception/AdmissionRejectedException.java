@@ -0,0 +1,34 @@
+package com.example.crosspayment.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ *
+ *  Admission rejected exception:
+ *      - Thrown when a payment is refused before any work is done because the service is protecting itself
+ *      - 429 TOO_MANY_REQUESTS when a single sender exceeds its rate
+ *      - 503 SERVICE_UNAVAILABLE when the service as a whole is over its concurrency limit
+ *      - Carries the Retry-After hint (seconds) returned to the client
+ *
+ */
+@Getter
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final HttpStatus status;
+
+    private final long retryAfterSeconds;
+
+    /**
+     * Constructor for AdmissionRejectedException.
+     *
+     * @param message The exception message.
+     * @param status 429 or 503
+     * @param retryAfterSeconds Seconds the client should wait before retrying
+     */
+    public AdmissionRejectedException(String message, HttpStatus status, long retryAfterSeconds) {
+        super(message);
+        this.status = status;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.crosspayment.exception;
+
+import com.example.crosspayment.dto.ErrorResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.time.LocalDateTime;
+
+/**
+ *
+ *  Global exception handler:
+ *      Maps exceptions thrown by the controllers to {@link ErrorResponse} bodies with the right HTTP status.
+ *
+ */
+@RestControllerAdvice
+@Slf4j
+public class GlobalExceptionHandler {
+
+    /**
+     *
+     * Load shedding: 429/503 with a Retry-After header so well behaved clients back off instead of hammering us.
+     *
+     */
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<ErrorResponse> handleAdmissionRejected(AdmissionRejectedException e){
+        log.debug("Payment rejected at admission: {}", e.getMessage());
+
+        ErrorResponse body = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(e.getStatus().value())
+                .message(e.getMessage())
+                .build();
+
+        return ResponseEntity.status(e.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(body);
+    }
+
+    /**
+     *
+     * Locked quote missing, expired or for another pair: 422 so the client re-quotes instead of retrying as is.
+     *
+     */
+    @ExceptionHandler(InvalidQuoteException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidQuote(InvalidQuoteException e){
+        ErrorResponse body = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.UNPROCESSABLE_ENTITY.value())
+                .message(e.getMessage())
+                .build();
+
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(body);
+    }
+
+    /**
+     *
+     * Unknown payment id: 404.
+     *
+     */
+    @ExceptionHandler(PaymentNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handlePaymentNotFound(PaymentNotFoundException e){
+        ErrorResponse body = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.NOT_FOUND.value())
+                .message(e.getMessage())
+                .build();
+
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(body);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.crosspayment.exception;
+
+/**
+ *
+ *  Invalid quote exception:
+ *      - Thrown when a payment references a quote that does not exist, has expired,
+ *        or was issued for a different currency pair.
+ *      - The client should request a new quote (POST /api/quotes) and retry the payment.
+ *
+ */
+public class InvalidQuoteException extends RuntimeException {
+
+    /**
+     * Constructor for InvalidQuoteException with message.
+     *
+     * @param message The exception message.
+     */
+    public InvalidQuoteException(String message) {
+        super(message);
+    }
+}
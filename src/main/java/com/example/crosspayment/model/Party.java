@@ -0,0 +1,41 @@
+package com.example.crosspayment.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ *
+ *  Party - a sender or receiver of payments.
+ *
+ *  Names are stored once here and payments reference them by a 4 byte surrogate key,
+ *  instead of repeating the name (and its index entries) in every payments row.
+ *
+ */
+@Entity
+@Table(name = "parties")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Party {
+
+    /**
+     *
+     * Surrogate key referenced by payments.sender_id / payments.receiver_id.
+     *
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    /**
+     *
+     * Name as sent in PaymentRequest.sender / PaymentRequest.receiver, unique.
+     *
+     */
+    @Column(nullable = false, unique = true)
+    private String name;
+}
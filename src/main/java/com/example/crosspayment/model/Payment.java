@@ -21,6 +21,8 @@ public class Payment {
      * The primary key for the Payment entity, auto-generated.
      * @Id indicates that this field is the primary key.
      * The PK will also serve as a reference for tracking payment transactions.
+     * Generated by the payments_id_seq column default (the table is partitioned by createdAt,
+     * its database primary key is (id, created_at)).
      *
      */
     @Id
@@ -30,16 +32,20 @@ public class Payment {
     /**
      *
      * Sender - the individual or entity initiating the payment.
+     * Stored as sender_id, a 4 byte reference to the parties table instead of the name itself.
      */
-    @Column (nullable = false)
-    private String sender;
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "sender_id", nullable = false)
+    private Party sender;
 
     /**
      *
      * Receiver - the individual or entity receiving the payment.
+     * Stored as receiver_id, a reference to the parties table.
      */
-    @Column(nullable = false)
-    private String receiver;
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "receiver_id", nullable = false)
+    private Party receiver;
 
     /**
      *
@@ -125,6 +131,29 @@ public class Payment {
     @Column (nullable = false)
     private LocalDateTime processedAt;
 
+    /**
+     *
+     * True when the exchange rate is the corridor's last known good rate, served while the FX service
+     * was unavailable (degraded mode) instead of a live quote.
+     *
+     */
+    @Column(nullable = false)
+    private boolean fxDegraded;
+
+    /**
+     *
+     * New PENDING payment, as created by PaymentService.processPayment (plain constructor, no builder on the hot path).
+     *
+     */
+    public Payment(Party sender, Party receiver, BigDecimal amount, String sourceCurrency, String destinationCurrency) {
+        this.sender = sender;
+        this.receiver = receiver;
+        this.amount = amount;
+        this.sourceCurrency = sourceCurrency;
+        this.destinationCurrency = destinationCurrency;
+        this.status = PaymentStatus.PENDING;
+    }
+
     /**
      *
      * Lifecycle callback to set the createdAt and processedAt before persisting.
@@ -132,8 +161,9 @@ public class Payment {
      */
     @PrePersist
     protected void onCreate() {
-        this.createdAt = LocalDateTime.now();
-        this.processedAt = LocalDateTime.now();
+        LocalDateTime now = LocalDateTime.now();
+        this.createdAt = now;
+        this.processedAt = now;
     }
 
     /**
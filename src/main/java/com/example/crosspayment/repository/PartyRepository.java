@@ -0,0 +1,31 @@
+package com.example.crosspayment.repository;
+
+import com.example.crosspayment.model.Party;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ *  Party repository:
+ *      Resolves party names to their surrogate ids.
+ *
+ */
+@Repository
+public interface PartyRepository extends JpaRepository<Party, Integer> {
+
+    /**
+     *
+     * Insert the party if it is new and return its id, one round trip either way.
+     * ON CONFLICT DO NOTHING leaves existing rows untouched (no dead tuple per payment),
+     * the second branch returns the id of the row that was already there.
+     *
+     * Returns null in the rare case where a concurrent transaction inserted the name after this statement
+     * started: its row is not in our snapshot yet, the caller retries.
+     * @param name
+     * @return id of the party
+     */
+    @Query(value = "with inserted as (insert into parties (name) values (:name) on conflict (name) do nothing returning id) " +
+            "select id from inserted union all select id from parties where name = :name limit 1", nativeQuery = true)
+    Integer upsertByName(@Param("name") String name);
+}
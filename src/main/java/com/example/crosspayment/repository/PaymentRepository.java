@@ -1,12 +1,24 @@
 package com.example.crosspayment.repository;
 
 
+import com.example.crosspayment.dto.PaymentResponse;
 import com.example.crosspayment.model.Payment;
 import com.example.crosspayment.model.PaymentStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  *  Payment repository:
@@ -19,6 +31,8 @@ import java.util.List;
  *      - count(): Returns the number of entities.
  *      - existsById(ID id): Checks if an entity with the given id exists.
  *
+ *      Finders are read-only transactions, so they are served by a replica when read routing is enabled.
+ *
  *
  */
 @Repository
@@ -30,23 +44,68 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
      * @param status
      * @return List of payments with the given status
      */
+    @Transactional(readOnly = true)
     List<Payment> findByStatus(PaymentStatus status);
 
     /**
      *
-     * Select * from payments where sender = :sender
+     *  Select * from payments where status = :status and created_at < :before order by id
+     * @param status
+     * @param before
+     * @return List of payments with the given status created before the given time, oldest first
+     */
+    @Transactional(readOnly = true)
+    List<Payment> findByStatusAndCreatedAtBeforeOrderById(PaymentStatus status, LocalDateTime before);
+
+    /**
+     *
+     * Select * from payments where sender_id = (select id from parties where name = :sender)
      * @param sender
      * @return List of payments with the given sender
      */
-    List<Payment> findBySender(String sender);
+    @Transactional(readOnly = true)
+    @Query("select p from Payment p where p.sender.name = :sender")
+    List<Payment> findBySender(@Param("sender") String sender);
 
     /**
      *
-     * Select * from payments where receiver = :receiver
+     * Select * from payments where receiver_id = (select id from parties where name = :receiver)
      * @param receiver
      * @return List of payments with the given receiver
      */
-    List<Payment> findByReceiver(String receiver);
+    @Transactional(readOnly = true)
+    @Query("select p from Payment p where p.receiver.name = :receiver")
+    List<Payment> findByReceiver(@Param("receiver") String receiver);
+
+    /**
+     *
+     * Select straight into the API response for GET /api/payments/{id}.
+     * No entity is created, so nothing is registered in the persistence context or dirty checked.
+     * The constructor expression follows the field order of PaymentResponse (@AllArgsConstructor),
+     * party names come from two primary key lookups on parties.
+     * @param id
+     * @return the payment as a PaymentResponse, empty if it does not exist
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL")
+    })
+    @Query("select new com.example.crosspayment.dto.PaymentResponse(p.id, s.name, r.name, p.amount, " +
+            "p.sourceCurrency, p.destinationCurrency, p.exchangeRate, p.payOutAmount, p.status, p.message, " +
+            "p.createdAt, p.processedAt, p.fxDegraded) from Payment p join p.sender s join p.receiver r where p.id = :id")
+    Optional<PaymentResponse> findResponseById(@Param("id") Long id);
+
+    /**
+     *
+     * Select * from payments where id in (:ids) and status = :status for update
+     * Row locks make sure a payment is only settled once, even if two netting batches race for it.
+     * @param ids
+     * @param status
+     * @return List of locked payments that are still in the given status
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Payment p where p.id in :ids and p.status = :status")
+    List<Payment> lockByIdInAndStatus(@Param("ids") Collection<Long> ids, @Param("status") PaymentStatus status);
 
 
 }
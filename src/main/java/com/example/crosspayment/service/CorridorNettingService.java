@@ -0,0 +1,386 @@
+package com.example.crosspayment.service;
+
+import com.example.crosspayment.client.FXServiceClient;
+import com.example.crosspayment.dto.FXRateResponse;
+import com.example.crosspayment.dto.NetPositionResponse;
+import com.example.crosspayment.exception.FxServiceException;
+import com.example.crosspayment.model.Payment;
+import com.example.crosspayment.model.PaymentStatus;
+import com.example.crosspayment.repository.PaymentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ *  Corridor netting service:
+ *
+ *  Optional settlement stage (payment.netting.enabled) that replaces the one-FX-call-per-payment path:
+ *      - processPayment saves the payment as PENDING and hands it over here once the insert is committed
+ *      - payments are grouped per corridor (unordered pair, EUR/USD holds both directions)
+ *      - every window-ms, or as soon as a corridor holds max-batch payments, the corridor is quoted once
+ *        and the whole group is settled in one transaction by {@link NettingSettlementService}
+ *      - payments against the base currency use the quoted rate, the opposite direction uses 1 / rate
+ *
+ *  One FX call and one commit are amortised over the whole batch, and the request thread never waits
+ *  for the FX service. Clients poll GET /api/payments/{id} for the final status.
+ *
+ *  Batches are flushed on a single "corridor-netting" thread. If settling a batch throws, its payments
+ *  are still PENDING in the database and are put back in the queue for the next window.
+ *
+ *  The queue only lives in memory. At startup and every recovery-interval-ms, PENDING payments older than
+ *  recovery-age-ms that are not queued here are re-enqueued: the ones queued before a crash or a redeploy,
+ *  or by an instance that is gone. A payment queued on two live instances is still settled once, settlement
+ *  locks the rows and skips those no longer PENDING.
+ *
+ */
+@Service
+@Slf4j
+public class CorridorNettingService {
+
+    private final FXServiceClient fxServiceClient;
+
+    private final NettingSettlementService settlementService;
+
+    private final boolean enabled;
+
+    private final long windowMillis;
+
+    private final int maxBatch;
+
+    private final long recoveryIntervalMillis;
+
+    private final long recoveryAgeMillis;
+
+    private final PaymentRepository paymentRepository;
+
+    /**
+     * ids queued here and not settled or failed yet
+     */
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+
+    private final ConcurrentMap<String, CorridorBatch> corridors = new ConcurrentHashMap<>();
+
+    private final Counter settledCounter;
+
+    private final Counter failedCounter;
+
+    private final Counter recoveredCounter;
+
+    private final DistributionSummary batchSize;
+
+    private ScheduledExecutorService flusher;
+
+    public CorridorNettingService(FXServiceClient fxServiceClient,
+                                  NettingSettlementService settlementService,
+                                  PaymentRepository paymentRepository,
+                                  @Value("${payment.netting.enabled:false}") boolean enabled,
+                                  @Value("${payment.netting.window-ms:2000}") long windowMillis,
+                                  @Value("${payment.netting.max-batch:500}") int maxBatch,
+                                  @Value("${payment.netting.recovery-interval-ms:60000}") long recoveryIntervalMillis,
+                                  @Value("${payment.netting.recovery-age-ms:60000}") long recoveryAgeMillis,
+                                  MeterRegistry meterRegistry) {
+        this.fxServiceClient = fxServiceClient;
+        this.settlementService = settlementService;
+        this.paymentRepository = paymentRepository;
+        this.enabled = enabled;
+        this.windowMillis = windowMillis;
+        this.maxBatch = maxBatch;
+        this.recoveryIntervalMillis = recoveryIntervalMillis;
+        this.recoveryAgeMillis = recoveryAgeMillis;
+        this.settledCounter = Counter.builder("payment.netting.payments").tag("outcome", "settled").register(meterRegistry);
+        this.failedCounter = Counter.builder("payment.netting.payments").tag("outcome", "failed").register(meterRegistry);
+        this.recoveredCounter = Counter.builder("payment.netting.recovered").register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("payment.netting.batch.size").register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start(){
+        if (!enabled) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "corridor-netting");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushAll, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+        flusher.scheduleWithFixedDelay(this::recoverPending, 0, recoveryIntervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Corridor netting enabled, window {} ms, max batch {}", windowMillis, maxBatch);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher.awaitTermination(windowMillis * 2, TimeUnit.MILLISECONDS);
+            flushAll();
+        }
+    }
+
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    /**
+     *
+     * Queues a PENDING payment for netting once the surrounding transaction commits,
+     * so the flusher never looks for a row that is not visible yet.
+     *
+     */
+    public void enqueueAfterCommit(Payment payment){
+        PendingPayment pending = new PendingPayment(payment.getId(), payment.getSourceCurrency(), payment.getAmount());
+        String corridor = corridorKey(payment.getSourceCurrency(), payment.getDestinationCurrency());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(corridor, pending);
+                }
+            });
+        } else {
+            enqueue(corridor, pending);
+        }
+    }
+
+    /**
+     *
+     * Net position of every corridor seen so far.
+     *
+     */
+    public List<NetPositionResponse> getNetPositions(){
+        List<NetPositionResponse> positions = new ArrayList<>(corridors.size());
+        corridors.forEach((corridor, batch) -> positions.add(batch.toPosition(corridor)));
+        return positions;
+    }
+
+    /**
+     *
+     * Re-enqueues PENDING payments older than recovery-age-ms that are not queued here.
+     *
+     */
+    void recoverPending(){
+        try {
+            int recovered = 0;
+            for (Payment payment : paymentRepository.findByStatusAndCreatedAtBeforeOrderById(PaymentStatus.PENDING,
+                    LocalDateTime.now().minus(recoveryAgeMillis, ChronoUnit.MILLIS))) {
+                if (!queued.contains(payment.getId())) {
+                    enqueue(corridorKey(payment.getSourceCurrency(), payment.getDestinationCurrency()),
+                            new PendingPayment(payment.getId(), payment.getSourceCurrency(), payment.getAmount()));
+                    recovered++;
+                }
+            }
+            if (recovered > 0) {
+                recoveredCounter.increment(recovered);
+                log.warn("Re-enqueued {} PENDING payments that were not queued for netting", recovered);
+            }
+        } catch (RuntimeException e) {
+            log.error("Netting recovery scan failed", e);
+        }
+    }
+
+    /**
+     *
+     * Also called from afterCommit, which can run after stop(): the payment is committed PENDING either way,
+     * so once the flusher is shut down it is left to the recovery scan of the next start instead of throwing.
+     *
+     */
+    private void enqueue(String corridor, PendingPayment pending){
+        if (flusher.isShutdown()) {
+            log.warn("Corridor netting stopped, payment {} left PENDING for the recovery scan", pending.id);
+            return;
+        }
+        if (!queued.add(pending.id)) {
+            return;
+        }
+        CorridorBatch batch = corridors.computeIfAbsent(corridor, CorridorBatch::new);
+        if (batch.add(pending) >= maxBatch) {
+            try {
+                flusher.execute(() -> flush(corridor));
+            } catch (RejectedExecutionException e) {
+                // stop() raced in after the check, the batch stays PENDING for the recovery scan
+                log.warn("Corridor netting stopped, {} left PENDING for the recovery scan", corridor);
+            }
+        }
+    }
+
+    private void flushAll(){
+        for (String corridor : corridors.keySet()) {
+            try {
+                flush(corridor);
+            } catch (RuntimeException e) {
+                log.error("Netting flush failed for corridor {}", corridor, e);
+            }
+        }
+    }
+
+    private void flush(String corridor){
+        CorridorBatch batch = corridors.get(corridor);
+        List<PendingPayment> pending = batch.drain();
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Long> ids = new ArrayList<>(pending.size());
+        for (PendingPayment payment : pending) {
+            ids.add(payment.id);
+        }
+        batchSize.record(ids.size());
+
+        // Drained ids are in neither the batch nor the recovery scan: whatever fails, they go back to the batch
+        boolean done = false;
+        try {
+            FXRateResponse quote;
+            try {
+                quote = fxServiceClient.getQuote(batch.baseCurrency, batch.quoteCurrency);
+            } catch (FxServiceException e) {
+                log.error("Netting batch of {} payments failed for corridor {}: {}", ids.size(), corridor, e.getMessage());
+                failedCounter.increment(settlementService.fail(ids, e.getMessage()));
+                done = true;
+                return;
+            }
+
+            BigDecimal rate = quote.getExchangeRate();
+            int settled = settlementService.settle(ids, batch.baseCurrency, rate, quote.isDegraded());
+            settledCounter.increment(settled);
+            batch.recordSettled(settled, rate);
+            done = true;
+            log.info("Settled {} payments on corridor {} at {}", settled, corridor, rate);
+        } catch (RuntimeException e) {
+            log.error("Netting batch of {} payments failed for corridor {}, re-queueing", ids.size(), corridor, e);
+        } finally {
+            if (done) {
+                ids.forEach(queued::remove);
+            } else {
+                batch.requeue(pending);
+            }
+        }
+    }
+
+    /**
+     *
+     * Corridor key for an unordered pair: alphabetically first currency is the base, e.g. EUR/USD
+     *
+     */
+    static String corridorKey(String sourceCurrency, String destinationCurrency){
+        return sourceCurrency.compareTo(destinationCurrency) <= 0
+                ? sourceCurrency + "/" + destinationCurrency
+                : destinationCurrency + "/" + sourceCurrency;
+    }
+
+    private static final class PendingPayment {
+
+        private final Long id;
+
+        private final String sourceCurrency;
+
+        private final BigDecimal amount;
+
+        private PendingPayment(Long id, String sourceCurrency, BigDecimal amount) {
+            this.id = id;
+            this.sourceCurrency = sourceCurrency;
+            this.amount = amount;
+        }
+    }
+
+    /**
+     *
+     * Pending payments of one corridor plus its running gross amounts per direction.
+     *
+     */
+    private static final class CorridorBatch {
+
+        private final String baseCurrency;
+
+        private final String quoteCurrency;
+
+        private List<PendingPayment> pending = new ArrayList<>();
+
+        private BigDecimal forwardAmount = BigDecimal.ZERO;
+
+        private BigDecimal reverseAmount = BigDecimal.ZERO;
+
+        private volatile BigDecimal lastRate;
+
+        private final AtomicLong settledPayments = new AtomicLong();
+
+        private final AtomicLong settledBatches = new AtomicLong();
+
+        private CorridorBatch(String corridor) {
+            int separator = corridor.indexOf('/');
+            this.baseCurrency = corridor.substring(0, separator);
+            this.quoteCurrency = corridor.substring(separator + 1);
+        }
+
+        private synchronized int add(PendingPayment payment){
+            pending.add(payment);
+            if (baseCurrency.equals(payment.sourceCurrency)) {
+                forwardAmount = forwardAmount.add(payment.amount);
+            } else {
+                reverseAmount = reverseAmount.add(payment.amount);
+            }
+            return pending.size();
+        }
+
+        private synchronized List<PendingPayment> drain(){
+            List<PendingPayment> drained = pending;
+            pending = new ArrayList<>();
+            forwardAmount = BigDecimal.ZERO;
+            reverseAmount = BigDecimal.ZERO;
+            return drained;
+        }
+
+        private void requeue(List<PendingPayment> payments){
+            for (PendingPayment payment : payments) {
+                add(payment);
+            }
+        }
+
+        private void recordSettled(int settled, BigDecimal rate){
+            lastRate = rate;
+            settledPayments.addAndGet(settled);
+            settledBatches.incrementAndGet();
+        }
+
+        private synchronized NetPositionResponse toPosition(String corridor){
+            BigDecimal rate = lastRate;
+            BigDecimal net = rate == null ? null
+                    : forwardAmount.subtract(reverseAmount.divide(rate, 2, RoundingMode.HALF_UP));
+            return NetPositionResponse.builder()
+                    .corridor(corridor)
+                    .baseCurrency(baseCurrency)
+                    .quoteCurrency(quoteCurrency)
+                    .pendingPayments(pending.size())
+                    .forwardAmount(forwardAmount)
+                    .reverseAmount(reverseAmount)
+                    .netAmountInBase(net)
+                    .lastRate(rate)
+                    .settledPayments(settledPayments.get())
+                    .settledBatches(settledBatches.get())
+                    .build();
+        }
+    }
+}
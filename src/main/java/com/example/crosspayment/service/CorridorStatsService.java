@@ -0,0 +1,303 @@
+package com.example.crosspayment.service;
+
+import com.example.crosspayment.client.FxCorridorResilience;
+import com.example.crosspayment.dto.CorridorStatsResponse;
+import com.example.crosspayment.model.PaymentStatus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ *  Corridor stats service:
+ *      Per minute volume, count, success rate and average rate of every currency pair, maintained in memory
+ *      as payments reach SUCCESS or FAILED (PaymentService, NettingSettlementService).
+ *
+ *  A fixed ring of one bucket per minute (payment.stats.buckets), each bucket holding striped counters
+ *  (LongAdder / DoubleAdder) per corridor. Recording is lock-free and touches no database;
+ *  a slot is recycled by swapping in a fresh bucket when its minute comes round again.
+ *
+ *  Every rollup interval the completed minutes are added to corridor_stats_minute on a single
+ *  "corridor-stats" thread, so the summary table holds the totals of all instances. A rollup is one
+ *  transaction and its buckets are only marked rolled up once it commits: a failed rollup adds nothing
+ *  and is retried whole, never counted twice. On shutdown every bucket not rolled up yet, the current
+ *  minute included, is flushed.
+ *
+ *  GET /api/stats/corridors reads the ring: O(buckets x corridors), independent of the number of payments.
+ *
+ */
+@Service
+@Slf4j
+public class CorridorStatsService {
+
+    private static final long MINUTE_MILLIS = 60_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int bucketCount;
+
+    private final long rollupIntervalSeconds;
+
+    private final AtomicReferenceArray<Bucket> ring;
+
+    private ScheduledExecutorService rollup;
+
+    public CorridorStatsService(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${payment.stats.buckets:60}") int bucketCount,
+                                @Value("${payment.stats.rollup-interval-seconds:60}") long rollupIntervalSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bucketCount = bucketCount;
+        this.rollupIntervalSeconds = rollupIntervalSeconds;
+        this.ring = new AtomicReferenceArray<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            ring.set(i, new Bucket(-1));
+        }
+    }
+
+    @PostConstruct
+    void start(){
+        rollup = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "corridor-stats");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rollup.scheduleWithFixedDelay(this::rollUp, rollupIntervalSeconds, rollupIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        rollup.shutdown();
+        rollup.awaitTermination(10, TimeUnit.SECONDS);
+        rollUp(Long.MAX_VALUE);
+    }
+
+    /**
+     *
+     * Counts a payment that reached SUCCESS or FAILED once the surrounding transaction commits, right away if there
+     * is none. A rolled back transition (or a netting batch that is settled again after a failed attempt) is not
+     * counted.
+     *
+     */
+    public void recordAfterCommit(String sourceCurrency, String destinationCurrency, PaymentStatus status, BigDecimal amount, BigDecimal exchangeRate){
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record(sourceCurrency, destinationCurrency, status, amount, exchangeRate);
+                }
+            });
+        } else {
+            record(sourceCurrency, destinationCurrency, status, amount, exchangeRate);
+        }
+    }
+
+    /**
+     *
+     * Counts a payment that just reached SUCCESS or FAILED.
+     *
+     */
+    public void record(String sourceCurrency, String destinationCurrency, PaymentStatus status, BigDecimal amount, BigDecimal exchangeRate){
+        Bucket bucket = bucketFor(System.currentTimeMillis() / MINUTE_MILLIS);
+        if (bucket == null) {
+            return;
+        }
+        CorridorCounters counters = bucket.corridors.computeIfAbsent(FxCorridorResilience.corridorKey(sourceCurrency, destinationCurrency),
+                corridor -> new CorridorCounters(sourceCurrency, destinationCurrency));
+        counters.payments.increment();
+        if (status == PaymentStatus.SUCCESS) {
+            counters.succeeded.increment();
+            counters.volume.add(amount.doubleValue());
+            counters.rateSum.add(exchangeRate.doubleValue());
+        } else {
+            counters.failed.increment();
+        }
+    }
+
+    /**
+     *
+     * @return one entry per corridor and minute over the last `minutes` minutes (current minute included), oldest first
+     */
+    public List<CorridorStatsResponse> getRecentStats(int minutes){
+        long currentMinute = System.currentTimeMillis() / MINUTE_MILLIS;
+        long firstMinute = currentMinute - Math.min(minutes, bucketCount) + 1;
+
+        List<CorridorStatsResponse> stats = new ArrayList<>();
+        for (int i = 0; i < bucketCount; i++) {
+            Bucket bucket = ring.get(i);
+            if (bucket.minute < firstMinute || bucket.minute > currentMinute) {
+                continue;
+            }
+            Instant minute = Instant.ofEpochMilli(bucket.minute * MINUTE_MILLIS);
+            bucket.corridors.values().forEach(counters -> stats.add(toResponse(minute, counters.sourceCurrency, counters.destinationCurrency,
+                    counters.payments.sum(), counters.succeeded.sum(), counters.failed.sum(), counters.volume.sum(), counters.rateSum.sum())));
+        }
+        stats.sort(Comparator.comparing(CorridorStatsResponse::getMinute)
+                .thenComparing(CorridorStatsResponse::getSourceCurrency)
+                .thenComparing(CorridorStatsResponse::getDestinationCurrency));
+        return stats;
+    }
+
+    /**
+     *
+     * Cluster wide totals from corridor_stats_minute (rolled up, so the last minute or two are not there yet).
+     *
+     */
+    public List<CorridorStatsResponse> getRolledUpStats(Instant from, Instant to){
+        return jdbcTemplate.query("select minute, source_currency, destination_currency, payments, succeeded, failed, volume, rate_sum " +
+                        "from corridor_stats_minute where minute >= ? and minute < ? order by minute, source_currency, destination_currency",
+                (resultSet, row) -> toResponse(resultSet.getObject("minute", LocalDateTime.class).toInstant(ZoneOffset.UTC),
+                        resultSet.getString("source_currency"), resultSet.getString("destination_currency"),
+                        resultSet.getLong("payments"), resultSet.getLong("succeeded"), resultSet.getLong("failed"),
+                        resultSet.getDouble("volume"), resultSet.getDouble("rate_sum")),
+                LocalDateTime.ofInstant(from, ZoneOffset.UTC), LocalDateTime.ofInstant(to, ZoneOffset.UTC));
+    }
+
+    /**
+     *
+     * Adds every completed, not yet rolled up minute to corridor_stats_minute.
+     * The previous minute is left one more interval for payments still being counted into it.
+     *
+     */
+    void rollUp(){
+        rollUp(System.currentTimeMillis() / MINUTE_MILLIS - 2);
+    }
+
+    /**
+     *
+     * Adds the not yet rolled up minutes up to lastMinute to corridor_stats_minute, in one transaction.
+     *
+     */
+    private synchronized void rollUp(long lastMinute){
+        List<Bucket> buckets = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < bucketCount; i++) {
+            Bucket bucket = ring.get(i);
+            if (bucket.minute < 0 || bucket.minute > lastMinute || bucket.rolledUp || bucket.corridors.isEmpty()) {
+                continue;
+            }
+            buckets.add(bucket);
+            LocalDateTime minute = LocalDateTime.ofEpochSecond(bucket.minute * 60, 0, ZoneOffset.UTC);
+            bucket.corridors.values().forEach(counters -> rows.add(new Object[]{minute, counters.sourceCurrency,
+                    counters.destinationCurrency, counters.payments.sum(), counters.succeeded.sum(), counters.failed.sum(),
+                    BigDecimal.valueOf(counters.volume.sum()).setScale(2, RoundingMode.HALF_UP),
+                    BigDecimal.valueOf(counters.rateSum.sum())}));
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate("insert into corridor_stats_minute " +
+                    "(minute, source_currency, destination_currency, payments, succeeded, failed, volume, rate_sum) " +
+                    "values (?, ?, ?, ?, ?, ?, ?, ?) " +
+                    "on conflict (minute, source_currency, destination_currency) do update set " +
+                    "payments = corridor_stats_minute.payments + excluded.payments, " +
+                    "succeeded = corridor_stats_minute.succeeded + excluded.succeeded, " +
+                    "failed = corridor_stats_minute.failed + excluded.failed, " +
+                    "volume = corridor_stats_minute.volume + excluded.volume, " +
+                    "rate_sum = corridor_stats_minute.rate_sum + excluded.rate_sum", rows));
+        } catch (RuntimeException e) {
+            log.error("Corridor stats rollup of {} minutes failed, retrying next interval: {}", buckets.size(), e.getMessage());
+            return;
+        }
+        // Committed: only now are the buckets done
+        buckets.forEach(bucket -> bucket.rolledUp = true);
+    }
+
+    private Bucket bucketFor(long minute){
+        int slot = (int) (minute % bucketCount);
+        Bucket bucket = ring.get(slot);
+        while (bucket.minute != minute) {
+            if (bucket.minute > minute) {
+                // The clock stepped back past a whole ring, nothing sensible to count into
+                return null;
+            }
+            if (!bucket.rolledUp && !bucket.corridors.isEmpty()) {
+                log.warn("Corridor stats for minute {} recycled before rollup", bucket.minute);
+            }
+            Bucket fresh = new Bucket(minute);
+            if (ring.compareAndSet(slot, bucket, fresh)) {
+                return fresh;
+            }
+            bucket = ring.get(slot);
+        }
+        return bucket;
+    }
+
+    private static CorridorStatsResponse toResponse(Instant minute, String sourceCurrency, String destinationCurrency,
+                                                    long payments, long succeeded, long failed, double volume, double rateSum){
+        return CorridorStatsResponse.builder()
+                .minute(minute)
+                .sourceCurrency(sourceCurrency)
+                .destinationCurrency(destinationCurrency)
+                .payments(payments)
+                .succeeded(succeeded)
+                .failed(failed)
+                .successRate(payments == 0 ? 0 : (double) succeeded / payments)
+                .volume(BigDecimal.valueOf(volume).setScale(2, RoundingMode.HALF_UP))
+                .averageRate(succeeded == 0 ? null : BigDecimal.valueOf(rateSum / succeeded).setScale(6, RoundingMode.HALF_UP))
+                .build();
+    }
+
+    private static final class Bucket {
+
+        private final long minute;
+
+        private final ConcurrentMap<String, CorridorCounters> corridors = new ConcurrentHashMap<>();
+
+        private volatile boolean rolledUp;
+
+        private Bucket(long minute) {
+            this.minute = minute;
+        }
+    }
+
+    private static final class CorridorCounters {
+
+        private final String sourceCurrency;
+
+        private final String destinationCurrency;
+
+        private final LongAdder payments = new LongAdder();
+
+        private final LongAdder succeeded = new LongAdder();
+
+        private final LongAdder failed = new LongAdder();
+
+        private final DoubleAdder volume = new DoubleAdder();
+
+        private final DoubleAdder rateSum = new DoubleAdder();
+
+        private CorridorCounters(String sourceCurrency, String destinationCurrency) {
+            this.sourceCurrency = sourceCurrency;
+            this.destinationCurrency = destinationCurrency;
+        }
+    }
+}
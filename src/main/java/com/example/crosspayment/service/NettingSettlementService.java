@@ -0,0 +1,87 @@
+package com.example.crosspayment.service;
+
+import com.example.crosspayment.config.ReplicaLagGuard;
+import com.example.crosspayment.model.Payment;
+import com.example.crosspayment.model.PaymentStatus;
+import com.example.crosspayment.repository.PaymentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ *
+ *  Netting settlement service:
+ *      Applies one corridor quote to a whole batch of PENDING payments in a single transaction.
+ *
+ *      Rows are locked with SELECT ... FOR UPDATE and filtered on status = PENDING, so a payment that
+ *      was already settled (or is being settled by another batch) is skipped instead of settled twice.
+ *      The ids that changed status are read from the primary for a while after commit (ReplicaLagGuard).
+ *
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NettingSettlementService {
+
+    private final PaymentRepository paymentRepository;
+
+    private final CorridorStatsService corridorStats;
+
+    private final ReplicaLagGuard replicaLagGuard;
+
+    /**
+     *
+     * @param ids payments of the batch
+     * @param baseCurrency currency the rate is quoted from, payments in the other direction use 1 / rate
+     * @param rate base -> quote exchange rate
+     * @param fxDegraded the rate is a last good rate served while the corridor was unavailable, the payments are flagged
+     * @return number of payments moved to SUCCESS
+     */
+    @Transactional
+    public int settle(Collection<Long> ids, String baseCurrency, BigDecimal rate, boolean fxDegraded){
+        BigDecimal inverseRate = BigDecimal.ONE.divide(rate, 10, RoundingMode.HALF_UP);
+
+        List<Payment> payments = paymentRepository.lockByIdInAndStatus(ids, PaymentStatus.PENDING);
+        for (Payment payment : payments) {
+            BigDecimal exchangeRate = baseCurrency.equals(payment.getSourceCurrency()) ? rate : inverseRate;
+            payment.setExchangeRate(exchangeRate);
+            payment.setPayOutAmount(payment.getAmount().multiply(exchangeRate).setScale(4, RoundingMode.HALF_UP));
+            payment.setFxDegraded(fxDegraded);
+            payment.setMessage(fxDegraded ? PaymentService.DEGRADED_MESSAGE : "Payment processed successfully.");
+            payment.setStatus(PaymentStatus.SUCCESS);
+            corridorStats.recordAfterCommit(payment.getSourceCurrency(), payment.getDestinationCurrency(), PaymentStatus.SUCCESS,
+                    payment.getAmount(), exchangeRate);
+        }
+        paymentRepository.saveAll(payments);
+        replicaLagGuard.recordWritesAfterCommit(payments.stream().map(Payment::getId).toList());
+
+        log.debug("Settled {} of {} payments at {} {}", payments.size(), ids.size(), baseCurrency, rate);
+        return payments.size();
+    }
+
+    /**
+     *
+     * Marks the batch FAILED when the corridor could not be quoted.
+     *
+     * @return number of payments moved to FAILED
+     */
+    @Transactional
+    public int fail(Collection<Long> ids, String message){
+        List<Payment> payments = paymentRepository.lockByIdInAndStatus(ids, PaymentStatus.PENDING);
+        for (Payment payment : payments) {
+            payment.setStatus(PaymentStatus.FAILED);
+            payment.setMessage(message);
+            corridorStats.recordAfterCommit(payment.getSourceCurrency(), payment.getDestinationCurrency(), PaymentStatus.FAILED,
+                    payment.getAmount(), null);
+        }
+        paymentRepository.saveAll(payments);
+        replicaLagGuard.recordWritesAfterCommit(payments.stream().map(Payment::getId).toList());
+        return payments.size();
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.crosspayment.service;
+
+import com.example.crosspayment.model.Party;
+import com.example.crosspayment.repository.PartyRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ *
+ *  Party service:
+ *      Resolves sender / receiver names to {@link Party} references for new payments.
+ *
+ *      Known names come from a bounded in-process name -> id cache, so a repeat sender costs no round trip.
+ *      Unknown names are upserted (PartyRepository.upsertByName) in the caller's transaction and only
+ *      cached after that transaction commits, so a rolled back insert never leaves a dangling id behind.
+ *
+ *      The cache is bounded softly: past max-cached-parties an arbitrary tenth of it is dropped.
+ *      Dropped names just cost one upsert the next time they are seen.
+ *
+ */
+@Service
+@Slf4j
+public class PartyService {
+
+    private final PartyRepository partyRepository;
+
+    private final int maxCachedParties;
+
+    private final ConcurrentMap<String, Party> parties = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    public PartyService(PartyRepository partyRepository,
+                        @Value("${payment.party.max-cached-parties:100000}") int maxCachedParties,
+                        MeterRegistry meterRegistry) {
+        this.partyRepository = partyRepository;
+        this.maxCachedParties = maxCachedParties;
+        this.hits = Counter.builder("payment.party.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("payment.party.cache.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("payment.party.cache.size", parties, ConcurrentMap::size).register(meterRegistry);
+    }
+
+    /**
+     *
+     * @return a detached Party carrying id and name. Only its id is written to payments,
+     *         the name is there so responses can be mapped without loading the party.
+     */
+    @Transactional
+    public Party resolve(String name){
+        Party cached = parties.get(name);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        Integer id = partyRepository.upsertByName(name);
+        if (id == null) {
+            // Inserted concurrently after our statement started, visible to the next statement
+            id = partyRepository.upsertByName(name);
+        }
+        if (id == null) {
+            throw new IllegalStateException("Could not resolve party: " + name);
+        }
+
+        Party party = new Party(id, name);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache(party);
+                }
+            });
+        } else {
+            cache(party);
+        }
+        return party;
+    }
+
+    private void cache(Party party){
+        parties.put(party.getName(), party);
+        if (parties.size() > maxCachedParties && sweeping.compareAndSet(false, true)) {
+            try {
+                int toDrop = parties.size() / 10;
+                Iterator<String> names = parties.keySet().iterator();
+                while (toDrop-- > 0 && names.hasNext()) {
+                    names.next();
+                    names.remove();
+                }
+                log.debug("Party cache over {} entries, trimmed to {}", maxCachedParties, parties.size());
+            } finally {
+                sweeping.set(false);
+            }
+        }
+    }
+}
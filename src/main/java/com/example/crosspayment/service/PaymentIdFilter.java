@@ -0,0 +1,231 @@
+package com.example.crosspayment.service;
+
+import com.example.crosspayment.archive.PaymentArchive;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ *  Negative lookup filter for GET /api/payments/{id}:
+ *      A {@link ScalableBloomFilter} of every allocated payment id (database + archive), so an id that was never
+ *      allocated is answered 404 without a transaction or a query.
+ *
+ *  Only ids up to the watermark are trusted. The watermark is the highest id created more than safety-window-seconds
+ *  ago: older ids are committed (or never will be), so all of them are in the filter. Newer ids, including the ones
+ *  other instances keep inserting, always go to the database.
+ *
+ *      - built on a "payment-id-filter" thread once the application is ready, streaming ids from payments and the archive
+ *      - refreshed every refresh-interval-ms with the ids above the previous watermark, which picks up peer inserts,
+ *        plus the ids created in the last two safety windows, again: an id below the watermark whose transaction
+ *        committed late (but within 2 x safety-window-seconds of its insert) is still added
+ *      - ids saved by this instance are added right away
+ *
+ *  Until the first build completes, or when the memory budget is used up, every id goes to the database.
+ *
+ */
+@Component
+@Slf4j
+public class PaymentIdFilter {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final PaymentArchive paymentArchive;
+
+    private final boolean enabled;
+
+    private final long expectedIds;
+
+    private final double falsePositiveRate;
+
+    private final long maxBits;
+
+    private final long refreshIntervalMillis;
+
+    private final long safetyWindowSeconds;
+
+    private final Counter absent;
+
+    private final Counter present;
+
+    private final Counter unchecked;
+
+    private final Counter falsePositives;
+
+    private volatile ScalableBloomFilter filter;
+
+    private volatile long watermark = -1;
+
+    private ScheduledExecutorService refresher;
+
+    public PaymentIdFilter(DataSource dataSource,
+                           PlatformTransactionManager transactionManager,
+                           PaymentArchive paymentArchive,
+                           @Value("${payment.id-filter.enabled:true}") boolean enabled,
+                           @Value("${payment.id-filter.expected-ids:1000000}") long expectedIds,
+                           @Value("${payment.id-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                           @Value("${payment.id-filter.max-memory-mb:64}") long maxMemoryMb,
+                           @Value("${payment.id-filter.refresh-interval-ms:5000}") long refreshIntervalMillis,
+                           @Value("${payment.id-filter.safety-window-seconds:120}") long safetyWindowSeconds,
+                           MeterRegistry meterRegistry) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(10_000);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.paymentArchive = paymentArchive;
+        this.enabled = enabled;
+        this.expectedIds = expectedIds;
+        this.falsePositiveRate = falsePositiveRate;
+        this.maxBits = maxMemoryMb * 8 * 1024 * 1024;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        this.safetyWindowSeconds = safetyWindowSeconds;
+
+        this.absent = Counter.builder("payment.idfilter.lookups").tag("result", "absent").register(meterRegistry);
+        this.present = Counter.builder("payment.idfilter.lookups").tag("result", "maybe-present").register(meterRegistry);
+        this.unchecked = Counter.builder("payment.idfilter.lookups").tag("result", "unchecked").register(meterRegistry);
+        this.falsePositives = Counter.builder("payment.idfilter.false.positives").register(meterRegistry);
+        Gauge.builder("payment.idfilter.ids", this, f -> f.filter == null ? 0 : f.filter.keyCount()).register(meterRegistry);
+        Gauge.builder("payment.idfilter.memory", this, f -> f.filter == null ? 0 : f.filter.bitCount() / 8.0)
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("payment.idfilter.layers", this, f -> f.filter == null ? 0 : f.filter.layerCount()).register(meterRegistry);
+        Gauge.builder("payment.idfilter.expected.false.positive.rate", this, f -> f.filter == null ? 0 : f.filter.expectedFalsePositiveRate())
+                .register(meterRegistry);
+        Gauge.builder("payment.idfilter.saturated", this, f -> f.filter != null && f.filter.isSaturated() ? 1 : 0).register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start(){
+        if (!enabled) {
+            return;
+        }
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "payment-id-filter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.execute(this::rebuild);
+        refresher.scheduleWithFixedDelay(this::refresh, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop(){
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     *
+     * @return false only if the id was definitely never allocated
+     */
+    public boolean mightExist(long id){
+        ScalableBloomFilter current = filter;
+        if (current == null || id > watermark) {
+            unchecked.increment();
+            return true;
+        }
+        if (current.mightContain(id)) {
+            present.increment();
+            return true;
+        }
+        absent.increment();
+        return false;
+    }
+
+    /**
+     *
+     * Called when the filter let an id through and the payment was not found after all.
+     *
+     */
+    public void recordNotFound(long id){
+        if (filter != null && id <= watermark) {
+            falsePositives.increment();
+        }
+    }
+
+    public void add(long id){
+        ScalableBloomFilter current = filter;
+        if (current != null) {
+            current.add(id);
+        }
+    }
+
+    private void rebuild(){
+        try {
+            long started = System.nanoTime();
+            ScalableBloomFilter rebuilt = new ScalableBloomFilter(expectedIds, falsePositiveRate, maxBits);
+            // Installed before streaming so ids saved meanwhile by this instance land in it; watermark still -1
+            filter = rebuilt;
+
+            long newWatermark = readOnlyTransaction.execute(status -> {
+                long safeId = safeWatermark();
+                jdbcTemplate.query("select id from payments", resultSet -> {
+                    rebuilt.add(resultSet.getLong(1));
+                });
+                return safeId;
+            });
+            paymentArchive.forEachId(rebuilt::add);
+
+            watermark = newWatermark;
+            log.info("Payment id filter built: {} ids, {} KB, watermark {}, {} ms", rebuilt.keyCount(), rebuilt.bitCount() / 8 / 1024,
+                    newWatermark, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (RuntimeException e) {
+            filter = null;
+            watermark = -1;
+            log.error("Payment id filter build failed, all lookups go to the database", e);
+        }
+    }
+
+    private void refresh(){
+        ScalableBloomFilter current = filter;
+        if (current == null || watermark < 0) {
+            return;
+        }
+        try {
+            long from = watermark;
+            long newWatermark = readOnlyTransaction.execute(status -> {
+                long safeId = safeWatermark();
+                jdbcTemplate.query("select id from payments where id > ?", resultSet -> {
+                    current.add(resultSet.getLong(1));
+                }, from);
+                // Ids already behind the watermark are added again while young, re-adding a known id is a no-op
+                jdbcTemplate.query("select id from payments where created_at >= ? and id <= ?", resultSet -> {
+                    current.add(resultSet.getLong(1));
+                }, LocalDateTime.now().minusSeconds(2 * safetyWindowSeconds), from);
+                return safeId;
+            });
+            watermark = Math.max(from, newWatermark);
+        } catch (RuntimeException e) {
+            log.warn("Payment id filter refresh failed, watermark stays at {}: {}", watermark, e.getMessage());
+        }
+    }
+
+    /**
+     *
+     * Highest id created before the safety window. Read before the ids themselves,
+     * so every id up to it is visible to the following query.
+     *
+     */
+    private long safeWatermark(){
+        Long id = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from payments where created_at < ?", Long.class,
+                LocalDateTime.now().minusSeconds(safetyWindowSeconds));
+        return id == null ? 0 : id;
+    }
+}
@@ -0,0 +1,299 @@
+package com.example.crosspayment.service;
+
+import com.example.crosspayment.archive.PaymentArchive;
+import com.example.crosspayment.dto.PaymentResponse;
+import com.example.crosspayment.model.PaymentStatus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ *
+ *  Partition maintenance for the payments table (range partitioned by month of created_at, see V3 migration).
+ *
+ *  Every maintenance interval, on a single "payment-partitions" thread:
+ *      - creates the partitions of the current month and the next months-ahead months
+ *      - if payment.archive.enabled, moves terminal payments (SUCCESS, FAILED, CANCELLED) created before
+ *        the retention window into the {@link PaymentArchive}
+ *
+ *  Archiving a month that is entirely past the window and holds no PENDING payment writes the whole partition
+ *  to one archive file, then detaches and drops it: no DELETE, no dead tuples, nothing left to vacuum.
+ *  Detaching takes an ACCESS EXCLUSIVE lock on payments itself (CONCURRENTLY is not allowed next to
+ *  payments_default), so it runs in a transaction of its own, after the archive file is committed, and gives up
+ *  after payment.archive.detach-lock-timeout-ms instead of queueing every payment behind long transactions.
+ *  The partition is then marked as archived (table comment) and only detached and dropped on the next run.
+ *  Any other partition (PENDING payments left, or payments_default) uses DELETE ... RETURNING, so exactly
+ *  the deleted rows are archived. Either way the database transaction only commits after the archive file
+ *  is synced and visible to lookups, so a payment is never missing from both.
+ *
+ *  The number of live partitions stays bounded by the retention window, so lookups and index maintenance
+ *  on payments cost the same whatever the total history.
+ *
+ *  Every instance schedules the job, but only one runs it at a time: the run holds the session advisory lock
+ *  pg_try_advisory_lock(hashtext('payment-partitions')) on a connection of its own, the other instances skip
+ *  the interval. The lock is released with the connection if the instance dies mid-run.
+ *
+ *  payment.archive.directory must therefore be shared storage (NFS, EFS, ...) mounted at the same path on
+ *  every instance: whichever instance holds the lock writes the files, all of them serve lookups from them.
+ *
+ */
+@Service
+@Slf4j
+public class PaymentPartitionService {
+
+    private static final Pattern MONTH_PARTITION = Pattern.compile("payments_y(\\d{4})m(\\d{2})");
+
+    private static final String MAINTENANCE_LOCK = "payment-partitions";
+
+    /**
+     * Comment of a partition whose rows are all in an archive file, left to detach and drop
+     */
+    private static final String ARCHIVED_MARK = "archived";
+
+    private static final String LOCK_NOT_AVAILABLE = "55P03";
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'payments_y'yyyy'm'MM");
+
+    private static final String ARCHIVE_COLUMNS = "p.id, s.name as sender, r.name as receiver, p.amount, p.source_currency, " +
+            "p.destination_currency, p.exchange_rate, p.pay_out_amount, p.status, p.message, p.created_at, p.processed_at, p.fx_degraded";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final PaymentArchive paymentArchive;
+
+    private final int monthsAhead;
+
+    private final long intervalMinutes;
+
+    private final boolean archiveEnabled;
+
+    private final int retentionDays;
+
+    private final long detachLockTimeoutMillis;
+
+    private ScheduledExecutorService maintenance;
+
+    public PaymentPartitionService(DataSource dataSource,
+                                   PlatformTransactionManager transactionManager,
+                                   PaymentArchive paymentArchive,
+                                   @Value("${payment.partition.months-ahead:2}") int monthsAhead,
+                                   @Value("${payment.partition.maintenance-interval-minutes:60}") long intervalMinutes,
+                                   @Value("${payment.archive.enabled:false}") boolean archiveEnabled,
+                                   @Value("${payment.archive.retention-days:90}") int retentionDays,
+                                   @Value("${payment.archive.detach-lock-timeout-ms:500}") long detachLockTimeoutMillis) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(1000);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.paymentArchive = paymentArchive;
+        this.monthsAhead = monthsAhead;
+        this.intervalMinutes = intervalMinutes;
+        this.archiveEnabled = archiveEnabled;
+        this.retentionDays = retentionDays;
+        this.detachLockTimeoutMillis = detachLockTimeoutMillis;
+    }
+
+    @PostConstruct
+    void start(){
+        maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "payment-partitions");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(this::runMaintenance, 0, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void stop(){
+        maintenance.shutdownNow();
+    }
+
+    void runMaintenance(){
+        try {
+            Boolean ran = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+                JdbcTemplate lockConnection = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+                if (!Boolean.TRUE.equals(lockConnection.queryForObject("select pg_try_advisory_lock(hashtext(?))",
+                        Boolean.class, MAINTENANCE_LOCK))) {
+                    return false;
+                }
+                try {
+                    createPartitions(LocalDate.now());
+                    if (archiveEnabled) {
+                        archive(LocalDate.now().minusDays(retentionDays).atStartOfDay());
+                    }
+                } finally {
+                    lockConnection.queryForObject("select pg_advisory_unlock(hashtext(?))", Boolean.class, MAINTENANCE_LOCK);
+                }
+                return true;
+            });
+            if (!Boolean.TRUE.equals(ran)) {
+                log.debug("Payment partition maintenance is running on another instance, skipped");
+            }
+        } catch (RuntimeException e) {
+            log.error("Payment partition maintenance failed", e);
+        }
+    }
+
+    /**
+     *
+     * Creates the partitions of today's month and the next months-ahead months, if missing.
+     *
+     */
+    public void createPartitions(LocalDate today){
+        YearMonth month = YearMonth.from(today);
+        for (int i = 0; i <= monthsAhead; i++, month = month.plusMonths(1)) {
+            String partition = PARTITION_NAME.format(month.atDay(1));
+            try {
+                jdbcTemplate.execute("create table if not exists " + partition + " partition of payments for values from ('"
+                        + month.atDay(1) + "') to ('" + month.plusMonths(1).atDay(1) + "')");
+            } catch (RuntimeException e) {
+                // e.g. payments_default already holds rows of that month
+                log.error("Could not create partition {}: {}", partition, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     *
+     * Moves terminal payments created before the cutoff into the archive, one partition at a time.
+     *
+     */
+    public void archive(LocalDateTime cutoff){
+        List<String> partitions = jdbcTemplate.queryForList("select c.relname from pg_inherits i join pg_class c on c.oid = i.inhrelid " +
+                "where i.inhparent = 'payments'::regclass order by c.relname", String.class);
+
+        for (String partition : partitions) {
+            Matcher matcher = MONTH_PARTITION.matcher(partition);
+            if (matcher.matches()) {
+                YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+                if (month.plusMonths(1).atDay(1).atStartOfDay().isAfter(cutoff)) {
+                    // Partly inside the retention window
+                    if (month.atDay(1).atStartOfDay().isBefore(cutoff)) {
+                        archiveRows(partition, cutoff);
+                    }
+                    continue;
+                }
+                Boolean archived = transactionTemplate.execute(status -> archiveWholePartition(partition));
+                if (Boolean.TRUE.equals(archived)) {
+                    detachAndDrop(partition);
+                    continue;
+                }
+            }
+            archiveRows(partition, cutoff);
+        }
+    }
+
+    /**
+     *
+     * @return false if the partition still holds PENDING payments and was left alone
+     */
+    private boolean archiveWholePartition(String partition){
+        // Locks this (old) partition only: its writes wait, reads keep going. payments itself is locked by detachAndDrop
+        jdbcTemplate.execute("lock table " + partition + " in exclusive mode");
+        String comment = jdbcTemplate.queryForObject("select obj_description(?::regclass, 'pg_class')", String.class, partition);
+        if (ARCHIVED_MARK.equals(comment)) {
+            // Archived by an earlier run that could not detach it
+            return true;
+        }
+        Boolean pending = jdbcTemplate.queryForObject("select exists (select 1 from " + partition + " where status = ?)",
+                Boolean.class, PaymentStatus.PENDING.name());
+        if (Boolean.TRUE.equals(pending)) {
+            return false;
+        }
+
+        PaymentArchive.Writer writer = paymentArchive.open(partition);
+        try {
+            jdbcTemplate.query("select " + ARCHIVE_COLUMNS + " from " + partition + " p join parties s on s.id = p.sender_id " +
+                    "join parties r on r.id = p.receiver_id order by p.id", archiveRow(writer));
+        } catch (RuntimeException e) {
+            writer.abort();
+            throw e;
+        }
+        writer.commit();
+        jdbcTemplate.execute("comment on table " + partition + " is '" + ARCHIVED_MARK + "'");
+        return true;
+    }
+
+    /**
+     *
+     * Detaches and drops an archived partition. Waits at most detach-lock-timeout-ms for the lock on payments, while
+     * it waits new queries on payments queue behind it; on timeout the partition stays until the next run.
+     *
+     */
+    private void detachAndDrop(String partition){
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute("set local lock_timeout = " + detachLockTimeoutMillis);
+                jdbcTemplate.execute("alter table payments detach partition " + partition);
+                jdbcTemplate.execute("drop table " + partition);
+            });
+            log.info("Detached and dropped archived partition {}", partition);
+        } catch (DataAccessException e) {
+            if (!(e.getMostSpecificCause() instanceof SQLException sqlException)
+                    || !LOCK_NOT_AVAILABLE.equals(sqlException.getSQLState())) {
+                throw e;
+            }
+            log.info("Archived partition {} not detached, payments busy for more than {} ms, retrying next run",
+                    partition, detachLockTimeoutMillis);
+        }
+    }
+
+    private void archiveRows(String partition, LocalDateTime cutoff){
+        transactionTemplate.executeWithoutResult(status -> {
+            PaymentArchive.Writer writer = paymentArchive.open(partition);
+            try {
+                jdbcTemplate.query("with moved as (delete from " + partition + " where created_at < ? and status <> ? returning *) " +
+                        "select " + ARCHIVE_COLUMNS + " from moved p join parties s on s.id = p.sender_id " +
+                        "join parties r on r.id = p.receiver_id order by p.id",
+                        archiveRow(writer), Timestamp.valueOf(cutoff), PaymentStatus.PENDING.name());
+            } catch (RuntimeException e) {
+                writer.abort();
+                throw e;
+            }
+            if (writer.getRows() == 0) {
+                writer.abort();
+                return;
+            }
+            writer.commit();
+            log.info("Archived {} payments from partition {}", writer.getRows(), partition);
+        });
+    }
+
+    private static RowCallbackHandler archiveRow(PaymentArchive.Writer writer){
+        return resultSet -> writer.add(toResponse(resultSet));
+    }
+
+    private static PaymentResponse toResponse(ResultSet resultSet) throws SQLException {
+        return new PaymentResponse(resultSet.getLong("id"), resultSet.getString("sender"), resultSet.getString("receiver"),
+                resultSet.getBigDecimal("amount"), resultSet.getString("source_currency"),
+                resultSet.getString("destination_currency"), resultSet.getBigDecimal("exchange_rate"),
+                resultSet.getBigDecimal("pay_out_amount"), PaymentStatus.valueOf(resultSet.getString("status")),
+                resultSet.getString("message"), resultSet.getTimestamp("created_at").toLocalDateTime(),
+                resultSet.getTimestamp("processed_at").toLocalDateTime(), resultSet.getBoolean("fx_degraded"));
+    }
+}
@@ -1,17 +1,24 @@
 package com.example.crosspayment.service;
 
 
+import com.example.crosspayment.archive.PaymentArchive;
 import com.example.crosspayment.client.FXServiceClient;
+import com.example.crosspayment.config.ReplicaLagGuard;
+import com.example.crosspayment.dto.FXRateResponse;
 import com.example.crosspayment.dto.PaymentRequest;
 import com.example.crosspayment.dto.PaymentResponse;
 import com.example.crosspayment.exception.FxServiceException;
+import com.example.crosspayment.exception.InvalidQuoteException;
 import com.example.crosspayment.exception.PaymentNotFoundException;
 import com.example.crosspayment.model.Payment;
 import com.example.crosspayment.model.PaymentStatus;
 import com.example.crosspayment.repository.PaymentRepository;
+import com.example.crosspayment.tracing.PaymentTracer;
+import com.example.crosspayment.tracing.Span;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
@@ -36,55 +43,117 @@ import java.math.RoundingMode;
 @Slf4j
 public class PaymentService {
 
+    static final String DEGRADED_MESSAGE = "Payment processed with the last known FX rate, the FX service was unavailable.";
+
     private final FXServiceClient fxServiceClient;
     private final PaymentRepository paymentRepository;
+    private final QuoteService quoteService;
+    private final CorridorNettingService nettingService;
+    private final ReplicaLagGuard replicaLagGuard;
+    private final PartyService partyService;
+    private final PaymentArchive paymentArchive;
+    private final CorridorStatsService corridorStats;
+    private final PaymentIdFilter paymentIdFilter;
+    private final PaymentTracer tracer;
 
 
     @Transactional
     public PaymentResponse processPayment(PaymentRequest request) {
 
-        try {
-//            if (!fxServiceClient.isCurrencySupported(request.getSourceCurrency())) {
-//                throw new IllegalArgumentException("Source currency not supported: " + request.getSourceCurrency());
-//            }
-            if (!fxServiceClient.isCurrencySupported(request.getDestinationCurrency())) {
-                throw new IllegalArgumentException("Target currency not supported: " + request.getDestinationCurrency());
+        /**
+         *
+         * Retry of a payment that already committed on this quote (e.g. its response was lost): the same payment
+         *
+         */
+        if (request.getQuoteId() != null) {
+            Long usedBy = quoteService.usedBy(request.getQuoteId());
+            if (usedBy != null) {
+                return replay(request, usedBy);
+            }
+        }
+
+        /**
+         *
+         * Locked quote: the pair was already priced by the FX service when the quote was issued,
+         * so both the currency check and the FX call are skipped. The quote is used up by this payment.
+         *
+         */
+        BigDecimal lockedRate = request.getQuoteId() == null ? null :
+                quoteService.consumeLockedRate(request.getQuoteId(), request.getSourceCurrency(), request.getDestinationCurrency());
+
+        if (lockedRate == null) {
+            try (Span span = tracer.startSpan("payment.validate-currency")) {
+//                if (!fxServiceClient.isCurrencySupported(request.getSourceCurrency())) {
+//                    throw new IllegalArgumentException("Source currency not supported: " + request.getSourceCurrency());
+//                }
+                if (!fxServiceClient.isCurrencySupported(request.getDestinationCurrency())) {
+                    throw new IllegalArgumentException("Target currency not supported: " + request.getDestinationCurrency());
+                }
+            } catch (FxServiceException e) {
+                log.error("Error checking supported currencies: {}", e.getMessage());
+                throw new FxServiceException("Failed to validate supported currencies", e);
             }
-        } catch (FxServiceException e) {
-            log.error("Error checking supported currencies: {}", e.getMessage());
-            throw new FxServiceException("Failed to validate supported currencies", e);
         }
 
         /**
          *
          * Create a new Payment entity with PENDING status
+         * Sender and receiver are resolved to party ids (cached, see PartyService)
          *
          */
-        Payment payment = Payment.builder().sender(request.getSender()).receiver(request.getReceiver()).amount(request.getAmount()).
-                sourceCurrency(request.getSourceCurrency()).destinationCurrency(request.getDestinationCurrency()).
-                status(PaymentStatus.PENDING).build();
+        Payment payment;
+        try (Span span = tracer.startSpan("payment.resolve-parties")) {
+            payment = new Payment(partyService.resolve(request.getSender()), partyService.resolve(request.getReceiver()),
+                    request.getAmount(), request.getSourceCurrency(), request.getDestinationCurrency());
+        }
 
         /**
          *
          * Saving initial payment with PENDING status
          * Starting payment processing
          */
-        payment = paymentRepository.save(payment);
+        try (Span span = tracer.startSpan("payment.insert-pending")) {
+            payment = paymentRepository.save(payment);
+            span.tag("paymentId", payment.getId());
+        }
+        replicaLagGuard.recordWriteAfterCommit(payment.getId());
+        paymentIdFilter.add(payment.getId());
+        if (lockedRate != null) {
+            quoteService.recordPayment(request.getQuoteId(), payment.getId());
+        }
+
+        /**
+         *
+         * Corridor netting: leave the payment PENDING, it is quoted and settled with the rest of its corridor batch
+         *
+         */
+        if (lockedRate == null && nettingService.isEnabled()) {
+            nettingService.enqueueAfterCommit(payment);
+            log.info("Payment {} queued for corridor netting", payment.getId());
+            return mapToResponse(payment);
+        }
 
         try {
             /**
              *
-             * Get exchange rate from FXServiceClient
+             * Get exchange rate from FXServiceClient (traced as fx.quote / fx.attempt)
+             * A degraded quote is the corridor's last good rate, served while its breaker is open
              *
              */
-            BigDecimal exchangeRate = fxServiceClient.getExchangeRate(request.getSourceCurrency(), request.getDestinationCurrency());
+            FXRateResponse quote = lockedRate != null ? null :
+                    fxServiceClient.getQuote(request.getSourceCurrency(), request.getDestinationCurrency());
+            BigDecimal exchangeRate = lockedRate != null ? lockedRate : quote.getExchangeRate();
+            boolean fxDegraded = quote != null && quote.isDegraded();
 
             /**
              *
              * Calculate final amount after conversion
              *
              */
-            BigDecimal finalAmount = request.getAmount().multiply(exchangeRate).setScale(4, RoundingMode.HALF_UP);
+            BigDecimal finalAmount;
+            try (Span span = tracer.startSpan("payment.rate-math")) {
+                finalAmount = request.getAmount().multiply(exchangeRate).setScale(4, RoundingMode.HALF_UP);
+            }
 
             /**
              *
@@ -93,19 +162,33 @@ public class PaymentService {
              */
             payment.setExchangeRate(exchangeRate);
             payment.setPayOutAmount(finalAmount);
-            payment.setMessage("Payment processed successfully.");
+            payment.setFxDegraded(fxDegraded);
+            payment.setMessage(fxDegraded ? DEGRADED_MESSAGE : "Payment processed successfully.");
             payment.setStatus(PaymentStatus.SUCCESS);
             paymentRepository.save(payment);
 
-            log.info("Payment processed successfully: {}", payment.getId());
+            log.info("Payment processed successfully: {}{}", payment.getId(), fxDegraded ? " (last good FX rate)" : "");
         } catch (FxServiceException e) {
             payment.setStatus(PaymentStatus.FAILED);
             payment.setMessage(e.getMessage());
 
             log.error("Payment processing failed for payment id {}: {}", payment.getId(), e.getMessage());
         }
-        paymentRepository.save(payment);
-        return mapToResponse(payment);
+
+        /**
+         *
+         * Flushed here so the UPDATE is timed as its own stage instead of disappearing into the commit
+         *
+         */
+        try (Span span = tracer.startSpan("payment.update").tag("status", payment.getStatus())) {
+            paymentRepository.saveAndFlush(payment);
+        }
+        corridorStats.recordAfterCommit(payment.getSourceCurrency(), payment.getDestinationCurrency(), payment.getStatus(),
+                payment.getAmount(), payment.getExchangeRate());
+
+        try (Span span = tracer.startSpan("payment.map-response")) {
+            return mapToResponse(payment);
+        }
     }
 
     /**
@@ -115,16 +198,51 @@ public class PaymentService {
      *
      *
      *
+     * Single row read selected straight into the response (see PaymentRepository.findResponseById),
+     * no entity hydration and no physical transaction: SUPPORTS only marks the call read-only.
+     * Read-only work goes to a replica when routing is enabled, unless the id is too fresh (ReplicaLagGuard).
+     * Payments moved out of the database by the archive job are read from the PaymentArchive files.
+     * Ids that were never allocated are rejected by the PaymentIdFilter before any of that.
+     *
      * @param id PaymentID
      * @return PAyment response with all details
      * @throws PaymentNotFoundException if payment not found
      */
-    @Transactional(readOnly = true)
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public PaymentResponse getPaymentById(Long id){
         log.info("Retreiving payment with id: {}", id);
 
-        Payment payment = paymentRepository.findById(id).orElseThrow(() -> new PaymentNotFoundException("Payment not found with id: " + id));
-        return mapToResponse(payment);
+        if (!paymentIdFilter.mightExist(id)) {
+            throw new PaymentNotFoundException("Payment not found with id: " + id);
+        }
+
+        return replicaLagGuard.readById(id, () -> paymentRepository.findResponseById(id))
+                .or(() -> paymentArchive.find(id))
+                .orElseThrow(() -> {
+                    paymentIdFilter.recordNotFound(id);
+                    return new PaymentNotFoundException("Payment not found with id: " + id);
+                });
+    }
+
+    /**
+     *
+     *  The payment a quote was already used for, if the retried request is that same payment.
+     *
+     * @throws InvalidQuoteException if the request differs from the payment that used the quote
+     */
+    private PaymentResponse replay(PaymentRequest request, long paymentId){
+        PaymentResponse payment = paymentRepository.findResponseById(paymentId)
+                .filter(existing -> existing.getSender().equals(request.getSender())
+                        && existing.getReceiver().equals(request.getReceiver())
+                        && existing.getAmount().compareTo(request.getAmount()) == 0
+                        && existing.getSourceCurrency().equals(request.getSourceCurrency())
+                        && existing.getDestinationCurrency().equals(request.getDestinationCurrency()))
+                .orElseThrow(() -> new InvalidQuoteException("Quote not found or already used: " + request.getQuoteId()));
+        if (payment.getPayoutAmount() != null) {
+            payment.setPayoutAmount(payment.getPayoutAmount().setScale(2, RoundingMode.HALF_UP));
+        }
+        log.info("Quote {} already used by payment {}, returning it", request.getQuoteId(), paymentId);
+        return payment;
     }
 
     /**
@@ -136,15 +254,9 @@ public class PaymentService {
      * @return PaymentResponse DTO
      */
     private PaymentResponse mapToResponse(Payment payment){
-        return PaymentResponse.builder().id(payment.getId()).sender(payment.getSender()).
-                receiver(payment.getReceiver()).amount(payment.getAmount()).
-                sourceCurrency(payment.getSourceCurrency()).exchangeRate(payment.getExchangeRate()).
-                destinationCurrency(payment.getDestinationCurrency()).
-                payoutAmount(payment.getPayOutAmount().setScale(2, RoundingMode.HALF_UP)).
-                status(payment.getStatus()).
-                message(payment.getMessage()).
-                createdAt(payment.getCreatedAt()).
-                updatedAt(payment.getProcessedAt()).
-                build();
+        return new PaymentResponse(payment.getId(), payment.getSender().getName(), payment.getReceiver().getName(),
+                payment.getAmount(), payment.getSourceCurrency(), payment.getDestinationCurrency(), payment.getExchangeRate(),
+                payment.getPayOutAmount() == null ? null : payment.getPayOutAmount().setScale(2, RoundingMode.HALF_UP),
+                payment.getStatus(), payment.getMessage(), payment.getCreatedAt(), payment.getProcessedAt(), payment.isFxDegraded());
     }
 }
@@ -0,0 +1,246 @@
+package com.example.crosspayment.service;
+
+import com.example.crosspayment.client.FXServiceClient;
+import com.example.crosspayment.dto.FXRateResponse;
+import com.example.crosspayment.dto.QuoteRequest;
+import com.example.crosspayment.dto.QuoteResponse;
+import com.example.crosspayment.exception.AdmissionRejectedException;
+import com.example.crosspayment.exception.FxServiceException;
+import com.example.crosspayment.exception.InvalidQuoteException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ *
+ *  Quote service:
+ *      - Locks an FX rate for a currency pair (POST /api/quotes) using the same FX call as payments
+ *      - Keeps the locked quotes in memory until they expire
+ *      - Lets PaymentService execute against a locked quote without calling the FX service
+ *
+ *  Store: quote id (random UUID, from SecureRandom, so ids cannot be guessed from one another) -> immutable
+ *  LockedQuote, in a ConcurrentHashMap. Expired quotes are removed on lookup and swept once the store grows
+ *  past max-quotes.
+ *
+ *  A quote is single-use: the payment that executes against it removes it. If that payment's transaction
+ *  rolls back, the quote is put back until it expires, so the client can retry with the same quote id.
+ *  Once it commits, quote id -> payment id is kept for max-lock-seconds (so at least until the quote would have
+ *  expired), and a retry whose first response was lost gets the payment it already made (see PaymentService)
+ *  instead of having to quote again.
+ *
+ */
+@Service
+@Slf4j
+public class QuoteService {
+
+    private final FXServiceClient fxServiceClient;
+
+    private final long maxLockMillis;
+
+    private final int maxQuotes;
+
+    private final ConcurrentMap<UUID, LockedQuote> quotes = new ConcurrentHashMap<>();
+
+    /**
+     * used quotes: quote id -> committed payment, for max-lock-seconds after the commit
+     */
+    private final ConcurrentMap<UUID, UsedQuote> used = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    public QuoteService(FXServiceClient fxServiceClient,
+                        @Value("${payment.quote.max-lock-seconds:30}") long maxLockSeconds,
+                        @Value("${payment.quote.max-quotes:100000}") int maxQuotes) {
+        this.fxServiceClient = fxServiceClient;
+        this.maxLockMillis = maxLockSeconds * 1000;
+        this.maxQuotes = maxQuotes;
+    }
+
+    /**
+     *
+     * Gets a quote from the FX service and locks it.
+     * The lock lasts until the FX expiry time, capped at max-lock-seconds.
+     *
+     * @param request currency pair
+     * @return quote id, rate and expiry
+     */
+    public QuoteResponse createQuote(QuoteRequest request){
+        FXRateResponse fxQuote = fxServiceClient.getQuote(request.getSourceCurrency(), request.getDestinationCurrency());
+        if (fxQuote.isDegraded()) {
+            // A lock promises a live rate, a last good rate is only good for settling right away
+            throw new FxServiceException("FX corridor " + request.getSourceCurrency() + "-" + request.getDestinationCurrency()
+                    + " is temporarily unavailable, please try again later.");
+        }
+
+        long now = System.currentTimeMillis();
+        long expiresAt = Math.min(now + maxLockMillis, fxQuote.getExpiryEpochMillis());
+
+        if (quotes.size() + used.size() >= maxQuotes) {
+            sweepExpired(now);
+            if (quotes.size() + used.size() >= maxQuotes) {
+                throw new AdmissionRejectedException("Too many open quotes, please retry later.", HttpStatus.SERVICE_UNAVAILABLE, 1);
+            }
+        }
+
+        LockedQuote quote = new LockedQuote(request.getSourceCurrency(), request.getDestinationCurrency(),
+                fxQuote.getExchangeRate(), expiresAt);
+        UUID id;
+        do {
+            id = UUID.randomUUID();
+        } while (quotes.putIfAbsent(id, quote) != null);
+
+        log.info("Locked quote {} for {} to {} at {}", id, quote.sourceCurrency, quote.destinationCurrency, quote.exchangeRate);
+
+        return QuoteResponse.builder()
+                .quoteId(id.toString())
+                .sourceCurrency(quote.sourceCurrency)
+                .destinationCurrency(quote.destinationCurrency)
+                .exchangeRate(quote.exchangeRate)
+                .expiresAt(Instant.ofEpochMilli(expiresAt))
+                .build();
+    }
+
+    /**
+     *
+     * Resolves the locked rate for a payment and uses the quote up. Within a transaction, the quote is only
+     * gone for good once it commits; on rollback it is put back.
+     *
+     * @throws InvalidQuoteException if the quote is unknown, already used, expired or for another currency pair
+     */
+    public BigDecimal consumeLockedRate(String quoteId, String sourceCurrency, String destinationCurrency){
+        UUID id = parseId(quoteId);
+        LockedQuote quote = quotes.get(id);
+        if (quote == null) {
+            throw new InvalidQuoteException("Quote not found or already used: " + quoteId);
+        }
+        if (System.currentTimeMillis() >= quote.expiresAtMillis) {
+            quotes.remove(id, quote);
+            throw new InvalidQuoteException("Quote has expired: " + quoteId);
+        }
+        if (!quote.sourceCurrency.equals(sourceCurrency) || !quote.destinationCurrency.equals(destinationCurrency)) {
+            throw new InvalidQuoteException("Quote " + quoteId + " was issued for " + quote.sourceCurrency + " to " + quote.destinationCurrency);
+        }
+        if (!quotes.remove(id, quote)) {
+            // A concurrent payment used it first
+            throw new InvalidQuoteException("Quote not found or already used: " + quoteId);
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED && System.currentTimeMillis() < quote.expiresAtMillis) {
+                        quotes.putIfAbsent(id, quote);
+                    }
+                }
+            });
+        }
+        return quote.exchangeRate;
+    }
+
+    /**
+     *
+     * Remembers the payment that used the quote once the surrounding transaction commits, right away if there
+     * is none. Call after consumeLockedRate, in the same transaction.
+     *
+     */
+    public void recordPayment(String quoteId, long paymentId){
+        UUID id = parseId(quoteId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    used.put(id, new UsedQuote(paymentId, System.currentTimeMillis() + maxLockMillis));
+                }
+            });
+        } else {
+            used.put(id, new UsedQuote(paymentId, System.currentTimeMillis() + maxLockMillis));
+        }
+    }
+
+    /**
+     *
+     * @return the id of the committed payment that used the quote, null if it is unused, unknown or forgotten
+     */
+    public Long usedBy(String quoteId){
+        UUID id;
+        try {
+            id = UUID.fromString(quoteId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        UsedQuote usedQuote = used.get(id);
+        if (usedQuote == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() >= usedQuote.expiresAtMillis) {
+            used.remove(id, usedQuote);
+            return null;
+        }
+        return usedQuote.paymentId;
+    }
+
+    private static UUID parseId(String quoteId){
+        try {
+            return UUID.fromString(quoteId);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidQuoteException("Quote not found: " + quoteId);
+        }
+    }
+
+    private void sweepExpired(long now){
+        if (sweeping.compareAndSet(false, true)) {
+            try {
+                quotes.values().removeIf(quote -> now >= quote.expiresAtMillis);
+                used.values().removeIf(usedQuote -> now >= usedQuote.expiresAtMillis);
+            } finally {
+                sweeping.set(false);
+            }
+        }
+    }
+
+    /**
+     *
+     * Immutable locked quote, safe to share between request threads.
+     *
+     */
+    private static final class LockedQuote {
+
+        private final String sourceCurrency;
+
+        private final String destinationCurrency;
+
+        private final BigDecimal exchangeRate;
+
+        private final long expiresAtMillis;
+
+        private LockedQuote(String sourceCurrency, String destinationCurrency, BigDecimal exchangeRate, long expiresAtMillis) {
+            this.sourceCurrency = sourceCurrency;
+            this.destinationCurrency = destinationCurrency;
+            this.exchangeRate = exchangeRate;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    private static final class UsedQuote {
+
+        private final long paymentId;
+
+        private final long expiresAtMillis;
+
+        private UsedQuote(long paymentId, long expiresAtMillis) {
+            this.paymentId = paymentId;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.crosspayment.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ *
+ *  Scalable Bloom filter of long keys (Almeida et al.): a chain of plain Bloom filters.
+ *
+ *  Each layer holds `capacity` keys at its own false positive rate; when the newest layer is full a new one
+ *  is added with growth x the capacity and half the false positive rate, so the combined rate stays below
+ *  the configured one however many keys arrive: p * (1 - 0.5) * (1 + 0.5 + 0.25 + ...) <= p.
+ *
+ *  Bits live in AtomicLongArrays: add and mightContain are lock-free, only adding a layer is synchronized.
+ *  Once the next layer would exceed maxBits the filter is saturated: it stops recording keys and
+ *  mightContain answers true for everything, which is always a safe answer.
+ *
+ */
+final class ScalableBloomFilter {
+
+    private static final double TIGHTENING = 0.5;
+
+    private static final int GROWTH = 2;
+
+    private final double falsePositiveRate;
+
+    private final long maxBits;
+
+    private volatile Layer[] layers;
+
+    private volatile boolean saturated;
+
+    ScalableBloomFilter(long initialCapacity, double falsePositiveRate, long maxBits) {
+        this.falsePositiveRate = falsePositiveRate;
+        this.maxBits = maxBits;
+        Layer first = Layer.create(initialCapacity, falsePositiveRate * (1 - TIGHTENING));
+        if (first.bitCount() > maxBits) {
+            throw new IllegalArgumentException("Memory budget too small for " + initialCapacity + " ids at " + falsePositiveRate);
+        }
+        this.layers = new Layer[]{first};
+    }
+
+    void add(long key){
+        if (saturated) {
+            return;
+        }
+        long h1 = mix(key);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        if (contains(layers, h1, h2)) {
+            // Already there (or a false positive): re-adding would only fill the newest layer
+            return;
+        }
+
+        Layer[] current = layers;
+        Layer newest = current[current.length - 1];
+        if (newest.count.get() >= newest.capacity) {
+            newest = grow(newest);
+            if (newest == null) {
+                return;
+            }
+        }
+        newest.add(h1, h2);
+    }
+
+    boolean mightContain(long key){
+        if (saturated) {
+            return true;
+        }
+        long h1 = mix(key);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        return contains(layers, h1, h2);
+    }
+
+    private static boolean contains(Layer[] layers, long h1, long h2){
+        for (int i = layers.length - 1; i >= 0; i--) {
+            if (layers[i].contains(h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isSaturated(){
+        return saturated;
+    }
+
+    int layerCount(){
+        return layers.length;
+    }
+
+    long bitCount(){
+        long bits = 0;
+        for (Layer layer : layers) {
+            bits += layer.bitCount();
+        }
+        return bits;
+    }
+
+    long keyCount(){
+        long keys = 0;
+        for (Layer layer : layers) {
+            keys += layer.count.get();
+        }
+        return keys;
+    }
+
+    /**
+     *
+     * Upper bound of the false positive rate with the keys added so far.
+     *
+     */
+    double expectedFalsePositiveRate(){
+        double notFalsePositive = 1;
+        for (Layer layer : layers) {
+            notFalsePositive *= 1 - layer.expectedFalsePositiveRate();
+        }
+        return 1 - notFalsePositive;
+    }
+
+    private synchronized Layer grow(Layer full){
+        Layer[] current = layers;
+        Layer newest = current[current.length - 1];
+        if (newest != full) {
+            return newest;
+        }
+        double layerRate = falsePositiveRate * (1 - TIGHTENING) * Math.pow(TIGHTENING, current.length);
+        Layer next = Layer.create(full.capacity * GROWTH, layerRate);
+        if (bitCount() + next.bitCount() > maxBits) {
+            saturated = true;
+            return null;
+        }
+        Layer[] grown = new Layer[current.length + 1];
+        System.arraycopy(current, 0, grown, 0, current.length);
+        grown[current.length] = next;
+        layers = grown;
+        return next;
+    }
+
+    /**
+     *
+     * 64 bit finalizer of MurmurHash3: sequential ids spread over the whole bit array.
+     *
+     */
+    private static long mix(long key){
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        key *= 0xC4CEB9FE1A85EC53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static final class Layer {
+
+        private final long capacity;
+
+        private final int hashes;
+
+        private final long bits;
+
+        private final AtomicLongArray words;
+
+        private final AtomicLong count = new AtomicLong();
+
+        private Layer(long capacity, int hashes, long bits) {
+            this.capacity = capacity;
+            this.hashes = hashes;
+            this.bits = bits;
+            this.words = new AtomicLongArray((int) ((bits + 63) >>> 6));
+        }
+
+        /**
+         *
+         * m = -n ln p / (ln 2)^2 bits, k = m / n ln 2 hashes
+         *
+         */
+        private static Layer create(long capacity, double falsePositiveRate){
+            long bits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            bits = Math.max(64, Math.min(bits, 64L * Integer.MAX_VALUE));
+            int hashes = Math.max(1, (int) Math.round((double) bits / capacity * Math.log(2)));
+            return new Layer(capacity, hashes, bits);
+        }
+
+        private long bitCount(){
+            return bits;
+        }
+
+        private void add(long h1, long h2){
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bits);
+                words.getAndAccumulate((int) (bit >>> 6), 1L << bit, (current, mask) -> current | mask);
+            }
+            count.incrementAndGet();
+        }
+
+        private boolean contains(long h1, long h2){
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bits);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private double expectedFalsePositiveRate(){
+            return Math.pow(1 - Math.exp(-(double) hashes * count.get() / bits), hashes);
+        }
+    }
+}
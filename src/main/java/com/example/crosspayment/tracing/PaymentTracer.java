@@ -0,0 +1,259 @@
+package com.example.crosspayment.tracing;
+
+import com.example.crosspayment.dto.TraceResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ *  Per stage tracing of POST /api/payments with tail-based sampling.
+ *
+ *  Spans follow the OpenTelemetry model (128 bit trace id, 64 bit span ids, parent links, attributes) and the
+ *  current span is propagated to the FX service as a W3C traceparent header ({@link TraceparentInterceptor}),
+ *  but recording is in-house and thread confined:
+ *      - every request records all its spans into a per-thread {@link TraceBuffer}: no allocation, no locks
+ *      - when the root span ends the trace is kept only if it took slow-threshold-ms or more, or failed
+ *      - kept traces go to an in-memory ring (GET /api/traces) and, on a "payment-tracing" thread,
+ *        to a JSON lines file, one {@link TraceResponse} per line
+ *
+ *  So a fast request costs a few nanoTime() calls per stage and is forgotten; only the slow ones are
+ *  turned into objects and written out.
+ *
+ */
+@Component
+@Slf4j
+public class PaymentTracer {
+
+    private final boolean enabled;
+
+    private final long slowThresholdNanos;
+
+    private final boolean sampleErrors;
+
+    private final int recentLimit;
+
+    private final Path file;
+
+    private final long maxFileBytes;
+
+    private final ObjectMapper objectMapper;
+
+    private final ThreadLocal<TraceBuffer> buffers;
+
+    private final Deque<TraceResponse> recent = new ArrayDeque<>();
+
+    private final Counter sampled;
+
+    private final Counter discarded;
+
+    private final Counter exportDropped;
+
+    private ThreadPoolExecutor exporter;
+
+    public PaymentTracer(@Value("${payment.tracing.enabled:true}") boolean enabled,
+                         @Value("${payment.tracing.slow-threshold-ms:500}") long slowThresholdMillis,
+                         @Value("${payment.tracing.sample-errors:true}") boolean sampleErrors,
+                         @Value("${payment.tracing.max-spans:64}") int maxSpans,
+                         @Value("${payment.tracing.recent-traces:100}") int recentLimit,
+                         @Value("${payment.tracing.file:}") String file,
+                         @Value("${payment.tracing.max-file-mb:100}") long maxFileMb,
+                         ObjectMapper objectMapper,
+                         MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        this.sampleErrors = sampleErrors;
+        this.recentLimit = recentLimit;
+        this.file = file.isBlank() ? null : Paths.get(file);
+        this.maxFileBytes = maxFileMb * 1024 * 1024;
+        this.objectMapper = objectMapper;
+        this.buffers = ThreadLocal.withInitial(() -> new TraceBuffer(this, maxSpans));
+
+        this.sampled = Counter.builder("payment.tracing.traces").tag("result", "sampled").register(meterRegistry);
+        this.discarded = Counter.builder("payment.tracing.traces").tag("result", "discarded").register(meterRegistry);
+        this.exportDropped = Counter.builder("payment.tracing.export.dropped").register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start(){
+        if (!enabled || file == null) {
+            return;
+        }
+        exporter = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1000), runnable -> {
+            Thread thread = new Thread(runnable, "payment-tracing");
+            thread.setDaemon(true);
+            return thread;
+        }, (task, executor) -> exportDropped.increment());
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (exporter != null) {
+            exporter.shutdown();
+            exporter.awaitTermination(2, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     *
+     * Starts a new trace on this thread, or a child span if one is already running.
+     *
+     */
+    public Span startTrace(String name){
+        if (!enabled) {
+            return Span.NOOP;
+        }
+        TraceBuffer buffer = buffers.get();
+        return buffer.isActive() ? buffer.start(name) : buffer.startRoot(name);
+    }
+
+    /**
+     *
+     * Starts a child of the current span; {@link Span#NOOP} when this thread is not tracing.
+     *
+     */
+    public Span startSpan(String name){
+        if (!enabled) {
+            return Span.NOOP;
+        }
+        TraceBuffer buffer = buffers.get();
+        return buffer.isActive() ? buffer.start(name) : Span.NOOP;
+    }
+
+    /**
+     *
+     * @return W3C traceparent of the current span, null when this thread is not tracing
+     */
+    public String currentTraceparent(){
+        if (!enabled) {
+            return null;
+        }
+        TraceBuffer buffer = buffers.get();
+        Span span = buffer.currentSpan();
+        if (span == null) {
+            return null;
+        }
+        // Sampled flag set: the decision is only made at the end, downstream should record
+        return "00-" + hex(buffer.traceIdHigh) + hex(buffer.traceIdLow) + "-" + hex(span.spanId) + "-01";
+    }
+
+    /**
+     *
+     * @return the last sampled traces, newest first
+     */
+    public List<TraceResponse> getRecentTraces(int limit){
+        List<TraceResponse> traces = new ArrayList<>(Math.max(0, Math.min(limit, recentLimit)));
+        synchronized (recent) {
+            Iterator<TraceResponse> newestFirst = recent.descendingIterator();
+            while (newestFirst.hasNext() && traces.size() < limit) {
+                traces.add(newestFirst.next());
+            }
+        }
+        return traces;
+    }
+
+    void finish(TraceBuffer buffer){
+        try {
+            Span root = buffer.root();
+            if (root.endNanos - root.startNanos < slowThresholdNanos && !(sampleErrors && buffer.failed)) {
+                discarded.increment();
+                return;
+            }
+            sampled.increment();
+            TraceResponse trace = toResponse(buffer);
+            synchronized (recent) {
+                recent.addLast(trace);
+                if (recent.size() > recentLimit) {
+                    recent.removeFirst();
+                }
+            }
+            if (exporter != null) {
+                exporter.execute(() -> export(trace));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not sample trace: {}", e.getMessage());
+        } finally {
+            buffer.reset();
+        }
+    }
+
+    private TraceResponse toResponse(TraceBuffer buffer){
+        Span root = buffer.root();
+        if (buffer.truncated) {
+            root.tag("truncated", true);
+        }
+        List<TraceResponse.SpanData> spans = new ArrayList<>(buffer.size);
+        for (int i = 0; i < buffer.size; i++) {
+            Span span = buffer.span(i);
+            // Spans left open by an exception end with the root
+            long end = span.endNanos == 0 ? root.endNanos : span.endNanos;
+            Map<String, Object> attributes = new LinkedHashMap<>();
+            for (int a = 0; a < span.attributeCount; a++) {
+                attributes.put(span.attributeKeys[a], span.attributeValues[a]);
+            }
+            spans.add(TraceResponse.SpanData.builder()
+                    .spanId(hex(span.spanId))
+                    .parentSpanId(span.parent < 0 ? null : hex(buffer.span(span.parent).spanId))
+                    .name(span.name)
+                    .startMicros(TimeUnit.NANOSECONDS.toMicros(span.startNanos - root.startNanos))
+                    .durationMicros(TimeUnit.NANOSECONDS.toMicros(end - span.startNanos))
+                    .attributes(attributes)
+                    .error(span.error == null ? null : span.error.getClass().getSimpleName() + ": " + span.error.getMessage())
+                    .build());
+        }
+        return TraceResponse.builder()
+                .traceId(hex(buffer.traceIdHigh) + hex(buffer.traceIdLow))
+                .name(root.name)
+                .startedAt(Instant.EPOCH.plus(buffer.startEpochMicros, ChronoUnit.MICROS))
+                .durationMicros(TimeUnit.NANOSECONDS.toMicros(root.endNanos - root.startNanos))
+                .error(buffer.failed)
+                .spans(spans)
+                .build();
+    }
+
+    private void export(TraceResponse trace){
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            if (Files.exists(file) && Files.size(file) > maxFileBytes) {
+                Files.move(file, file.resolveSibling(file.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.writeString(file, objectMapper.writeValueAsString(trace) + System.lineSeparator(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            exportDropped.increment();
+            log.warn("Could not write trace {} to {}: {}", trace.getTraceId(), file, e.getMessage());
+        }
+    }
+
+    private static String hex(long value){
+        String digits = Long.toHexString(value);
+        return "0000000000000000".substring(digits.length()) + digits;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.crosspayment.tracing;
+
+/**
+ *
+ *  One timed stage of a trace, started by {@link PaymentTracer}. Use with try-with-resources:
+ *
+ *      try (Span span = tracer.startSpan("payment.insert-pending")) {
+ *          ...
+ *      }
+ *
+ *  Spans are pooled per thread and reused by the next trace on that thread, so recording one allocates nothing.
+ *  A handle is only valid until its trace ends; calls on a stale handle, or on {@link #NOOP} (returned when
+ *  nothing is being traced), do nothing.
+ *
+ */
+public final class Span implements AutoCloseable {
+
+    public static final Span NOOP = new Span(null, -1);
+
+    static final int MAX_ATTRIBUTES = 4;
+
+    private final TraceBuffer buffer;
+
+    final int index;
+
+    String name;
+
+    long spanId;
+
+    int parent;
+
+    long startNanos;
+
+    long endNanos;
+
+    final String[] attributeKeys = new String[MAX_ATTRIBUTES];
+
+    final Object[] attributeValues = new Object[MAX_ATTRIBUTES];
+
+    int attributeCount;
+
+    Throwable error;
+
+    private int generation;
+
+    Span(TraceBuffer buffer, int index) {
+        this.buffer = buffer;
+        this.index = index;
+    }
+
+    void open(String name, long spanId, int parent, int generation){
+        this.name = name;
+        this.spanId = spanId;
+        this.parent = parent;
+        this.generation = generation;
+        this.startNanos = System.nanoTime();
+        this.endNanos = 0;
+        this.attributeCount = 0;
+        this.error = null;
+    }
+
+    /**
+     *
+     * Adds an attribute; pass values that already exist (ids, enums, currency codes) to stay allocation free.
+     * Attributes beyond MAX_ATTRIBUTES are ignored.
+     *
+     */
+    public Span tag(String key, Object value){
+        if (isLive() && attributeCount < MAX_ATTRIBUTES) {
+            attributeKeys[attributeCount] = key;
+            attributeValues[attributeCount] = value;
+            attributeCount++;
+        }
+        return this;
+    }
+
+    /**
+     *
+     * Marks the span (and so the trace) as failed; failed traces are always sampled.
+     *
+     */
+    public void error(Throwable throwable){
+        if (isLive()) {
+            error = throwable;
+            buffer.failed = true;
+        }
+    }
+
+    public void end(){
+        if (isLive() && endNanos == 0) {
+            endNanos = System.nanoTime();
+            buffer.ended(this);
+        }
+    }
+
+    @Override
+    public void close(){
+        end();
+    }
+
+    void clear(){
+        for (int i = 0; i < attributeCount; i++) {
+            attributeKeys[i] = null;
+            attributeValues[i] = null;
+        }
+        attributeCount = 0;
+        error = null;
+    }
+
+    private boolean isLive(){
+        return buffer != null && buffer.generation == generation;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.crosspayment.tracing;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ *
+ *  Spans of the trace running on one thread: a fixed pool of {@link Span}s, reused trace after trace.
+ *
+ *  Only touched by its own thread. Ending the root span hands the buffer to {@link PaymentTracer#finish},
+ *  which samples it (or not) and resets it; the generation bump invalidates every handle of the old trace.
+ *
+ */
+final class TraceBuffer {
+
+    private final PaymentTracer tracer;
+
+    private final Span[] spans;
+
+    int size;
+
+    /**
+     * innermost open span, parent of the next one; -1 when idle
+     */
+    int current = -1;
+
+    int generation;
+
+    boolean failed;
+
+    boolean truncated;
+
+    long traceIdHigh;
+
+    long traceIdLow;
+
+    long startEpochMicros;
+
+    TraceBuffer(PaymentTracer tracer, int maxSpans) {
+        this.tracer = tracer;
+        this.spans = new Span[maxSpans];
+        for (int i = 0; i < maxSpans; i++) {
+            spans[i] = new Span(this, i);
+        }
+    }
+
+    boolean isActive(){
+        return size > 0;
+    }
+
+    Span root(){
+        return spans[0];
+    }
+
+    Span span(int index){
+        return spans[index];
+    }
+
+    Span currentSpan(){
+        return current < 0 ? null : spans[current];
+    }
+
+    Span startRoot(String name){
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        traceIdHigh = random.nextLong();
+        traceIdLow = random.nextLong() | 1;
+        startEpochMicros = System.currentTimeMillis() * 1000;
+        return start(name);
+    }
+
+    Span start(String name){
+        if (size == spans.length) {
+            truncated = true;
+            return Span.NOOP;
+        }
+        Span span = spans[size];
+        span.open(name, ThreadLocalRandom.current().nextLong() | 1, current, generation);
+        current = size++;
+        return span;
+    }
+
+    void ended(Span span){
+        // Pop back to the parent, also when a child was left open
+        for (int open = current; open >= 0; open = spans[open].parent) {
+            if (open == span.index) {
+                current = span.parent;
+                break;
+            }
+        }
+        if (span.index == 0) {
+            tracer.finish(this);
+        }
+    }
+
+    void reset(){
+        for (int i = 0; i < size; i++) {
+            spans[i].clear();
+        }
+        size = 0;
+        current = -1;
+        failed = false;
+        truncated = false;
+        generation++;
+    }
+}
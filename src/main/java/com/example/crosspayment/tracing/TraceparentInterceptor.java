@@ -0,0 +1,32 @@
+package com.example.crosspayment.tracing;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+
+/**
+ *
+ *  Adds the W3C traceparent of the current span to outgoing RestTemplate calls (the Twirp FX calls),
+ *  so the FX service can join its spans to the payment trace. Untraced calls go out unchanged.
+ *
+ */
+@RequiredArgsConstructor
+public class TraceparentInterceptor implements ClientHttpRequestInterceptor {
+
+    public static final String TRACEPARENT = "traceparent";
+
+    private final PaymentTracer tracer;
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        String traceparent = tracer.currentTraceparent();
+        if (traceparent != null) {
+            request.getHeaders().set(TRACEPARENT, traceparent);
+        }
+        return execution.execute(request, body);
+    }
+}
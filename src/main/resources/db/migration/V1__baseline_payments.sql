@@ -0,0 +1,16 @@
+-- Baseline: payments as previously created by spring.jpa.hibernate.ddl-auto=update.
+-- Databases that already have the table are baselined at version 1 (spring.flyway.baseline-on-migrate).
+CREATE TABLE IF NOT EXISTS payments (
+    id                   BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    sender               VARCHAR(255)   NOT NULL,
+    receiver             VARCHAR(255)   NOT NULL,
+    source_currency      VARCHAR(3)     NOT NULL,
+    destination_currency VARCHAR(3)     NOT NULL,
+    amount               NUMERIC(38, 2) NOT NULL,
+    exchange_rate        NUMERIC(19, 6),
+    pay_out_amount       NUMERIC(19, 2),
+    status               VARCHAR(255)   NOT NULL CHECK (status IN ('PENDING', 'SUCCESS', 'FAILED', 'CANCELLED')),
+    message              VARCHAR(500),
+    created_at           TIMESTAMP(6)   NOT NULL,
+    processed_at         TIMESTAMP(6)   NOT NULL
+);
@@ -0,0 +1,37 @@
+-- Sender / receiver names move to a parties dimension, payments keep 4 byte references.
+
+CREATE TABLE parties (
+    id   INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    CONSTRAINT uk_parties_name UNIQUE (name)
+);
+
+INSERT INTO parties (name)
+SELECT sender FROM payments
+UNION
+SELECT receiver FROM payments;
+
+ALTER TABLE payments
+    ADD COLUMN sender_id   INTEGER,
+    ADD COLUMN receiver_id INTEGER;
+
+-- Single pass, every row is rewritten once
+UPDATE payments p
+SET sender_id = s.id, receiver_id = r.id
+FROM parties s, parties r
+WHERE s.name = p.sender AND r.name = p.receiver;
+
+ALTER TABLE payments
+    ALTER COLUMN sender_id SET NOT NULL,
+    ALTER COLUMN receiver_id SET NOT NULL,
+    ADD CONSTRAINT fk_payments_sender FOREIGN KEY (sender_id) REFERENCES parties (id),
+    ADD CONSTRAINT fk_payments_receiver FOREIGN KEY (receiver_id) REFERENCES parties (id),
+    DROP COLUMN sender,
+    DROP COLUMN receiver;
+
+-- findBySender / findByReceiver
+CREATE INDEX idx_payments_sender_id ON payments (sender_id);
+CREATE INDEX idx_payments_receiver_id ON payments (receiver_id);
+
+-- DROP COLUMN only hides sender / receiver, the bytes stay in existing tuples until they are rewritten.
+-- VACUUM FULL payments (off-peak, it takes an exclusive lock) reclaims them on databases with history.
@@ -0,0 +1,64 @@
+-- payments becomes a table partitioned by month of created_at.
+--
+-- The primary key of a partitioned table has to contain the partition key, so it becomes (id, created_at);
+-- ids keep coming from one sequence and stay unique. Identity columns cannot be used on partitioned tables
+-- before PostgreSQL 17, the id default is a plain sequence instead (Hibernate reads it back the same way).
+--
+-- Partitions for the current and next months are created by PaymentPartitionService at startup and every
+-- maintenance interval. payments_default only catches rows outside every partition.
+--
+-- Existing rows are copied once: on a large table run this in a maintenance window.
+
+ALTER TABLE payments RENAME TO payments_unpartitioned;
+ALTER INDEX payments_pkey RENAME TO payments_unpartitioned_pkey;
+ALTER INDEX idx_payments_sender_id RENAME TO idx_payments_unpartitioned_sender_id;
+ALTER INDEX idx_payments_receiver_id RENAME TO idx_payments_unpartitioned_receiver_id;
+
+CREATE TABLE payments (
+    id                   BIGINT         NOT NULL,
+    sender_id            INTEGER        NOT NULL REFERENCES parties (id),
+    receiver_id          INTEGER        NOT NULL REFERENCES parties (id),
+    source_currency      VARCHAR(3)     NOT NULL,
+    destination_currency VARCHAR(3)     NOT NULL,
+    amount               NUMERIC(38, 2) NOT NULL,
+    exchange_rate        NUMERIC(19, 6),
+    pay_out_amount       NUMERIC(19, 2),
+    status               VARCHAR(255)   NOT NULL CHECK (status IN ('PENDING', 'SUCCESS', 'FAILED', 'CANCELLED')),
+    message              VARCHAR(500),
+    created_at           TIMESTAMP(6)   NOT NULL,
+    processed_at         TIMESTAMP(6)   NOT NULL,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+CREATE INDEX idx_payments_sender_id ON payments (sender_id);
+CREATE INDEX idx_payments_receiver_id ON payments (receiver_id);
+
+CREATE TABLE payments_default PARTITION OF payments DEFAULT;
+
+DO $$
+DECLARE
+    month_start DATE := date_trunc('month', coalesce((SELECT min(created_at) FROM payments_unpartitioned), now()));
+    last_month  DATE := date_trunc('month', now()) + INTERVAL '2 months';
+BEGIN
+    WHILE month_start <= last_month LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF payments FOR VALUES FROM (%L) TO (%L)',
+                       'payments_y' || to_char(month_start, 'YYYY') || 'm' || to_char(month_start, 'MM'),
+                       month_start, month_start + INTERVAL '1 month');
+        month_start := month_start + INTERVAL '1 month';
+    END LOOP;
+END $$;
+
+INSERT INTO payments (id, sender_id, receiver_id, source_currency, destination_currency, amount, exchange_rate,
+                      pay_out_amount, status, message, created_at, processed_at)
+SELECT id, sender_id, receiver_id, source_currency, destination_currency, amount, exchange_rate,
+       pay_out_amount, status, message, created_at, processed_at
+FROM payments_unpartitioned;
+
+-- Drops the identity sequence payments_id_seq with it
+DROP TABLE payments_unpartitioned;
+
+CREATE SEQUENCE payments_id_seq OWNED BY payments.id;
+SELECT setval('payments_id_seq', coalesce((SELECT max(id) FROM payments), 0) + 1, false);
+ALTER TABLE payments ALTER COLUMN id SET DEFAULT nextval('payments_id_seq');
+
+ANALYZE payments;
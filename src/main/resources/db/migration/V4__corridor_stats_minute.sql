@@ -0,0 +1,13 @@
+-- Per minute corridor aggregates rolled up by CorridorStatsService.
+-- Every instance adds its own counts (upsert with +=), so a row holds the whole cluster for that minute.
+CREATE TABLE corridor_stats_minute (
+    minute               TIMESTAMP(0)   NOT NULL,
+    source_currency      VARCHAR(3)     NOT NULL,
+    destination_currency VARCHAR(3)     NOT NULL,
+    payments             BIGINT         NOT NULL,
+    succeeded            BIGINT         NOT NULL,
+    failed               BIGINT         NOT NULL,
+    volume               NUMERIC(38, 2) NOT NULL,
+    rate_sum             NUMERIC(38, 10) NOT NULL,
+    PRIMARY KEY (minute, source_currency, destination_currency)
+);
@@ -0,0 +1,4 @@
+-- Flags payments settled with a corridor's last known good FX rate while the FX service was unavailable
+-- (degraded mode, FxLastGoodRates). Added to the partitioned parent, so every partition gets it; the constant
+-- default makes it a catalog-only change, no partition is rewritten.
+ALTER TABLE payments ADD COLUMN fx_degraded BOOLEAN NOT NULL DEFAULT FALSE;
@@ -0,0 +1,54 @@
+package com.example.crosspayment.reactive;
+
+import com.example.crosspayment.model.PaymentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ *
+ *  R2DBC mapping of the payments table.
+ *  Mirrors {@link com.example.crosspayment.model.Payment} column for column, the schema is owned by the Flyway migrations.
+ *  Sender and receiver are party ids (see ReactivePartyService), names are joined back in ReactivePaymentRepository.
+ *
+ *  There are no lifecycle callbacks in R2DBC, so createdAt and processedAt are set by ReactivePaymentService.
+ *
+ */
+@Table("payments")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentRecord {
+
+    @Id
+    private Long id;
+
+    private Integer senderId;
+
+    private Integer receiverId;
+
+    private String sourceCurrency;
+
+    private String destinationCurrency;
+
+    private BigDecimal amount;
+
+    private BigDecimal exchangeRate;
+
+    private BigDecimal payOutAmount;
+
+    private PaymentStatus status;
+
+    private String message;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime processedAt;
+}
@@ -0,0 +1,134 @@
+package com.example.crosspayment.reactive;
+
+import com.example.crosspayment.client.FxCorridorResilience;
+import com.example.crosspayment.dto.FXRateQuote;
+import com.example.crosspayment.dto.FXRateResponse;
+import com.example.crosspayment.dto.FXSupportedCurrency;
+import com.example.crosspayment.exception.FxServiceException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.retry.RetryOperator;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ *
+ *  Reactive FX service client:
+ *      - Same Twirp calls as FXServiceClient, over a non-blocking WebClient
+ *      - Quotes use the same per corridor retry/circuit breaker/bulkhead as FXServiceClient (FxCorridorResilience),
+ *        supported currencies the shared fxService instances, applied with the reactor operators
+ *        in the same order as the annotations (Retry wraps CircuitBreaker wraps Bulkhead wraps the call)
+ *      - Back-off between retries is a timer, no thread is parked while waiting
+ *
+ */
+@Component
+@Profile("reactive")
+@Slf4j
+public class ReactiveFXServiceClient {
+
+    private static final String GET_QUOTE_PATH = "/twirp/payments.v1.FXService/GetQuote";
+
+    private static final String GET_SUPPORTED_CURRENCIES_PATH = "/twirp/payments.v1.FXService/GetSupportedCurrencies";
+
+    private final WebClient fxWebClient;
+
+    private final FxCorridorResilience corridorResilience;
+
+    private final Retry retry;
+
+    private final CircuitBreaker circuitBreaker;
+
+    public ReactiveFXServiceClient(WebClient fxWebClient,
+                                   FxCorridorResilience corridorResilience,
+                                   RetryRegistry retryRegistry,
+                                   CircuitBreakerRegistry circuitBreakerRegistry) {
+        this.fxWebClient = fxWebClient;
+        this.corridorResilience = corridorResilience;
+        this.retry = retryRegistry.retry("fxService");
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker("fxService");
+    }
+
+    public Mono<BigDecimal> getExchangeRate(String sourceCountry, String destinationCounter){
+        String corridor = FxCorridorResilience.corridorKey(sourceCountry, destinationCounter);
+        FXRateQuote request = FXRateQuote.builder()
+                .sourceCountry(sourceCountry)
+                .targetCountry(destinationCounter)
+                .build();
+
+        return fxWebClient.post()
+                .uri(GET_QUOTE_PATH)
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(FXRateResponse.class)
+                .switchIfEmpty(Mono.error(() -> new FxServiceException("Invalid response from FX service")))
+                .map(this::validateRate)
+                .onErrorMap(e -> !(e instanceof FxServiceException), this::toFxServiceException)
+                .transformDeferred(BulkheadOperator.of(corridorResilience.bulkhead(corridor)))
+                .transformDeferred(CircuitBreakerOperator.of(corridorResilience.circuitBreaker(corridor)))
+                .transformDeferred(RetryOperator.of(corridorResilience.retry(corridor)))
+                .onErrorMap(t -> new FxServiceException(
+                        "FX service is unavailable after multiple attempts. Cannot retrieve exchange rate from " + sourceCountry + " to " + destinationCounter, t));
+    }
+
+    public Mono<List<String>> getSupportedCurrency(){
+        return fxWebClient.post()
+                .uri(GET_SUPPORTED_CURRENCIES_PATH)
+                .bodyValue(Collections.emptyMap())
+                .retrieve()
+                .bodyToMono(FXSupportedCurrency.class)
+                .switchIfEmpty(Mono.error(() -> new FxServiceException("Invalid response from FX service")))
+                .map(FXSupportedCurrency::getCurrencies)
+                .onErrorMap(e -> !(e instanceof FxServiceException), this::toFxServiceException)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(RetryOperator.of(retry))
+                .onErrorResume(t -> {
+                    log.error("FX service is unavailable.", t);
+                    return Mono.just(Collections.emptyList());
+                });
+    }
+
+    public Mono<Boolean> isCurrencySupported(String currencyCode) {
+        return getSupportedCurrency().map(currencies -> currencies.contains(currencyCode));
+    }
+
+    /**
+     *
+     * Same checks as the blocking client: the rate must be positive and the quote must not be expired.
+     *
+     */
+    private BigDecimal validateRate(FXRateResponse fxRateResponse){
+        if (fxRateResponse.getExchangeRate() == null || fxRateResponse.getExchangeRate().compareTo(BigDecimal.ZERO) <= 0){
+            log.error("Invalid exchange rate received: {}", fxRateResponse.getExchangeRate());
+            throw new FxServiceException("Invalid exchange rate received from FX service");
+        }
+
+        if (System.currentTimeMillis() > fxRateResponse.getExpiryEpochMillis()){
+            log.error("Received expired exchange rate with expiry time: {}", fxRateResponse.getExpiryTime());
+            throw new FxServiceException("Received expired exchange rate from FX service");
+        }
+        return fxRateResponse.getExchangeRate();
+    }
+
+    private FxServiceException toFxServiceException(Throwable e){
+        if (e instanceof WebClientResponseException responseException){
+            return new FxServiceException("HTTP error while calling FX service: " + responseException.getStatusCode(), e);
+        }
+        if (e instanceof WebClientRequestException){
+            return new FxServiceException("Resource access error while calling FX service: " + e.getMessage(), e);
+        }
+        return new FxServiceException("Error while calling FX service: " + e.getMessage(), e);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.crosspayment.reactive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ *
+ *  Reactive party service:
+ *      Non-blocking counterpart of PartyService: cached name -> id, upsert on a miss.
+ *      Statements are auto-committed here, so a resolved id can be cached right away.
+ *
+ */
+@Service
+@Profile("reactive")
+@Slf4j
+public class ReactivePartyService {
+
+    private static final String UPSERT = "with inserted as (insert into parties (name) values (:name) on conflict (name) do nothing returning id) " +
+            "select id from inserted union all select id from parties where name = :name limit 1";
+
+    private final DatabaseClient databaseClient;
+
+    private final int maxCachedParties;
+
+    private final ConcurrentMap<String, Integer> parties = new ConcurrentHashMap<>();
+
+    public ReactivePartyService(DatabaseClient databaseClient,
+                                @Value("${payment.party.max-cached-parties:100000}") int maxCachedParties) {
+        this.databaseClient = databaseClient;
+        this.maxCachedParties = maxCachedParties;
+    }
+
+    public Mono<Integer> resolveId(String name){
+        Integer cached = parties.get(name);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        // Empty when a concurrent insert committed after the statement started, the retry sees it
+        return upsert(name)
+                .switchIfEmpty(Mono.defer(() -> upsert(name)))
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("Could not resolve party: " + name)))
+                .doOnNext(id -> cache(name, id));
+    }
+
+    private Mono<Integer> upsert(String name){
+        return databaseClient.sql(UPSERT).bind("name", name)
+                .map(row -> row.get("id", Integer.class))
+                .one();
+    }
+
+    private void cache(String name, Integer id){
+        parties.put(name, id);
+        if (parties.size() > maxCachedParties) {
+            int toDrop = parties.size() / 10;
+            Iterator<String> names = parties.keySet().iterator();
+            while (toDrop-- > 0 && names.hasNext()) {
+                names.next();
+                names.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.crosspayment.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Profile;
+
+/**
+ *
+ *  Reactive payment application:
+ *      - Non-blocking variant of the payment API (WebFlux + WebClient + R2DBC)
+ *      - Only scans com.example.crosspayment.reactive, so the servlet/JPA beans are never created here
+ *      - Shares the payments table and the fxService Resilience4j instances with the servlet app
+ *
+ *  Build and run with: mvn -Preactive spring-boot:run
+ *
+ */
+@Profile("reactive")
+@SpringBootApplication
+public class ReactivePaymentApplication {
+
+    public static void main(String[] args) {
+        SpringApplication application = new SpringApplication(ReactivePaymentApplication.class);
+        application.setAdditionalProfiles("reactive");
+        application.run(args);
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.example.crosspayment.reactive;
+
+import com.example.crosspayment.dto.PaymentRequest;
+import com.example.crosspayment.dto.PaymentResponse;
+import com.example.crosspayment.model.PaymentStatus;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ *
+ *  Reactive payment controller:
+ *      Same contract as PaymentController (POST /api/payments, GET /api/payments/{id}),
+ *      served by WebFlux on the reactive profile port.
+ *
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/payments")
+@RequiredArgsConstructor
+@Slf4j
+public class ReactivePaymentController {
+
+    private final ReactivePaymentService paymentService;
+
+    @PostMapping
+    public Mono<ResponseEntity<PaymentResponse>> createPayment(@Valid @RequestBody PaymentRequest request){
+        return paymentService.processPayment(request)
+                .map(response -> {
+                    HttpStatus status = PaymentStatus.SUCCESS.equals(response.getStatus()) ? HttpStatus.OK : HttpStatus.CREATED;
+                    return ResponseEntity.status(status).body(response);
+                });
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<PaymentResponse>> getPayment(@PathVariable Long id){
+        log.info("Fetching payment with id: {}", id);
+        return paymentService.getPaymentById(id).map(ResponseEntity::ok);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.crosspayment.reactive;
+
+import com.example.crosspayment.dto.PaymentResponse;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/**
+ *
+ *  Reactive payment repository:
+ *      Non-blocking counterpart of PaymentRepository, backed by R2DBC.
+ *      - save(S entity): INSERT ... RETURNING id when id is null, UPDATE otherwise
+ *      - findById(ID id): Mono of the payment, empty if it does not exist
+ *
+ */
+@Repository
+public interface ReactivePaymentRepository extends R2dbcRepository<PaymentRecord, Long> {
+
+    /**
+     *
+     * GET /api/payments/{id} with party names joined back in, read straight into the response.
+     * Column aliases follow the PaymentResponse property names.
+     *
+     */
+    @Query("select p.id, s.name as sender, r.name as receiver, p.amount, p.source_currency, p.destination_currency, " +
+            "p.exchange_rate, p.pay_out_amount as payout_amount, p.status, p.message, p.created_at, p.processed_at as updated_at " +
+            "from payments p join parties s on s.id = p.sender_id join parties r on r.id = p.receiver_id where p.id = :id")
+    Mono<PaymentResponse> findResponseById(Long id);
+}
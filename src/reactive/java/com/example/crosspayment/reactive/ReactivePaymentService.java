@@ -0,0 +1,92 @@
+package com.example.crosspayment.reactive;
+
+import com.example.crosspayment.dto.PaymentRequest;
+import com.example.crosspayment.dto.PaymentResponse;
+import com.example.crosspayment.exception.FxServiceException;
+import com.example.crosspayment.exception.PaymentNotFoundException;
+import com.example.crosspayment.model.PaymentStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+
+/**
+ *
+ *  Reactive payment service:
+ *      Same flow as PaymentService (validate currency -> PENDING insert -> FX quote -> SUCCESS/FAILED update),
+ *      expressed as a single non-blocking pipeline.
+ *
+ *      The PENDING insert and the final update are separate statements, so no database connection
+ *      is held while the FX call is in flight.
+ *
+ */
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+@Slf4j
+public class ReactivePaymentService {
+
+    private final ReactiveFXServiceClient fxServiceClient;
+    private final ReactivePaymentRepository paymentRepository;
+    private final ReactivePartyService partyService;
+
+    public Mono<PaymentResponse> processPayment(PaymentRequest request) {
+        return fxServiceClient.isCurrencySupported(request.getDestinationCurrency())
+                .flatMap(supported -> {
+                    if (!supported) {
+                        return Mono.error(new IllegalArgumentException("Target currency not supported: " + request.getDestinationCurrency()));
+                    }
+                    return Mono.zip(partyService.resolveId(request.getSender()), partyService.resolveId(request.getReceiver()));
+                })
+                .flatMap(partyIds -> {
+                    LocalDateTime now = LocalDateTime.now();
+                    PaymentRecord payment = PaymentRecord.builder().senderId(partyIds.getT1()).receiverId(partyIds.getT2()).amount(request.getAmount()).
+                            sourceCurrency(request.getSourceCurrency()).destinationCurrency(request.getDestinationCurrency()).
+                            status(PaymentStatus.PENDING).createdAt(now).processedAt(now).build();
+                    return paymentRepository.save(payment);
+                })
+                .flatMap(payment -> fxServiceClient.getExchangeRate(request.getSourceCurrency(), request.getDestinationCurrency())
+                        .map(exchangeRate -> {
+                            payment.setExchangeRate(exchangeRate);
+                            payment.setPayOutAmount(request.getAmount().multiply(exchangeRate).setScale(4, RoundingMode.HALF_UP));
+                            payment.setMessage("Payment processed successfully.");
+                            payment.setStatus(PaymentStatus.SUCCESS);
+                            return payment;
+                        })
+                        .onErrorResume(FxServiceException.class, e -> {
+                            log.error("Payment processing failed for payment id {}: {}", payment.getId(), e.getMessage());
+                            payment.setStatus(PaymentStatus.FAILED);
+                            payment.setMessage(e.getMessage());
+                            return Mono.just(payment);
+                        }))
+                .flatMap(payment -> {
+                    payment.setProcessedAt(LocalDateTime.now());
+                    return paymentRepository.save(payment);
+                })
+                .map(payment -> mapToResponse(payment, request));
+    }
+
+    public Mono<PaymentResponse> getPaymentById(Long id){
+        return paymentRepository.findResponseById(id)
+                .switchIfEmpty(Mono.error(() -> new PaymentNotFoundException("Payment not found with id: " + id)));
+    }
+
+    private PaymentResponse mapToResponse(PaymentRecord payment, PaymentRequest request){
+        BigDecimal payoutAmount = payment.getPayOutAmount() == null ? null : payment.getPayOutAmount().setScale(2, RoundingMode.HALF_UP);
+        return PaymentResponse.builder().id(payment.getId()).sender(request.getSender()).
+                receiver(request.getReceiver()).amount(payment.getAmount()).
+                sourceCurrency(payment.getSourceCurrency()).exchangeRate(payment.getExchangeRate()).
+                destinationCurrency(payment.getDestinationCurrency()).
+                payoutAmount(payoutAmount).
+                status(payment.getStatus()).
+                message(payment.getMessage()).
+                createdAt(payment.getCreatedAt()).
+                updatedAt(payment.getProcessedAt()).
+                build();
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.crosspayment.reactive;
+
+import com.example.crosspayment.client.FxCorridorResilience;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+
+@Configuration
+@Profile("reactive")
+@Import(FxCorridorResilience.class)
+public class ReactiveWebClientConfig {
+
+    /**
+     * timeout value
+     * Same fx.service.timeout used by the RestTemplate in the servlet app
+     *
+     */
+    @Value("${fx.service.timeout:5000}")
+    private long timeout;
+
+    @Bean
+    public WebClient fxWebClient(WebClient.Builder builder, @Value("${fx.service.url}") String fxServiceUrl){
+        HttpClient httpClient = HttpClient.create()
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) timeout)
+                .responseTimeout(Duration.ofMillis(timeout));
+
+        return builder.baseUrl(fxServiceUrl.trim())
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+}
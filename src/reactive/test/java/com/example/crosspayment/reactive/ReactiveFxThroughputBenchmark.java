@@ -0,0 +1,164 @@
+package com.example.crosspayment.reactive;
+
+import com.example.crosspayment.client.FXServiceClient;
+import com.example.crosspayment.client.FxCorridorResilience;
+import com.example.crosspayment.client.FxLastGoodRates;
+import com.example.crosspayment.client.FxRateBroadcaster;
+import com.example.crosspayment.client.FxRateCache;
+import com.example.crosspayment.loadtest.FxStubServer;
+import com.example.crosspayment.loadtest.LatencyDistribution;
+import com.example.crosspayment.tracing.PaymentTracer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ *  Blocking vs reactive FX client under high concurrency against a slow FX stub.
+ *
+ *  Reports for each client:
+ *      - throughput per core: completed quotes per second of process CPU time
+ *      - memory per in-flight payment: heap growth while the stub holds `concurrency` requests open
+ *
+ *  Run with: mvn -Preactive test -Dtest=ReactiveFxThroughputBenchmark -Dbenchmark=true
+ *  Tunables: -Dbenchmark.concurrency, -Dbenchmark.requests, -Dbenchmark.fxLatencyMs
+ *
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ReactiveFxThroughputBenchmark {
+
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 2000);
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 20000);
+    private static final long FX_LATENCY_MS = Long.getLong("benchmark.fxLatencyMs", 250);
+
+    private static FxStubServer fxStub;
+    private static String fxUrl;
+
+    @BeforeAll
+    static void startSlowFxStub() throws Exception {
+        fxStub = FxStubServer.builder()
+                .latency(LatencyDistribution.constant(FX_LATENCY_MS))
+                .backlog(CONCURRENCY)
+                .build()
+                .start();
+        fxUrl = fxStub.getUrl();
+    }
+
+    @AfterAll
+    static void stopSlowFxStub() {
+        fxStub.close();
+    }
+
+    @Test
+    void blockingClient() throws Exception {
+        // Rate cache off: every quote has to reach the stub
+        FXServiceClient client = new FXServiceClient(new RestTemplate(), fxUrl, corridorResilience(),
+                new FxRateCache(false, 0, 0, new SimpleMeterRegistry()),
+                new FxLastGoodRates(false, 0, 0, new StandardEnvironment(), new SimpleMeterRegistry()),
+                new StaticListableBeanFactory().getBeanProvider(FxRateBroadcaster.class),
+                new PaymentTracer(false, 0, false, 1, 0, "", 0, new ObjectMapper(), new SimpleMeterRegistry()), 60_000);
+        ExecutorService workers = Executors.newFixedThreadPool(CONCURRENCY);
+        CountDownLatch done = new CountDownLatch(REQUESTS);
+
+        measure("blocking (RestTemplate, thread per request)", () -> {
+            for (int i = 0; i < REQUESTS; i++) {
+                workers.execute(() -> {
+                    try {
+                        client.getExchangeRate("USD", "EUR");
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+        }, done);
+        workers.shutdownNow();
+    }
+
+    @Test
+    void reactiveClient() throws Exception {
+        ConnectionProvider connections = ConnectionProvider.builder("fx-benchmark")
+                .maxConnections(CONCURRENCY)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        WebClient webClient = WebClient.builder()
+                .baseUrl(fxUrl)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                .build();
+        ReactiveFXServiceClient client = new ReactiveFXServiceClient(webClient, corridorResilience(),
+                RetryRegistry.ofDefaults(), CircuitBreakerRegistry.ofDefaults());
+        CountDownLatch done = new CountDownLatch(REQUESTS);
+
+        measure("reactive (WebClient, event loop)", () -> Flux.range(0, REQUESTS)
+                .flatMap(i -> client.getExchangeRate("USD", "EUR").doFinally(signal -> done.countDown()), CONCURRENCY)
+                .subscribe(), done);
+        connections.dispose();
+    }
+
+    /**
+     *
+     * Corridor defaults sized so the bulkhead admits the whole benchmark concurrency.
+     *
+     */
+    private static FxCorridorResilience corridorResilience() {
+        return new FxCorridorResilience(
+                RetryRegistry.of(Map.of(FxCorridorResilience.CORRIDOR_CONFIG, RetryConfig.ofDefaults())),
+                CircuitBreakerRegistry.of(Map.of(FxCorridorResilience.CORRIDOR_CONFIG, CircuitBreakerConfig.ofDefaults())),
+                BulkheadRegistry.of(Map.of(FxCorridorResilience.CORRIDOR_CONFIG,
+                        BulkheadConfig.custom().maxConcurrentCalls(CONCURRENCY).build())));
+    }
+
+    private void measure(String label, Runnable load, CountDownLatch done) throws Exception {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        com.sun.management.OperatingSystemMXBean os =
+                (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+        System.gc();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+        long cpuBefore = os.getProcessCpuTime();
+        long start = System.nanoTime();
+
+        load.run();
+
+        while (fxStub.getInFlight() < CONCURRENCY * 9 / 10 && done.getCount() > 0) {
+            Thread.sleep(5);
+        }
+        int observedInFlight = fxStub.getInFlight();
+        System.gc();
+        long heapAtPeak = memory.getHeapMemoryUsage().getUsed();
+
+        done.await(10, TimeUnit.MINUTES);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        double cpuSeconds = (os.getProcessCpuTime() - cpuBefore) / 1e9;
+
+        System.out.printf("%-45s requests=%d concurrency=%d fxLatency=%dms%n", label, REQUESTS, CONCURRENCY, FX_LATENCY_MS);
+        System.out.printf("    throughput=%.0f req/s  per-core=%.0f req/cpu-s  threads=%d%n",
+                REQUESTS / elapsedSeconds, REQUESTS / cpuSeconds, Thread.activeCount());
+        System.out.printf("    in-flight=%d  heap/in-flight=%.1f KiB%n",
+                observedInFlight, (heapAtPeak - heapBefore) / 1024.0 / Math.max(1, observedInFlight));
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.crosspayment.benchmark;
+
+import com.example.crosspayment.dto.PaymentRequest;
+import com.example.crosspayment.dto.PaymentResponse;
+import com.example.crosspayment.loadtest.FxStubServer;
+import com.example.crosspayment.service.PaymentService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ *  Allocation budget of the payment hot path.
+ *
+ *  Runs PaymentService.processPayment against an {@link FxStubServer} (quotes mostly served by the rate cache,
+ *  as in steady state), records JFR allocation events (jdk.ObjectAllocationInNewTLAB / OutsideTLAB) of the
+ *  calling thread around `payments` payments and fails if the bytes allocated per payment exceed
+ *  payment.process.bytes-per-payment in src/test/resources/allocation-budget.properties.
+ *
+ *  target/allocation holds the recording (open it in JDK Mission Control) and a report of the top allocated
+ *  classes and allocation sites in this code base, to find what pushed the number up.
+ *
+ *  Runs against an embedded PostgreSQL (migrated by Flyway like production), thrown away with its rows after
+ *  the run. Debug SQL logging is switched off: the budget is for the code, not for the log output.
+ *
+ *  Run with: mvn test -Dtest=PaymentAllocationBudgetTest -Dbenchmark=true
+ *  Re-record the budget (measured + 10%) after an intentional change:
+ *      mvn test -Dtest=PaymentAllocationBudgetTest -Dbenchmark=true -Dallocation-budget.record=true
+ *
+ */
+@SpringBootTest(properties = {
+        "payment.netting.enabled=false",
+        "logging.level.org.hibernate.SQL=INFO",
+        "logging.level.org.springframework.web=INFO"})
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PaymentAllocationBudgetTest {
+
+    private static final Path BUDGET_FILE = Paths.get("src/test/resources/allocation-budget.properties");
+
+    private static final String BUDGET_KEY = "payment.process.bytes-per-payment";
+
+    private static final Path REPORT_DIRECTORY = Paths.get("target/allocation");
+
+    private static final int WARMUP = Integer.getInteger("allocation-budget.warmup", 2_000);
+
+    private static final int PAYMENTS = Integer.getInteger("allocation-budget.payments", 2_000);
+
+    private static final double HEADROOM = 1.10;
+
+    private static final String OWN_PACKAGE = "com.example.crosspayment.";
+
+    /**
+     * Built up front so the test's own allocations stay out of the measurement
+     */
+    private static final List<PaymentRequest> REQUESTS = IntStream.range(0, 10)
+            .mapToObj(i -> PaymentRequest.builder()
+                    .sender("Budget Sender " + i)
+                    .receiver("Budget Receiver " + i)
+                    .amount(new BigDecimal("100.00"))
+                    .sourceCurrency("USD")
+                    .destinationCurrency("EUR")
+                    .build())
+            .toList();
+
+    private static EmbeddedPostgres postgres;
+
+    private static FxStubServer fxStub;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @DynamicPropertySource
+    static void environment(DynamicPropertyRegistry registry) {
+        try {
+            postgres = EmbeddedPostgres.builder().start();
+            fxStub = FxStubServer.builder().seed(42L).build().start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+        registry.add("fx.service.url", fxStub::getUrl);
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        fxStub.close();
+        postgres.close();
+    }
+
+    @Test
+    void processPaymentStaysWithinBudget() throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            pay(i);
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        Files.createDirectories(REPORT_DIRECTORY);
+        Path jfr = REPORT_DIRECTORY.resolve("process-payment.jfr");
+
+        long threadBytesBefore = threads.getThreadAllocatedBytes(threadId);
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.ObjectAllocationInNewTLAB").withStackTrace();
+            recording.enable("jdk.ObjectAllocationOutsideTLAB").withStackTrace();
+            recording.start();
+            for (int i = 0; i < PAYMENTS; i++) {
+                pay(i);
+            }
+            recording.stop();
+            recording.dump(jfr);
+        }
+        long threadBytes = threads.getThreadAllocatedBytes(threadId) - threadBytesBefore;
+
+        AllocationProfile profile = AllocationProfile.read(jfr, threadId);
+        long perPayment = profile.bytes / PAYMENTS;
+        String report = profile.report(PAYMENTS, threadBytes / PAYMENTS);
+        Files.writeString(REPORT_DIRECTORY.resolve("process-payment.txt"), report, StandardCharsets.UTF_8);
+        System.out.print(report);
+
+        if (Boolean.getBoolean("allocation-budget.record")) {
+            recordBudget((long) (perPayment * HEADROOM));
+            return;
+        }
+        long budget = loadBudget();
+        assertTrue(perPayment <= budget, String.format("processPayment allocates %d bytes per payment, budget is %d. "
+                + "See %s; if the increase is intended, re-record with -Dallocation-budget.record=true",
+                perPayment, budget, REPORT_DIRECTORY.resolve("process-payment.txt")));
+    }
+
+    private PaymentResponse pay(int i) {
+        return paymentService.processPayment(REQUESTS.get(i % REQUESTS.size()));
+    }
+
+    private static long loadBudget() throws IOException {
+        Properties budget = new Properties();
+        try (InputStream in = PaymentAllocationBudgetTest.class.getResourceAsStream("/allocation-budget.properties")) {
+            budget.load(in);
+        }
+        return Long.parseLong(budget.getProperty(BUDGET_KEY).trim());
+    }
+
+    private static void recordBudget(long bytes) throws IOException {
+        String content = Files.readString(BUDGET_FILE, StandardCharsets.UTF_8);
+        Files.writeString(BUDGET_FILE, content.replaceAll("(?m)^" + BUDGET_KEY.replace(".", "\\.") + "=.*$", BUDGET_KEY + "=" + bytes),
+                StandardCharsets.UTF_8);
+        System.out.printf("Recorded %s=%d in %s%n", BUDGET_KEY, bytes, BUDGET_FILE);
+    }
+
+    /**
+     *
+     * Bytes allocated by one thread in a recording, by class and by first frame in this code base.
+     *
+     */
+    private static final class AllocationProfile {
+
+        private long bytes;
+
+        private final Map<String, Long> byClass = new HashMap<>();
+
+        private final Map<String, Long> bySite = new HashMap<>();
+
+        private static AllocationProfile read(Path jfr, long threadId) throws IOException {
+            AllocationProfile profile = new AllocationProfile();
+            for (RecordedEvent event : RecordingFile.readAllEvents(jfr)) {
+                if (event.getThread() == null || event.getThread().getJavaThreadId() != threadId) {
+                    continue;
+                }
+                long size = event.hasField("tlabSize") ? event.getLong("tlabSize") : event.getLong("allocationSize");
+                profile.bytes += size;
+                profile.byClass.merge(event.getClass("objectClass").getName(), size, Long::sum);
+                profile.bySite.merge(site(event), size, Long::sum);
+            }
+            return profile;
+        }
+
+        private static String site(RecordedEvent event){
+            if (event.getStackTrace() == null) {
+                return "(no stack trace)";
+            }
+            for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+                String type = frame.getMethod().getType().getName();
+                if (type.startsWith(OWN_PACKAGE) && !type.contains("AllocationBudgetTest")) {
+                    return type.substring(OWN_PACKAGE.length()) + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+                }
+            }
+            return "(outside " + OWN_PACKAGE + "*)";
+        }
+
+        private String report(int payments, long threadBytesPerPayment){
+            StringBuilder report = new StringBuilder();
+            report.append(String.format("processPayment: %d bytes/payment (JFR, %d payments), %d bytes/payment (ThreadMXBean)%n",
+                    bytes / payments, payments, threadBytesPerPayment));
+            report.append("  top allocated classes (bytes/payment):\n");
+            top(byClass, payments, report);
+            report.append("  top allocation sites in ").append(OWN_PACKAGE).append("* (bytes/payment, by caller frame):\n");
+            top(bySite, payments, report);
+            return report.toString();
+        }
+
+        private static void top(Map<String, Long> bytes, int payments, StringBuilder report){
+            bytes.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                    .limit(15)
+                    .forEach(entry -> report.append(String.format("    %10d  %s%n", entry.getValue() / payments, entry.getKey())));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.crosspayment.benchmark;
+
+import com.example.crosspayment.config.PaymentJsonMessageConverter;
+import com.example.crosspayment.dto.FXRateQuote;
+import com.example.crosspayment.dto.FXRateResponse;
+import com.example.crosspayment.dto.PaymentRequest;
+import com.example.crosspayment.dto.PaymentResponse;
+import com.example.crosspayment.model.PaymentStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ *  JSON cost per payment, each on an ObjectMapper configured like Spring Boot's:
+ *
+ *      spring:    MappingJackson2HttpMessageConverter alone (before)
+ *      fast-path: the JsonConfig setup, PaymentJsonMessageConverter reads and MappingJackson2HttpMessageConverter
+ *                 writes
+ *
+ *  deserializeRequest: POST /api/payments body -> PaymentRequest
+ *  serializeResponse:  PaymentResponse -> response body
+ *  fxQuote:            FXRateQuote -> FX request body, FX response body -> FXRateResponse (a rate cache miss)
+ *
+ *  Reports ns/op and, with the GC profiler, bytes allocated per op (gc.alloc.rate.norm).
+ *  Results also go to target/benchmark/payment-json.json.
+ *
+ *  Run with: mvn test -Dtest=PaymentJsonBenchmark -Dbenchmark=true
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaymentJsonBenchmark {
+
+    private static final byte[] REQUEST = ("{\"sender\":\"Bob Doe\",\"receiver\":\"John Wick\",\"amount\":\"400.00\","
+            + "\"sourceCurrency\":\"USD\",\"destinationCurrency\":\"EUR\"}").getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] FX_RESPONSE = "{\"exchange_rate\":0.916487620119132,\"expiry_time\":\"2026-01-20T20:18:42Z\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static final PaymentResponse RESPONSE = new PaymentResponse(123456L, "Bob Doe", "John Wick",
+            new BigDecimal("400.00"), "USD", "EUR", new BigDecimal("0.916488"), new BigDecimal("366.60"),
+            PaymentStatus.SUCCESS, "Payment processed successfully.",
+            LocalDateTime.of(2026, 1, 20, 20, 8, 42), LocalDateTime.of(2026, 1, 20, 20, 8, 43), false);
+
+    private static final FXRateQuote QUOTE = new FXRateQuote("USD", "EUR");
+
+    @Param({"spring", "fast-path"})
+    public String converter;
+
+    private HttpMessageConverter<Object> reader;
+
+    private HttpMessageConverter<Object> writer;
+
+    @Setup
+    public void setUp(){
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        ObjectMapper objectMapper = builder.build();
+        writer = new MappingJackson2HttpMessageConverter(objectMapper);
+        reader = "fast-path".equals(converter)
+                ? new PaymentJsonMessageConverter(objectMapper, List.of(PaymentRequest.class, FXRateResponse.class))
+                : writer;
+    }
+
+    @Benchmark
+    public Object deserializeRequest() throws IOException {
+        return reader.read(PaymentRequest.class, new MockHttpInputMessage(REQUEST));
+    }
+
+    @Benchmark
+    public Object serializeResponse() throws IOException {
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        writer.write(RESPONSE, MediaType.APPLICATION_JSON, output);
+        return output;
+    }
+
+    @Benchmark
+    public Object fxQuote() throws IOException {
+        writer.write(QUOTE, MediaType.APPLICATION_JSON, new MockHttpOutputMessage());
+        return reader.read(FXRateResponse.class, new MockHttpInputMessage(FX_RESPONSE));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void run() throws Exception {
+        Files.createDirectories(Paths.get("target/benchmark"));
+        new Runner(new OptionsBuilder()
+                .include(PaymentJsonBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/benchmark/payment-json.json")
+                .build()).run();
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.crosspayment.benchmark;
+
+import com.example.crosspayment.dto.PaymentResponse;
+import com.example.crosspayment.model.Payment;
+import com.example.crosspayment.model.PaymentStatus;
+import com.example.crosspayment.repository.PaymentRepository;
+import com.example.crosspayment.service.PartyService;
+import com.example.crosspayment.service.PaymentService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.function.LongFunction;
+
+/**
+ *
+ *  GET /api/payments/{id} read path: entity hydration vs DTO projection.
+ *
+ *  entity:     read-only transaction + findById + field by field mapping (the previous getPaymentById),
+ *              party names are lazy loaded
+ *  projection: PaymentService.getPaymentById (select new PaymentResponse(...), no transaction)
+ *
+ *  Reports average latency and bytes allocated by the calling thread per GET.
+ *  Needs the database from application.properties.
+ *
+ *  Run with: mvn test -Dtest=PaymentReadPathBenchmark -Dbenchmark=true
+ *
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PaymentReadPathBenchmark {
+
+    private static final int WARMUP = Integer.getInteger("benchmark.warmup", 5_000);
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 20_000);
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PartyService partyService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void compareReadPaths() {
+        Payment payment = paymentRepository.save(Payment.builder()
+                .sender(partyService.resolve("Bench Sender")).receiver(partyService.resolve("Bench Receiver"))
+                .amount(new BigDecimal("100.00")).sourceCurrency("USD").destinationCurrency("EUR")
+                .exchangeRate(new BigDecimal("0.920000")).payOutAmount(new BigDecimal("92.00"))
+                .status(PaymentStatus.SUCCESS).message("Payment processed successfully.").build());
+        long id = payment.getId();
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        run("entity", id, paymentId -> readOnly.execute(status ->
+                toResponse(paymentRepository.findById(paymentId).orElseThrow())));
+        run("projection", id, paymentService::getPaymentById);
+
+        paymentRepository.deleteById(id);
+    }
+
+    private void run(String label, long id, LongFunction<PaymentResponse> read) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < WARMUP; i++) {
+            read.apply(id);
+        }
+
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            read.apply(id);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        System.out.printf("%-12s avg=%.1f us/get  alloc=%d bytes/get%n",
+                label, elapsed / 1_000.0 / ITERATIONS, allocated / ITERATIONS);
+    }
+
+    private static PaymentResponse toResponse(Payment payment) {
+        return PaymentResponse.builder().id(payment.getId()).sender(payment.getSender().getName())
+                .receiver(payment.getReceiver().getName()).amount(payment.getAmount())
+                .sourceCurrency(payment.getSourceCurrency()).exchangeRate(payment.getExchangeRate())
+                .destinationCurrency(payment.getDestinationCurrency())
+                .payoutAmount(payment.getPayOutAmount().setScale(2, RoundingMode.HALF_UP))
+                .status(payment.getStatus()).message(payment.getMessage())
+                .createdAt(payment.getCreatedAt()).updatedAt(payment.getProcessedAt())
+                .build();
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.crosspayment.client;
+
+import com.example.crosspayment.dto.FXRateResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FxLastGoodRatesTest {
+
+    private static final String CORRIDOR = "US-GB";
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    private final MockEnvironment environment = new MockEnvironment();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private FxLastGoodRates lastGoodRates(boolean enabled){
+        return new FxLastGoodRates(enabled, 60_000, 50, environment, meterRegistry, now::get);
+    }
+
+    private static FXRateResponse quote(String rate){
+        return new FXRateResponse(new BigDecimal(rate), null);
+    }
+
+    private double count(String result){
+        return meterRegistry.counter("fx.degraded.quotes", "corridor", CORRIDOR, "result", result).count();
+    }
+
+    @Test
+    void disabledNeverServes(){
+        FxLastGoodRates rates = lastGoodRates(false);
+        rates.record(CORRIDOR, quote("0.79"));
+
+        assertNull(rates.degradedQuote(CORRIDOR));
+    }
+
+    @Test
+    void noRateYet(){
+        assertNull(lastGoodRates(true).degradedQuote(CORRIDOR));
+        assertEquals(1, count("none"));
+    }
+
+    @Test
+    void servesLastRateWithinBudget(){
+        FxLastGoodRates rates = lastGoodRates(true);
+        rates.record(CORRIDOR, quote("0.7900"));
+        now.addAndGet(1_000);
+        rates.record(CORRIDOR, quote("0.7902"));
+        now.addAndGet(59_000);
+
+        FXRateResponse degraded = rates.degradedQuote(CORRIDOR);
+
+        assertEquals(new BigDecimal("0.7902"), degraded.getExchangeRate());
+        assertTrue(degraded.isDegraded());
+        assertNull(degraded.getExpiryTime());
+        assertEquals(1, count("served"));
+    }
+
+    @Test
+    void staleRateIsNotServed(){
+        FxLastGoodRates rates = lastGoodRates(true);
+        rates.record(CORRIDOR, quote("0.79"));
+        now.addAndGet(60_001);
+
+        assertNull(rates.degradedQuote(CORRIDOR));
+        assertEquals(1, count("stale"));
+    }
+
+    @Test
+    void volatileCorridorIsNotServed(){
+        FxLastGoodRates rates = lastGoodRates(true);
+        rates.record(CORRIDOR, quote("0.7900"));
+        now.addAndGet(1_000);
+        // 0.0050 / 0.7950 = 62.9 bps > 50
+        rates.record(CORRIDOR, quote("0.7950"));
+
+        assertNull(rates.degradedQuote(CORRIDOR));
+        assertEquals(1, count("out-of-band"));
+    }
+
+    @Test
+    void movesOutsideTheStalenessWindowDoNotCount(){
+        FxLastGoodRates rates = lastGoodRates(true);
+        rates.record(CORRIDOR, quote("0.7500"));
+        now.addAndGet(60_001);
+        rates.record(CORRIDOR, quote("0.7900"));
+
+        assertEquals(new BigDecimal("0.7900"), rates.degradedQuote(CORRIDOR).getExchangeRate());
+    }
+
+    @Test
+    void corridorOverrides(){
+        environment.setProperty("fx.degraded.corridors." + CORRIDOR + ".max-staleness-ms", "0");
+        environment.setProperty("fx.degraded.corridors.US-JP.tolerance-bps", "100");
+        FxLastGoodRates rates = lastGoodRates(true);
+        rates.record(CORRIDOR, quote("0.79"));
+        rates.record("US-JP", quote("150.00"));
+        now.addAndGet(1);
+        // 1.20 / 151.20 = 79.4 bps, within the corridor's 100
+        rates.record("US-JP", quote("151.20"));
+
+        assertNull(rates.degradedQuote(CORRIDOR));
+        assertEquals(new BigDecimal("151.20"), rates.degradedQuote("US-JP").getExchangeRate());
+    }
+
+    @Test
+    void evictedRateIsForgotten(){
+        FxLastGoodRates rates = lastGoodRates(true);
+        rates.record(CORRIDOR, quote("0.79"));
+        rates.evict(CORRIDOR);
+
+        assertNull(rates.degradedQuote(CORRIDOR));
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.crosspayment.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ *  In-process fake of the Twirp FX service (fx.service.url), for benchmarks and load tests.
+ *
+ *      POST /twirp/payments.v1.FXService/GetQuote                 {"exchange_rate": ..., "expiry_time": ...}
+ *      POST /twirp/payments.v1.FXService/GetSupportedCurrencies   {"currencies": [...]}
+ *
+ *  Configurable:
+ *      - latency:      response delay per request, see {@link LatencyDistribution}
+ *      - errorRate:    fraction of GetQuote calls answered 503 {"code":"unavailable"}
+ *      - expiry:       quote validity; zero or negative returns quotes that are already expired
+ *      - expiredRate:  fraction of successful quotes whose expiry_time is already in the past
+ *      - spikeRate:    fraction of GetQuote calls delayed by spikeLatency instead of a latency sample
+ *      - outage(corridor, down): at runtime, every GetQuote of the corridor (e.g. USD-INR) answered 503
+ *                      until it is brought back, to drive a circuit breaker open and closed again
+ *      - currencies:   supported currencies; a quote for any other one is 400 {"code":"invalid_argument"}
+ *      - seed:         latency and error sampling are reproducible for the same seed
+ *
+ *  Responses are sent from a small scheduler after the sampled delay, so slow responses hold no thread:
+ *  thousands of concurrent calls cost nothing but their sockets.
+ *
+ *  Standalone (point the service at it with fx.service.url=http://localhost:4000):
+ *      mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.example.crosspayment.loadtest.FxStubServer \
+ *          -Dfx.stub.port=4000 -Dfx.stub.latency=lognormal:20,250 -Dfx.stub.error-rate=0.01
+ *
+ */
+@Slf4j
+public class FxStubServer implements AutoCloseable {
+
+    public static final List<String> DEFAULT_CURRENCIES = List.of("USD", "EUR", "GBP", "JPY", "CHF", "CAD", "AUD", "INR", "MXN", "BRL");
+
+    private static final String QUOTE_PATH = "/twirp/payments.v1.FXService/GetQuote";
+
+    private static final String CURRENCIES_PATH = "/twirp/payments.v1.FXService/GetSupportedCurrencies";
+
+    /**
+     * Units of each currency per USD; other currencies get a stable made-up rate
+     */
+    private static final Map<String, Double> PER_USD = Map.of("USD", 1.0, "EUR", 0.92, "GBP", 0.79, "JPY", 149.5,
+            "CHF", 0.88, "CAD", 1.36, "AUD", 1.52, "INR", 83.2, "MXN", 17.1, "BRL", 4.95);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final int port;
+
+    private final int backlog;
+
+    private final LatencyDistribution latency;
+
+    private final double errorRate;
+
+    private final Duration expiry;
+
+    private final List<String> currencies;
+
+    private final double expiredRate;
+
+    private final double spikeRate;
+
+    private final Duration spikeLatency;
+
+    private final Random random;
+
+    private final Set<String> outages = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicLong quotes = new AtomicLong();
+
+    private final AtomicLong injectedErrors = new AtomicLong();
+
+    private final AtomicLong expiredQuotes = new AtomicLong();
+
+    private final AtomicLong latencySpikes = new AtomicLong();
+
+    private final AtomicLong outageErrors = new AtomicLong();
+
+    private HttpServer server;
+
+    private ScheduledExecutorService responder;
+
+    @Builder
+    private FxStubServer(int port, int backlog, LatencyDistribution latency, double errorRate, Duration expiry,
+                         List<String> currencies, double expiredRate, double spikeRate, Duration spikeLatency, Long seed) {
+        this.port = port;
+        this.backlog = backlog > 0 ? backlog : 1024;
+        this.latency = latency != null ? latency : LatencyDistribution.constant(0);
+        this.errorRate = errorRate;
+        this.expiry = expiry != null ? expiry : Duration.ofSeconds(60);
+        this.currencies = currencies != null ? List.copyOf(currencies) : DEFAULT_CURRENCIES;
+        this.expiredRate = expiredRate;
+        this.spikeRate = spikeRate;
+        this.spikeLatency = spikeLatency != null ? spikeLatency : Duration.ofSeconds(1);
+        this.random = seed != null ? new Random(seed) : new Random();
+    }
+
+    /**
+     *
+     * Settings from fx.stub.* system properties, defaults for the rest.
+     *
+     */
+    public static FxStubServer fromSystemProperties(){
+        String currencies = System.getProperty("fx.stub.currencies");
+        return FxStubServer.builder()
+                .port(Integer.getInteger("fx.stub.port", 0))
+                .backlog(Integer.getInteger("fx.stub.backlog", 1024))
+                .latency(LatencyDistribution.parse(System.getProperty("fx.stub.latency", "constant:0")))
+                .errorRate(Double.parseDouble(System.getProperty("fx.stub.error-rate", "0")))
+                .expiry(Duration.ofSeconds(Long.getLong("fx.stub.expiry-seconds", 60)))
+                .currencies(currencies == null ? null : Arrays.asList(currencies.split(",")))
+                .expiredRate(Double.parseDouble(System.getProperty("fx.stub.expired-rate", "0")))
+                .spikeRate(Double.parseDouble(System.getProperty("fx.stub.spike-rate", "0")))
+                .spikeLatency(Duration.ofMillis(Long.getLong("fx.stub.spike-latency-ms", 1000)))
+                .seed(Long.getLong("fx.stub.seed", 42))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        FxStubServer stub = fromSystemProperties().start();
+        Runtime.getRuntime().addShutdownHook(new Thread(stub::close));
+        log.info("FX stub listening on {}", stub.getUrl());
+        Thread.currentThread().join();
+    }
+
+    public FxStubServer start() throws IOException {
+        responder = Executors.newScheduledThreadPool(4, runnable -> {
+            Thread thread = new Thread(runnable, "fx-stub-responder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress("localhost", port), backlog);
+        server.createContext(QUOTE_PATH, this::quote);
+        server.createContext(CURRENCIES_PATH, exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            respond(exchange, 200, Map.of("currencies", currencies));
+        });
+        server.start();
+        return this;
+    }
+
+    @Override
+    public void close(){
+        if (server != null) {
+            server.stop(0);
+        }
+        if (responder != null) {
+            responder.shutdownNow();
+        }
+    }
+
+    public String getUrl(){
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     *
+     * @return quote calls accepted but not answered yet
+     */
+    public int getInFlight(){
+        return inFlight.get();
+    }
+
+    public long getQuotes(){
+        return quotes.get();
+    }
+
+    public long getInjectedErrors(){
+        return injectedErrors.get();
+    }
+
+    public long getExpiredQuotes(){
+        return expiredQuotes.get();
+    }
+
+    public long getLatencySpikes(){
+        return latencySpikes.get();
+    }
+
+    public long getOutageErrors(){
+        return outageErrors.get();
+    }
+
+    /**
+     *
+     * Takes a corridor (SRC-DST, same key as FxCorridorResilience) down or brings it back.
+     *
+     */
+    public void outage(String corridor, boolean down){
+        if (down) {
+            outages.add(corridor);
+        } else {
+            outages.remove(corridor);
+        }
+    }
+
+    private void quote(HttpExchange exchange) throws IOException {
+        Map<?, ?> request = MAPPER.readValue(exchange.getRequestBody(), Map.class);
+        String source = String.valueOf(request.get("source_currency"));
+        String target = String.valueOf(request.get("target_currency"));
+        quotes.incrementAndGet();
+        inFlight.incrementAndGet();
+
+        // Always the same draws per call, so a seed replays the same faults for the same call order
+        boolean fail = random.nextDouble() < errorRate;
+        boolean expired = random.nextDouble() < expiredRate;
+        boolean spike = random.nextDouble() < spikeRate;
+        long sampledMicros = latency.sampleMicros(random);
+        long delayMicros = spike ? spikeLatency.toNanos() / 1000 : Math.max(0, sampledMicros);
+        if (spike) {
+            latencySpikes.incrementAndGet();
+        }
+        boolean down = outages.contains(source + "-" + target);
+
+        responder.schedule(() -> {
+            try {
+                if (down) {
+                    outageErrors.incrementAndGet();
+                    respond(exchange, 503, Map.of("code", "unavailable", "msg", "corridor outage"));
+                } else if (fail) {
+                    injectedErrors.incrementAndGet();
+                    respond(exchange, 503, Map.of("code", "unavailable", "msg", "injected failure"));
+                } else if (!currencies.contains(source) || !currencies.contains(target)) {
+                    respond(exchange, 400, Map.of("code", "invalid_argument", "msg", "unsupported currency pair " + source + "/" + target));
+                } else {
+                    Map<String, Object> body = new LinkedHashMap<>();
+                    body.put("exchange_rate", rate(source, target));
+                    if (expired) {
+                        expiredQuotes.incrementAndGet();
+                    }
+                    body.put("expiry_time", (expired ? Instant.now().minusSeconds(1) : Instant.now().plus(expiry)).toString());
+                    respond(exchange, 200, body);
+                }
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }, delayMicros, TimeUnit.MICROSECONDS);
+    }
+
+    private static BigDecimal rate(String source, String target){
+        return BigDecimal.valueOf(perUsd(target) / perUsd(source)).setScale(6, RoundingMode.HALF_UP);
+    }
+
+    private static double perUsd(String currency){
+        Double known = PER_USD.get(currency);
+        return known != null ? known : 0.5 + Math.floorMod(currency.hashCode(), 1000) / 100.0;
+    }
+
+    private static void respond(HttpExchange exchange, int status, Object body){
+        try {
+            byte[] json = MAPPER.writeValueAsBytes(body);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, json.length);
+            exchange.getResponseBody().write(json);
+        } catch (IOException ignored) {
+            // client gave up, nothing to report
+        } finally {
+            exchange.close();
+        }
+    }
+}
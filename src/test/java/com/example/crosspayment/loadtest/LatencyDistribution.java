@@ -0,0 +1,58 @@
+package com.example.crosspayment.loadtest;
+
+import java.util.Random;
+
+/**
+ *
+ *  Response delay of the {@link FxStubServer}, sampled per request.
+ *
+ *  Written as text for system properties (milliseconds):
+ *      constant:20
+ *      uniform:5-50
+ *      lognormal:20,250      median 20, p99 250 (long tail, the usual shape of a remote service)
+ *
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    /**
+     * z of the 99th percentile of the standard normal distribution
+     */
+    double Z_99 = 2.3263;
+
+    long sampleMicros(Random random);
+
+    static LatencyDistribution constant(long millis){
+        return random -> millis * 1000;
+    }
+
+    static LatencyDistribution uniform(long minMillis, long maxMillis){
+        return random -> minMillis * 1000 + (long) (random.nextDouble() * (maxMillis - minMillis) * 1000);
+    }
+
+    static LatencyDistribution logNormal(long medianMillis, long p99Millis){
+        double sigma = Math.log((double) p99Millis / medianMillis) / Z_99;
+        return random -> (long) (medianMillis * 1000 * Math.exp(sigma * random.nextGaussian()));
+    }
+
+    static LatencyDistribution parse(String text){
+        String[] kind = text.trim().split(":", 2);
+        if (kind.length != 2) {
+            throw new IllegalArgumentException("Expected constant:<ms>, uniform:<min>-<max> or lognormal:<median>,<p99>, got " + text);
+        }
+        switch (kind[0]) {
+            case "constant":
+                return constant(Long.parseLong(kind[1]));
+            case "uniform": {
+                String[] range = kind[1].split("-");
+                return uniform(Long.parseLong(range[0]), Long.parseLong(range[1]));
+            }
+            case "lognormal": {
+                String[] shape = kind[1].split(",");
+                return logNormal(Long.parseLong(shape[0]), Long.parseLong(shape[1]));
+            }
+            default:
+                throw new IllegalArgumentException("Unknown latency distribution " + kind[0]);
+        }
+    }
+}
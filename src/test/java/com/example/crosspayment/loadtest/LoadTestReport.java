@@ -0,0 +1,128 @@
+package com.example.crosspayment.loadtest;
+
+import lombok.Builder;
+import lombok.Getter;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ *
+ *  Result of one {@link PaymentLoadGenerator} run.
+ *
+ *  write(directory) leaves two things behind, so runs before and after a change can be compared:
+ *      - <label>-<timestamp>.hgrm: full percentile distribution of the 2xx latencies (milliseconds),
+ *        plottable with HdrHistogram's HistogramLogAnalyzer or the online plotter
+ *      - summary.csv: one line per run (settings, throughput, outcome counts, percentiles)
+ *
+ */
+@Getter
+@Builder
+public class LoadTestReport {
+
+    private static final String CSV_HEADER = "timestamp,label,target,offered_rate,arrivals,seed,duration_s,scheduled,completed,"
+            + "succeeded,dropped,unfinished,throughput,p50_ms,p90_ms,p99_ms,p999_ms,max_ms,all_p99_ms,outcomes";
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final String label;
+
+    private final String target;
+
+    private final double offeredRate;
+
+    private final String arrivals;
+
+    private final long seed;
+
+    private final long durationSeconds;
+
+    private final long scheduled;
+
+    private final long dropped;
+
+    private final long unfinished;
+
+    private final double elapsedSeconds;
+
+    private final Map<String, Long> outcomes;
+
+    private final Histogram successLatency;
+
+    private final Histogram allLatency;
+
+    @Builder.Default
+    private final LocalDateTime timestamp = LocalDateTime.now();
+
+    public long getCompleted(){
+        return allLatency.getTotalCount();
+    }
+
+    public long getSucceeded(){
+        return successLatency.getTotalCount();
+    }
+
+    /**
+     *
+     * @return 2xx responses per second of the measured window
+     */
+    public double getThroughput(){
+        return getSucceeded() / (double) durationSeconds;
+    }
+
+    public double percentileMillis(double percentile){
+        return successLatency.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    public void print(PrintStream out){
+        out.printf(Locale.ROOT, "%-20s offered=%.0f/s (%s) for %ds -> %.1f ok/s, scheduled=%d completed=%d dropped=%d unfinished=%d%n",
+                label, offeredRate, arrivals, durationSeconds, getThroughput(), scheduled, getCompleted(), dropped, unfinished);
+        out.printf(Locale.ROOT, "    2xx latency ms: p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f   all p99=%.2f%n",
+                percentileMillis(50), percentileMillis(90), percentileMillis(99), percentileMillis(99.9),
+                successLatency.getMaxValue() / 1000.0, allLatency.getValueAtPercentile(99) / 1000.0);
+        out.printf("    outcomes: %s%n", outcomes);
+    }
+
+    /**
+     *
+     * @return the .hgrm file written
+     */
+    public Path write(Path directory){
+        try {
+            Files.createDirectories(directory);
+            Path distribution = directory.resolve(label + "-" + FILE_TIMESTAMP.format(timestamp) + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(distribution), false, StandardCharsets.UTF_8)) {
+                successLatency.outputPercentileDistribution(out, 1000.0);
+            }
+
+            Path summary = directory.resolve("summary.csv");
+            if (!Files.exists(summary)) {
+                Files.writeString(summary, CSV_HEADER + System.lineSeparator(), StandardCharsets.UTF_8);
+            }
+            Files.writeString(summary, csvLine() + System.lineSeparator(), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            return distribution;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write load test report to " + directory, e);
+        }
+    }
+
+    private String csvLine(){
+        StringBuilder outcomeColumn = new StringBuilder();
+        outcomes.forEach((outcome, count) -> outcomeColumn.append(outcomeColumn.length() == 0 ? "" : " ").append(outcome).append('=').append(count));
+        return String.format(Locale.ROOT, "%s,%s,%s,%.1f,%s,%d,%d,%d,%d,%d,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%s",
+                timestamp, label, target, offeredRate, arrivals, seed, durationSeconds, scheduled, getCompleted(), getSucceeded(),
+                dropped, unfinished, getThroughput(), percentileMillis(50), percentileMillis(90), percentileMillis(99),
+                percentileMillis(99.9), successLatency.getMaxValue() / 1000.0, allLatency.getValueAtPercentile(99) / 1000.0,
+                outcomeColumn);
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.crosspayment.loadtest;
+
+import lombok.Builder;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *
+ *  Open-model load generator for POST /api/payments.
+ *
+ *  Requests are started on a fixed schedule (ratePerSecond, evenly spaced or Poisson arrivals), whether or not
+ *  earlier ones have completed, the way independent clients arrive in production. Latency is measured from the
+ *  scheduled start, not the actual send, so a stalled service shows up in the percentiles instead of silently
+ *  lowering the offered load (no coordinated omission).
+ *
+ *  Payloads and arrival times come from a seeded Random: the same seed offers the same load on every run,
+ *  which is what makes two reports comparable.
+ *
+ *  Requests are sent with the JDK HttpClient (async), so the generator itself needs no thread per request.
+ *  If more than maxOutstanding requests are pending the scheduled request is not sent and counted as dropped.
+ *
+ *  Standalone, against a running service:
+ *      mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.example.crosspayment.loadtest.PaymentLoadGenerator \
+ *          -Dloadtest.target=http://localhost:8080 -Dloadtest.rate=500 -Dloadtest.duration-seconds=60
+ *
+ */
+public class PaymentLoadGenerator {
+
+    /**
+     * Highest latency the histograms track: one minute, in microseconds
+     */
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final URI paymentsUri;
+
+    private final double ratePerSecond;
+
+    private final Duration warmup;
+
+    private final Duration duration;
+
+    private final boolean poissonArrivals;
+
+    private final long seed;
+
+    private final int senders;
+
+    private final List<String> currencies;
+
+    private final int maxOutstanding;
+
+    private final Duration requestTimeout;
+
+    private final HttpClient httpClient;
+
+    @Builder
+    private PaymentLoadGenerator(String baseUrl, double ratePerSecond, Duration warmup, Duration duration, boolean poissonArrivals,
+                                 Long seed, int senders, List<String> currencies, int maxOutstanding, Duration requestTimeout) {
+        this.paymentsUri = URI.create(baseUrl + "/api/payments");
+        this.ratePerSecond = ratePerSecond > 0 ? ratePerSecond : 100;
+        this.warmup = warmup != null ? warmup : Duration.ofSeconds(10);
+        this.duration = duration != null ? duration : Duration.ofSeconds(60);
+        this.poissonArrivals = poissonArrivals;
+        this.seed = seed != null ? seed : 42;
+        this.senders = senders > 0 ? senders : 1000;
+        this.currencies = currencies != null ? currencies : FxStubServer.DEFAULT_CURRENCIES;
+        this.maxOutstanding = maxOutstanding > 0 ? maxOutstanding : 10_000;
+        this.requestTimeout = requestTimeout != null ? requestTimeout : Duration.ofSeconds(30);
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    /**
+     *
+     * Settings from loadtest.* system properties, defaults for the rest.
+     *
+     */
+    public static PaymentLoadGeneratorBuilder fromSystemProperties(){
+        return PaymentLoadGenerator.builder()
+                .baseUrl(System.getProperty("loadtest.target", "http://localhost:8080"))
+                .ratePerSecond(Double.parseDouble(System.getProperty("loadtest.rate", "200")))
+                .warmup(Duration.ofSeconds(Long.getLong("loadtest.warmup-seconds", 10)))
+                .duration(Duration.ofSeconds(Long.getLong("loadtest.duration-seconds", 60)))
+                .poissonArrivals(!"uniform".equals(System.getProperty("loadtest.arrivals", "poisson")))
+                .seed(Long.getLong("loadtest.seed", 42))
+                .senders(Integer.getInteger("loadtest.senders", 1000))
+                .maxOutstanding(Integer.getInteger("loadtest.max-outstanding", 10_000));
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestReport report = fromSystemProperties().build().run(System.getProperty("loadtest.label", "payments"));
+        report.print(System.out);
+        report.write(Paths.get(System.getProperty("loadtest.report-dir", "target/loadtest")));
+    }
+
+    public LoadTestReport run(String label) throws InterruptedException {
+        Random random = new Random(seed);
+        Histogram successLatency = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+        Histogram allLatency = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+        ConcurrentMap<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+        AtomicInteger outstanding = new AtomicInteger();
+        LongAdder dropped = new LongAdder();
+
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        double meanGapNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+
+        double next = start;
+        long scheduled = 0;
+        while (next < end) {
+            long intended = (long) next;
+            next += poissonArrivals ? -Math.log(1 - random.nextDouble()) * meanGapNanos : meanGapNanos;
+            HttpRequest request = paymentRequest(random);
+            waitUntil(intended);
+
+            boolean measured = intended >= measureFrom;
+            if (measured) {
+                scheduled++;
+            }
+            if (outstanding.get() >= maxOutstanding) {
+                if (measured) {
+                    dropped.increment();
+                }
+                continue;
+            }
+            outstanding.incrementAndGet();
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                outstanding.decrementAndGet();
+                if (!measured) {
+                    return;
+                }
+                long micros = Math.min(MAX_LATENCY_MICROS, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended));
+                allLatency.recordValue(micros);
+                String outcome = error != null ? error.getClass().getSimpleName() : String.valueOf(response.statusCode());
+                outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+                if (error == null && response.statusCode() / 100 == 2) {
+                    successLatency.recordValue(micros);
+                }
+            });
+        }
+
+        // Let the stragglers finish, they belong to the measured window
+        long drainDeadline = System.nanoTime() + requestTimeout.toNanos();
+        while (outstanding.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        double elapsedSeconds = (System.nanoTime() - measureFrom) / 1e9;
+
+        return LoadTestReport.builder()
+                .label(label)
+                .target(paymentsUri.toString())
+                .offeredRate(ratePerSecond)
+                .arrivals(poissonArrivals ? "poisson" : "uniform")
+                .seed(seed)
+                .durationSeconds(duration.toSeconds())
+                .scheduled(scheduled)
+                .dropped(dropped.sum())
+                .unfinished(outstanding.get())
+                .elapsedSeconds(elapsedSeconds)
+                .outcomes(toCounts(outcomes))
+                .successLatency(successLatency)
+                .allLatency(allLatency)
+                .build();
+    }
+
+    private HttpRequest paymentRequest(Random random){
+        String source = currencies.get(random.nextInt(currencies.size()));
+        String destination = currencies.get(random.nextInt(currencies.size()));
+        if (destination.equals(source)) {
+            destination = currencies.get((currencies.indexOf(source) + 1) % currencies.size());
+        }
+        String body = String.format(Locale.ROOT,
+                "{\"sender\":\"load-sender-%d\",\"receiver\":\"load-receiver-%d\",\"amount\":%d.%02d,"
+                        + "\"sourceCurrency\":\"%s\",\"destinationCurrency\":\"%s\"}",
+                random.nextInt(senders), random.nextInt(senders), 1 + random.nextInt(1000), random.nextInt(100), source, destination);
+        return HttpRequest.newBuilder(paymentsUri)
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static void waitUntil(long nanoTime){
+        long remaining;
+        while ((remaining = nanoTime - System.nanoTime()) > 0) {
+            // parkNanos overshoots by ~50us; spin the last stretch so high rates stay on schedule
+            if (remaining > 100_000) {
+                LockSupport.parkNanos(remaining - 100_000);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private static Map<String, Long> toCounts(Map<String, LongAdder> outcomes){
+        Map<String, Long> counts = new TreeMap<>();
+        outcomes.forEach((outcome, count) -> counts.put(outcome, count.sum()));
+        return counts;
+    }
+}
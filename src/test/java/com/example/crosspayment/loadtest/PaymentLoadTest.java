@@ -0,0 +1,70 @@
+package com.example.crosspayment.loadtest;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ *  End to end load test: the whole service on a random port, its FX calls going to an {@link FxStubServer},
+ *  POST /api/payments driven by the {@link PaymentLoadGenerator}. Needs the database from application.properties.
+ *
+ *  The report lands in target/loadtest (summary.csv + one .hgrm per run); run the same command before and
+ *  after a change to PaymentService or FXServiceClient and compare the lines.
+ *
+ *  Run with: mvn test -Dtest=PaymentLoadTest -Dloadtest=true
+ *      -Dloadtest.rate=200 -Dloadtest.duration-seconds=60 -Dloadtest.warmup-seconds=10 -Dloadtest.arrivals=poisson|uniform
+ *      -Dfx.stub.latency=lognormal:20,250 -Dfx.stub.error-rate=0.01 -Dfx.stub.expiry-seconds=60 -Dfx.stub.currencies=USD,EUR,GBP
+ *
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class PaymentLoadTest {
+
+    private static FxStubServer fxStub;
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void fxServiceUrl(DynamicPropertyRegistry registry) {
+        try {
+            fxStub = FxStubServer.fromSystemProperties().start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        registry.add("fx.service.url", fxStub::getUrl);
+    }
+
+    @AfterAll
+    static void stopFxStub() {
+        fxStub.close();
+    }
+
+    @Test
+    void createPayments() throws Exception {
+        String label = System.getProperty("loadtest.label", "payments");
+        LoadTestReport report = PaymentLoadGenerator.fromSystemProperties()
+                .baseUrl("http://localhost:" + port)
+                .build()
+                .run(label);
+
+        report.print(System.out);
+        System.out.printf("    fx stub: quotes=%d injected errors=%d%n", fxStub.getQuotes(), fxStub.getInjectedErrors());
+        Path distribution = report.write(Paths.get(System.getProperty("loadtest.report-dir", "target/loadtest")));
+        System.out.println("    report: " + distribution.toAbsolutePath());
+
+        assertTrue(report.getSucceeded() > 0, "no payment succeeded");
+    }
+}
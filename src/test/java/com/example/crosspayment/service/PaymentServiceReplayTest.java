@@ -0,0 +1,69 @@
+package com.example.crosspayment.service;
+
+import com.example.crosspayment.dto.PaymentRequest;
+import com.example.crosspayment.dto.PaymentResponse;
+import com.example.crosspayment.exception.InvalidQuoteException;
+import com.example.crosspayment.model.PaymentStatus;
+import com.example.crosspayment.repository.PaymentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentServiceReplayTest {
+
+    private static final String QUOTE_ID = "3f9a6c1e-8b2d-4d7a-9c5e-2a1f0b7d4e63";
+
+    @Mock
+    private QuoteService quoteService;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @InjectMocks
+    private PaymentService paymentService;
+
+    private PaymentRequest request;
+
+    @BeforeEach
+    void usedQuote(){
+        request = new PaymentRequest("Bob Doe", "John Wick", new BigDecimal("400.00"), "USD", "EUR", QUOTE_ID);
+        when(quoteService.usedBy(QUOTE_ID)).thenReturn(17L);
+        when(paymentRepository.findResponseById(17L)).thenReturn(Optional.of(new PaymentResponse(17L, "Bob Doe", "John Wick",
+                new BigDecimal("400.0000"), "USD", "EUR", new BigDecimal("0.9210"), new BigDecimal("368.4000"),
+                PaymentStatus.SUCCESS, "Payment processed successfully.", LocalDateTime.now(), LocalDateTime.now(), false)));
+    }
+
+    @Test
+    void retryGetsThePaymentTheQuoteWasUsedFor(){
+        PaymentResponse response = paymentService.processPayment(request);
+
+        assertEquals(17L, response.getId());
+        assertEquals(PaymentStatus.SUCCESS, response.getStatus());
+        assertEquals(new BigDecimal("368.40"), response.getPayoutAmount());
+        verify(quoteService, never()).consumeLockedRate(any(), any(), any());
+        verify(paymentRepository, never()).save(any());
+    }
+
+    @Test
+    void differentPaymentOnAUsedQuoteIsRejected(){
+        request.setAmount(new BigDecimal("500.00"));
+
+        assertThrows(InvalidQuoteException.class, () -> paymentService.processPayment(request));
+        verify(paymentRepository, never()).save(any());
+    }
+}
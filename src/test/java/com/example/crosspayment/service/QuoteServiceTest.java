@@ -0,0 +1,125 @@
+package com.example.crosspayment.service;
+
+import com.example.crosspayment.client.FXServiceClient;
+import com.example.crosspayment.dto.FXRateResponse;
+import com.example.crosspayment.dto.QuoteRequest;
+import com.example.crosspayment.exception.InvalidQuoteException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class QuoteServiceTest {
+
+    private static final BigDecimal RATE = new BigDecimal("0.9210");
+
+    private final TransactionTemplate transaction = new TransactionTemplate(new NoOpTransactionManager());
+
+    private QuoteService quoteService;
+
+    private String quoteId;
+
+    @BeforeEach
+    void lockQuote(){
+        FXServiceClient fxServiceClient = mock(FXServiceClient.class);
+        when(fxServiceClient.getQuote("USD", "EUR")).thenReturn(new FXRateResponse(RATE, null));
+        quoteService = new QuoteService(fxServiceClient, 30, 100);
+        quoteId = quoteService.createQuote(new QuoteRequest("USD", "EUR")).getQuoteId();
+    }
+
+    private void pay(long paymentId){
+        transaction.executeWithoutResult(status -> {
+            assertEquals(RATE, quoteService.consumeLockedRate(quoteId, "USD", "EUR"));
+            quoteService.recordPayment(quoteId, paymentId);
+        });
+    }
+
+    @Test
+    void quoteIsSingleUse(){
+        pay(1);
+
+        assertThrows(InvalidQuoteException.class, () -> quoteService.consumeLockedRate(quoteId, "USD", "EUR"));
+    }
+
+    @Test
+    void rolledBackPaymentPutsTheQuoteBack(){
+        transaction.executeWithoutResult(status -> {
+            quoteService.consumeLockedRate(quoteId, "USD", "EUR");
+            quoteService.recordPayment(quoteId, 1);
+            status.setRollbackOnly();
+        });
+
+        assertNull(quoteService.usedBy(quoteId));
+        pay(2);
+        assertEquals(2L, quoteService.usedBy(quoteId));
+    }
+
+    @Test
+    void committedPaymentIsReplayed(){
+        assertNull(quoteService.usedBy(quoteId));
+
+        pay(42);
+
+        assertEquals(42L, quoteService.usedBy(quoteId));
+    }
+
+    @Test
+    void usedByIsOnlyVisibleAfterCommit(){
+        transaction.executeWithoutResult(status -> {
+            quoteService.consumeLockedRate(quoteId, "USD", "EUR");
+            quoteService.recordPayment(quoteId, 7);
+            assertNull(quoteService.usedBy(quoteId));
+        });
+
+        assertEquals(7L, quoteService.usedBy(quoteId));
+    }
+
+    @Test
+    void otherPairIsRejectedAndLeavesTheQuoteOpen(){
+        assertThrows(InvalidQuoteException.class, () -> quoteService.consumeLockedRate(quoteId, "USD", "GBP"));
+
+        assertEquals(RATE, quoteService.consumeLockedRate(quoteId, "USD", "EUR"));
+    }
+
+    @Test
+    void unknownQuote(){
+        assertNull(quoteService.usedBy("not-a-uuid"));
+        assertThrows(InvalidQuoteException.class, () -> quoteService.consumeLockedRate("not-a-uuid", "USD", "EUR"));
+    }
+
+    /**
+     *
+     * Transaction boundaries and synchronizations without a resource, so commit and rollback drive
+     * QuoteService's afterCommit / afterCompletion callbacks like a real transaction would.
+     *
+     */
+    private static final class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction(){
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition){
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status){
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status){
+        }
+    }
+}
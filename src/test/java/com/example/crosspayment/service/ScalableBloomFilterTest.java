@@ -0,0 +1,115 @@
+package com.example.crosspayment.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScalableBloomFilterTest {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private static final long NO_LIMIT = Long.MAX_VALUE;
+
+    @Test
+    void noFalseNegativesAcrossLayers(){
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, FALSE_POSITIVE_RATE, NO_LIMIT);
+        for (long id = 1; id <= 100_000; id++) {
+            filter.add(id);
+        }
+
+        for (long id = 1; id <= 100_000; id++) {
+            assertTrue(filter.mightContain(id), "false negative for " + id);
+        }
+        // 1000 + 2000 + 4000 + ... >= 100000
+        assertTrue(filter.layerCount() >= 7, "layers: " + filter.layerCount());
+        assertFalse(filter.isSaturated());
+    }
+
+    @Test
+    void falsePositiveRateStaysWithinBoundWhileGrowing(){
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, FALSE_POSITIVE_RATE, NO_LIMIT);
+        for (long id = 1; id <= 100_000; id++) {
+            filter.add(id);
+        }
+
+        int falsePositives = 0;
+        int probes = 200_000;
+        for (long id = 1_000_000; id < 1_000_000 + probes; id++) {
+            if (filter.mightContain(id)) {
+                falsePositives++;
+            }
+        }
+        double measured = (double) falsePositives / probes;
+        assertTrue(measured <= FALSE_POSITIVE_RATE, "measured false positive rate " + measured);
+        assertTrue(filter.expectedFalsePositiveRate() <= FALSE_POSITIVE_RATE,
+                "expected false positive rate " + filter.expectedFalsePositiveRate());
+    }
+
+    @Test
+    void reAddingKnownIdsDoesNotFillTheFilter(){
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, FALSE_POSITIVE_RATE, NO_LIMIT);
+        for (int round = 0; round < 3; round++) {
+            for (long id = 1; id <= 900; id++) {
+                filter.add(id);
+            }
+        }
+
+        assertTrue(filter.keyCount() <= 900, "keys: " + filter.keyCount());
+        assertEquals(1, filter.layerCount());
+    }
+
+    @Test
+    void saturatedFilterAnswersMaybeForEverything(){
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, FALSE_POSITIVE_RATE, 32_000);
+        for (long id = 1; id <= 10_000; id++) {
+            filter.add(id);
+        }
+
+        assertTrue(filter.isSaturated());
+        assertTrue(filter.bitCount() <= 32_000);
+        assertTrue(filter.mightContain(1));
+        assertTrue(filter.mightContain(-42));
+    }
+
+    @Test
+    void budgetTooSmallForTheFirstLayer(){
+        assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter(1_000_000, FALSE_POSITIVE_RATE, 1_024));
+    }
+
+    @Test
+    void concurrentAddsAreNotLost() throws Exception {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, FALSE_POSITIVE_RATE, NO_LIMIT);
+        int threads = 4;
+        long perThread = 25_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> adders = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long first = t * perThread + 1;
+                adders.add(executor.submit(() -> {
+                    for (long id = first; id < first + perThread; id++) {
+                        filter.add(id);
+                    }
+                }));
+            }
+            for (Future<?> adder : adders) {
+                adder.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (long id = 1; id <= threads * perThread; id++) {
+            assertTrue(filter.mightContain(id), "false negative for " + id);
+        }
+    }
+}
@@ -0,0 +1,557 @@
+package com.example.crosspayment.stress;
+
+import com.example.crosspayment.client.FxCorridorResilience;
+import com.example.crosspayment.dto.PaymentRequest;
+import com.example.crosspayment.dto.PaymentResponse;
+import com.example.crosspayment.exception.PaymentNotFoundException;
+import com.example.crosspayment.loadtest.FxStubServer;
+import com.example.crosspayment.loadtest.LatencyDistribution;
+import com.example.crosspayment.model.Payment;
+import com.example.crosspayment.model.PaymentStatus;
+import com.example.crosspayment.repository.PaymentRepository;
+import com.example.crosspayment.service.NettingSettlementService;
+import com.example.crosspayment.service.PartyService;
+import com.example.crosspayment.service.PaymentService;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ *  Concurrency stress suite: PaymentService, FXServiceClient and NettingSettlementService under contention,
+ *  against an embedded PostgreSQL (migrated by Flyway like production) and a fault-injecting {@link FxStubServer}.
+ *
+ *  Deterministic: the request plan (corridors, amounts, parties, read / create mix) and the stub's fault draws
+ *  come from one seed, so a failing run can be replayed with the same -Dstress.seed. Thread interleaving is not
+ *  reproducible, the invariants must hold for every interleaving:
+ *
+ *      paymentsUnderContention       thousands of concurrent processPayment / getPaymentById calls, the FX stub
+ *                                    injecting 503s, latency spikes and already expired quotes; USD-INR is taken
+ *                                    down for the first part of the plan so its circuit breaker opens, and brought
+ *                                    back so it goes half-open and closes again
+ *          - no PENDING row is left behind (netting is off, every payment ends SUCCESS or FAILED)
+ *          - the rows are exactly the payments that were returned: none lost, none from rolled back calls
+ *          - SUCCESS rows pay out amount x exchange rate, FAILED rows have neither rate nor payout
+ *          - every row and every concurrent getPaymentById agrees with what processPayment returned
+ *
+ *      nettingBatchesNeverSettleTwice   overlapping netting batches racing settle() and fail() on the same PENDING
+ *                                       payments, every payment in two or three batches
+ *          - every payment is claimed by exactly one batch (the claimed counts add up to the payments)
+ *          - settled payouts match the rate of one of the batches, failed payments have no payout
+ *
+ *  Throughput and latency per operation land in target/stress/summary.csv (see {@link StressReport}).
+ *  The FX rate cache is off, every payment calls the stub.
+ *
+ *  Run with: mvn test -Dtest=PaymentStressTest -Dstress=true
+ *      -Dstress.seed=42 -Dstress.threads=64 -Dstress.operations=5000 -Dstress.read-share=0.4
+ *      -Dstress.netting.payments=2000 -Dstress.netting.batches=64 -Dstress.log-level=OFF
+ *      -Dfx.stub.latency=lognormal:5,50 -Dfx.stub.error-rate=0.02 -Dfx.stub.expired-rate=0.02
+ *      -Dfx.stub.spike-rate=0.01 -Dfx.stub.spike-latency-ms=500
+ *
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "stress", matches = "true")
+class PaymentStressTest {
+
+    private static final long SEED = Long.getLong("stress.seed", 42);
+
+    private static final int THREADS = Integer.getInteger("stress.threads", 64);
+
+    private static final String OUTAGE_CORRIDOR = "USD-INR";
+
+    private static final List<List<String>> CORRIDORS = List.of(List.of("USD", "EUR"), List.of("USD", "GBP"),
+            List.of("EUR", "GBP"), List.of("USD", "INR"), List.of("GBP", "JPY"), List.of("USD", "MXN"));
+
+    /**
+     * Short, so the outage corridor goes half-open within the run
+     */
+    private static final Duration OPEN_STATE = Duration.ofSeconds(1);
+
+    private static final String SENDER_PREFIX = "stress-sender-";
+
+    private static final String NETTING_SENDER_PREFIX = "netting-sender-";
+
+    private static final String NETTING_FAILURE = "Corridor could not be quoted (stress)";
+
+    private static EmbeddedPostgres postgres;
+
+    private static FxStubServer fxStub;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private NettingSettlementService settlementService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PartyService partyService;
+
+    @Autowired
+    private FxCorridorResilience corridorResilience;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @DynamicPropertySource
+    static void environment(DynamicPropertyRegistry registry) {
+        try {
+            postgres = EmbeddedPostgres.builder().start();
+            fxStub = FxStubServer.builder()
+                    .latency(LatencyDistribution.parse(System.getProperty("fx.stub.latency", "lognormal:5,50")))
+                    .errorRate(Double.parseDouble(System.getProperty("fx.stub.error-rate", "0.02")))
+                    .expiredRate(Double.parseDouble(System.getProperty("fx.stub.expired-rate", "0.02")))
+                    .spikeRate(Double.parseDouble(System.getProperty("fx.stub.spike-rate", "0.01")))
+                    .spikeLatency(Duration.ofMillis(Long.getLong("fx.stub.spike-latency-ms", 500)))
+                    .seed(SEED)
+                    .build()
+                    .start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+        registry.add("fx.service.url", fxStub::getUrl);
+        registry.add("fx.cache.enabled", () -> "false");
+        registry.add("fx.cache.sync.enabled", () -> "false");
+        registry.add("payment.netting.enabled", () -> "false");
+        registry.add("resilience4j.retry.configs.fxCorridor.wait-duration", () -> "10ms");
+        registry.add("resilience4j.circuitbreaker.configs.fxCorridor.wait-duration-in-open-state", () -> OPEN_STATE.toMillis() + "ms");
+        registry.add("logging.level.com.example.crosspayment", () -> System.getProperty("stress.log-level", "OFF"));
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        fxStub.close();
+        postgres.close();
+    }
+
+    @Test
+    void paymentsUnderContention() throws Exception {
+        int operations = Integer.getInteger("stress.operations", 5000);
+        double readShare = Double.parseDouble(System.getProperty("stress.read-share", "0.4"));
+        List<Operation> plan = plan(new Random(SEED), operations, readShare);
+
+        CircuitBreaker breaker = corridorResilience.circuitBreaker(OUTAGE_CORRIDOR);
+        List<CircuitBreaker.StateTransition> transitions = new CopyOnWriteArrayList<>();
+        breaker.getEventPublisher().onStateTransition(event -> transitions.add(event.getStateTransition()));
+
+        StressReport report = new StressReport("payments", THREADS, SEED);
+        Traffic traffic = new Traffic(report);
+        int outageOperations = plan.size() * 3 / 10;
+        long start = System.nanoTime();
+
+        fxStub.outage(OUTAGE_CORRIDOR, true);
+        traffic.run(plan.subList(0, outageOperations));
+        assertTrue(transitions.contains(CircuitBreaker.StateTransition.CLOSED_TO_OPEN),
+                () -> OUTAGE_CORRIDOR + " breaker never opened during the outage: " + transitions);
+
+        fxStub.outage(OUTAGE_CORRIDOR, false);
+        // Opened breakers move to half-open by themselves after the open state duration
+        Thread.sleep(OPEN_STATE.toMillis() * 2);
+        traffic.run(plan.subList(outageOperations, plan.size()));
+        // A half-open trial call may have drawn an injected fault and reopened it, keep probing until it closes
+        for (int probe = 0; probe < 50 && breaker.getState() != CircuitBreaker.State.CLOSED; probe++) {
+            if (breaker.getState() == CircuitBreaker.State.OPEN) {
+                Thread.sleep(OPEN_STATE.toMillis());
+            }
+            traffic.create(request(new Random(SEED + probe), List.of("USD", "INR")));
+        }
+        report.elapsed(System.nanoTime() - start);
+        report.fault("stub-503", fxStub.getInjectedErrors());
+        report.fault("outage-503", fxStub.getOutageErrors());
+        report.fault("expired", fxStub.getExpiredQuotes());
+        report.fault("spikes", fxStub.getLatencySpikes());
+        publish(report);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(), () -> "transitions: " + transitions);
+        assertTrue(transitions.contains(CircuitBreaker.StateTransition.OPEN_TO_HALF_OPEN)
+                && transitions.contains(CircuitBreaker.StateTransition.HALF_OPEN_TO_CLOSED), () -> "transitions: " + transitions);
+
+        List<String> violations = new ArrayList<>(traffic.mismatches);
+        Map<Long, PaymentRow> rows = rows(SENDER_PREFIX);
+        for (Long id : traffic.created.keySet()) {
+            if (!rows.containsKey(id)) {
+                violations.add("payment " + id + " was returned but has no row");
+            }
+        }
+        for (PaymentRow row : rows.values()) {
+            PaymentResponse returned = traffic.created.get(row.id);
+            if (returned == null) {
+                violations.add("row " + row.id + " (" + row.status + ") was never returned, its call failed");
+                continue;
+            }
+            violations.addAll(row.violations(null));
+            if (returned.getStatus() != row.status || !sameAmount(returned.getPayoutAmount(), row.payout)
+                    || !sameAmount(returned.getExchangeRate(), row.rate)) {
+                violations.add("row " + row.id + " " + row + " differs from the returned payment " + returned);
+            }
+        }
+        assertTrue(report.count("create", PaymentStatus.SUCCESS.name()) > 0, "no payment succeeded");
+        assertTrue(violations.isEmpty(), () -> violations.size() + " invariant violations, first: " + violations.subList(0, Math.min(20, violations.size())));
+    }
+
+    @Test
+    void nettingBatchesNeverSettleTwice() throws Exception {
+        int payments = Integer.getInteger("stress.netting.payments", 2000);
+        int batches = Integer.getInteger("stress.netting.batches", 64);
+        Random random = new Random(SEED);
+        List<Long> ids = createPending(random, payments);
+
+        // Every payment goes to two or three distinct batches, every 8th batch fails its payments instead
+        List<List<Long>> members = new ArrayList<>();
+        for (int batch = 0; batch < batches; batch++) {
+            members.add(new ArrayList<>());
+        }
+        for (Long id : ids) {
+            Set<Integer> chosen = new HashSet<>();
+            int copies = 2 + random.nextInt(2);
+            while (chosen.size() < copies) {
+                chosen.add(random.nextInt(batches));
+            }
+            chosen.forEach(batch -> members.get(batch).add(id));
+        }
+        // A distinct rate per batch, so a row shows which batch settled it
+        List<BigDecimal> rateOfBatch = new ArrayList<>();
+        for (int batch = 0; batch < batches; batch++) {
+            Collections.shuffle(members.get(batch), random);
+            rateOfBatch.add(BigDecimal.valueOf(900_000 + batch * 7L, 6));
+        }
+        Set<BigDecimal> rates = new HashSet<>(rateOfBatch);
+
+        StressReport report = new StressReport("netting", THREADS, SEED);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> claims = new ArrayList<>();
+        long start = System.nanoTime();
+        try {
+            for (int batch = 0; batch < batches; batch++) {
+                List<Long> batchIds = members.get(batch);
+                BigDecimal rate = rateOfBatch.get(batch);
+                boolean fail = batch % 8 == 7;
+                claims.add(pool.submit(() -> {
+                    long started = System.nanoTime();
+                    try {
+                        int claimed = fail ? settlementService.fail(batchIds, NETTING_FAILURE)
+                                : settlementService.settle(batchIds, "USD", rate, false);
+                        report.record(fail ? "fail" : "settle", "ok", started);
+                        return claimed;
+                    } catch (RuntimeException e) {
+                        report.record(fail ? "fail" : "settle", e.getClass().getSimpleName(), started);
+                        throw e;
+                    }
+                }));
+            }
+            int claimed = 0;
+            for (Future<Integer> claim : claims) {
+                claimed += claim.get();
+            }
+            report.elapsed(System.nanoTime() - start);
+            publish(report);
+            assertEquals(ids.size(), claimed, "payments claimed by more (double settlement) or fewer batches than exist");
+        } finally {
+            pool.shutdownNow();
+        }
+
+        List<String> violations = new ArrayList<>();
+        Map<Long, PaymentRow> rows = rows(NETTING_SENDER_PREFIX);
+        assertEquals(ids.size(), rows.size(), "netting payments lost");
+        for (PaymentRow row : rows.values()) {
+            violations.addAll(row.violations(rates));
+            if (row.status == PaymentStatus.FAILED && !NETTING_FAILURE.equals(row.message)) {
+                violations.add("row " + row.id + " failed with " + row.message);
+            }
+        }
+        assertTrue(violations.isEmpty(), () -> violations.size() + " invariant violations, first: " + violations.subList(0, Math.min(20, violations.size())));
+    }
+
+    /**
+     *
+     * Seeded plan: a read picks one of the payments created so far (or, one in twenty, an id that was never
+     * allocated), a create a corridor, amount and sender / receiver pair.
+     *
+     */
+    private static List<Operation> plan(Random random, int operations, double readShare){
+        List<Operation> plan = new ArrayList<>(operations);
+        for (int i = 0; i < operations; i++) {
+            if (random.nextDouble() < readShare) {
+                plan.add(random.nextInt(20) == 0 ? Operation.missingRead(-1 - i) : Operation.read(random.nextDouble()));
+            } else {
+                plan.add(Operation.create(request(random, CORRIDORS.get(random.nextInt(CORRIDORS.size())))));
+            }
+        }
+        return plan;
+    }
+
+    private static PaymentRequest request(Random random, List<String> corridor){
+        // Few parties, so concurrent payments race on party upserts too
+        return PaymentRequest.builder()
+                .sender(SENDER_PREFIX + random.nextInt(200))
+                .receiver("stress-receiver-" + random.nextInt(200))
+                .amount(BigDecimal.valueOf(100 + random.nextInt(1_000_000), 2))
+                .sourceCurrency(corridor.get(0))
+                .destinationCurrency(corridor.get(1))
+                .build();
+    }
+
+    private List<Long> createPending(Random random, int payments){
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<Long> ids = new ArrayList<>(payments);
+        for (int from = 0; from < payments; from += 500) {
+            int to = Math.min(payments, from + 500);
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int i = ids.size(); i < to; i++) {
+                    Payment payment = new Payment(partyService.resolve(NETTING_SENDER_PREFIX + i % 50),
+                            partyService.resolve("netting-receiver-" + i % 50),
+                            BigDecimal.valueOf(100 + random.nextInt(1_000_000), 2), "USD", "EUR");
+                    ids.add(paymentRepository.save(payment).getId());
+                }
+            });
+        }
+        return ids;
+    }
+
+    private Map<Long, PaymentRow> rows(String senderPrefix){
+        Map<Long, PaymentRow> rows = new HashMap<>();
+        jdbcTemplate.query("select p.id, p.status, p.amount, p.exchange_rate, p.pay_out_amount, p.message from payments p "
+                        + "join parties s on s.id = p.sender_id where s.name like ?",
+                resultSet -> {
+                    PaymentRow row = new PaymentRow(resultSet.getLong("id"), PaymentStatus.valueOf(resultSet.getString("status")),
+                            resultSet.getBigDecimal("amount"), resultSet.getBigDecimal("exchange_rate"),
+                            resultSet.getBigDecimal("pay_out_amount"), resultSet.getString("message"));
+                    rows.put(row.id, row);
+                }, senderPrefix + "%");
+        return rows;
+    }
+
+    private static void publish(StressReport report){
+        report.print(System.out);
+        System.out.println("    report: " + report.write(Paths.get(System.getProperty("stress.report-dir", "target/stress"))).toAbsolutePath());
+    }
+
+    private static boolean sameAmount(BigDecimal left, BigDecimal right){
+        return left == null ? right == null : right != null && left.compareTo(right) == 0;
+    }
+
+    /**
+     *
+     * Runs plan slices on a fixed pool and keeps what processPayment returned, to check reads and rows against.
+     *
+     */
+    private final class Traffic {
+
+        private final StressReport report;
+
+        private final ConcurrentMap<Long, PaymentResponse> created = new ConcurrentHashMap<>();
+
+        private final List<Long> createdIds = Collections.synchronizedList(new ArrayList<>());
+
+        private final List<String> mismatches = new CopyOnWriteArrayList<>();
+
+        private Traffic(StressReport report) {
+            this.report = report;
+        }
+
+        void run(List<Operation> operations) throws Exception {
+            ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+            AtomicInteger next = new AtomicInteger();
+            List<Future<?>> workers = new ArrayList<>();
+            try {
+                for (int worker = 0; worker < THREADS; worker++) {
+                    workers.add(pool.submit(() -> {
+                        for (int i = next.getAndIncrement(); i < operations.size(); i = next.getAndIncrement()) {
+                            execute(operations.get(i));
+                        }
+                    }));
+                }
+                for (Future<?> worker : workers) {
+                    worker.get(10, TimeUnit.MINUTES);
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+        void create(PaymentRequest request){
+            long start = System.nanoTime();
+            try {
+                PaymentResponse response = paymentService.processPayment(request);
+                created.put(response.getId(), response);
+                createdIds.add(response.getId());
+                report.record("create", response.getStatus().name(), start);
+            } catch (RuntimeException e) {
+                // Rolled back, must leave no row behind
+                report.record("create", e.getClass().getSimpleName(), start);
+            }
+        }
+
+        private void execute(Operation operation){
+            if (operation.request != null) {
+                create(operation.request);
+            } else if (operation.missingId != null) {
+                read(operation.missingId, null);
+            } else {
+                Long id;
+                synchronized (createdIds) {
+                    id = createdIds.isEmpty() ? null : createdIds.get((int) (operation.position * createdIds.size()));
+                }
+                if (id != null) {
+                    read(id, created.get(id));
+                }
+            }
+        }
+
+        private void read(Long id, PaymentResponse expected){
+            long start = System.nanoTime();
+            try {
+                PaymentResponse actual = paymentService.getPaymentById(id);
+                report.record("read", "found", start);
+                if (expected == null || expected.getStatus() != actual.getStatus()
+                        || !sameAmount(expected.getPayoutAmount(), actual.getPayoutAmount())
+                        || !sameAmount(expected.getExchangeRate(), actual.getExchangeRate())) {
+                    mismatches.add("read of " + id + " returned " + actual + ", processPayment returned " + expected);
+                }
+            } catch (PaymentNotFoundException e) {
+                report.record("read", "not-found", start);
+                if (expected != null) {
+                    mismatches.add("read of committed payment " + id + " found nothing");
+                }
+            } catch (RuntimeException e) {
+                report.record("read", e.getClass().getSimpleName(), start);
+            }
+        }
+    }
+
+    private static final class Operation {
+
+        private final PaymentRequest request;
+
+        /**
+         * in [0, 1): which of the payments created so far a read picks
+         */
+        private final double position;
+
+        private final Long missingId;
+
+        private Operation(PaymentRequest request, double position, Long missingId) {
+            this.request = request;
+            this.position = position;
+            this.missingId = missingId;
+        }
+
+        static Operation create(PaymentRequest request){
+            return new Operation(request, 0, null);
+        }
+
+        static Operation read(double position){
+            return new Operation(null, position, null);
+        }
+
+        static Operation missingRead(long id){
+            return new Operation(null, 0, id);
+        }
+    }
+
+    private static final class PaymentRow {
+
+        private final long id;
+
+        private final PaymentStatus status;
+
+        private final BigDecimal amount;
+
+        private final BigDecimal rate;
+
+        private final BigDecimal payout;
+
+        private final String message;
+
+        private PaymentRow(long id, PaymentStatus status, BigDecimal amount, BigDecimal rate, BigDecimal payout, String message) {
+            this.id = id;
+            this.status = status;
+            this.amount = amount;
+            this.rate = rate;
+            this.payout = payout;
+            this.message = message;
+        }
+
+        /**
+         *
+         * @param allowedRates rates the row may have been settled at, null for any positive rate
+         */
+        List<String> violations(Set<BigDecimal> allowedRates){
+            List<String> violations = new ArrayList<>();
+            switch (status) {
+                case PENDING:
+                    violations.add("row " + id + " left PENDING");
+                    break;
+                case SUCCESS: {
+                    if (rate == null || rate.signum() <= 0 || (allowedRates != null && !allowedRates.contains(rate.setScale(6, RoundingMode.HALF_UP)))) {
+                        violations.add("row " + id + " settled at unexpected rate " + rate);
+                        break;
+                    }
+                    // Same math as the services: scale 4 half up, stored in a NUMERIC(19, 2) column
+                    BigDecimal expected = amount.multiply(rate).setScale(4, RoundingMode.HALF_UP).setScale(2, RoundingMode.HALF_UP);
+                    if (!sameAmount(expected, payout)) {
+                        violations.add("row " + id + " pays out " + payout + ", expected " + amount + " x " + rate + " = " + expected);
+                    }
+                    break;
+                }
+                case FAILED:
+                    if (rate != null || payout != null) {
+                        violations.add("row " + id + " FAILED with rate " + rate + " and payout " + payout);
+                    }
+                    break;
+                default:
+                    violations.add("row " + id + " in unexpected status " + status);
+            }
+            return violations;
+        }
+
+        @Override
+        public String toString(){
+            return status + " " + amount + " x " + rate + " = " + payout + " (" + Objects.toString(message, "") + ")";
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.crosspayment.stress;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ *  Throughput and latency of one {@link PaymentStressTest} scenario, recorded from many threads at once.
+ *
+ *  Every call is recorded under its operation (create, read, settle, ...) with an outcome (SUCCESS, FAILED,
+ *  not-found, the exception name, ...). write(directory) appends one line per operation to summary.csv, so runs
+ *  before and after a concurrency change can be compared line by line.
+ *
+ */
+class StressReport {
+
+    private static final String CSV_HEADER = "timestamp,scenario,operation,threads,seed,calls,elapsed_s,throughput,"
+            + "p50_ms,p90_ms,p99_ms,max_ms,outcomes";
+
+    /**
+     * 1 us to 1 min, 3 significant digits
+     */
+    private static final long MAX_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final String scenario;
+
+    private final int threads;
+
+    private final long seed;
+
+    private final LocalDateTime timestamp = LocalDateTime.now();
+
+    private final ConcurrentMap<String, Histogram> latencies = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, ConcurrentMap<String, LongAdder>> outcomes = new ConcurrentHashMap<>();
+
+    private final Map<String, Long> faults = new TreeMap<>();
+
+    private long elapsedNanos;
+
+    StressReport(String scenario, int threads, long seed) {
+        this.scenario = scenario;
+        this.threads = threads;
+        this.seed = seed;
+    }
+
+    void record(String operation, String outcome, long startNanos){
+        long micros = Math.max(1, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+        latencies.computeIfAbsent(operation, key -> new ConcurrentHistogram(MAX_MICROS, 3))
+                .recordValue(Math.min(micros, MAX_MICROS));
+        outcomes.computeIfAbsent(operation, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(outcome, key -> new LongAdder()).increment();
+    }
+
+    /**
+     *
+     * Wall clock time of the whole scenario, throughput of every operation is measured against it.
+     *
+     */
+    void elapsed(long elapsedNanos){
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    void fault(String name, long count){
+        faults.put(name, count);
+    }
+
+    long count(String operation, String outcome){
+        Map<String, LongAdder> byOutcome = outcomes.get(operation);
+        LongAdder count = byOutcome == null ? null : byOutcome.get(outcome);
+        return count == null ? 0 : count.sum();
+    }
+
+    void print(PrintStream out){
+        double seconds = elapsedNanos / 1e9;
+        out.printf(Locale.ROOT, "%-20s threads=%d seed=%d elapsed=%.1fs faults=%s%n", scenario, threads, seed, seconds, faults);
+        for (String operation : new TreeMap<>(latencies).keySet()) {
+            Histogram histogram = latencies.get(operation);
+            out.printf(Locale.ROOT, "    %-10s %7d calls %9.1f/s  ms: p50=%.2f p90=%.2f p99=%.2f max=%.2f  %s%n",
+                    operation, histogram.getTotalCount(), histogram.getTotalCount() / seconds,
+                    millis(histogram, 50), millis(histogram, 90), millis(histogram, 99),
+                    histogram.getMaxValue() / 1000.0, outcomes(operation));
+        }
+    }
+
+    /**
+     *
+     * @return the summary.csv written to
+     */
+    Path write(Path directory){
+        try {
+            Files.createDirectories(directory);
+            Path summary = directory.resolve("summary.csv");
+            if (!Files.exists(summary)) {
+                Files.writeString(summary, CSV_HEADER + System.lineSeparator(), StandardCharsets.UTF_8);
+            }
+            StringBuilder lines = new StringBuilder();
+            double seconds = elapsedNanos / 1e9;
+            for (String operation : new TreeMap<>(latencies).keySet()) {
+                Histogram histogram = latencies.get(operation);
+                lines.append(String.format(Locale.ROOT, "%s,%s,%s,%d,%d,%d,%.1f,%.1f,%.3f,%.3f,%.3f,%.3f,%s",
+                        timestamp, scenario, operation, threads, seed, histogram.getTotalCount(), seconds,
+                        histogram.getTotalCount() / seconds, millis(histogram, 50), millis(histogram, 90),
+                        millis(histogram, 99), histogram.getMaxValue() / 1000.0, outcomes(operation)))
+                        .append(System.lineSeparator());
+            }
+            Files.writeString(summary, lines.toString(), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            return summary;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write stress report to " + directory, e);
+        }
+    }
+
+    private String outcomes(String operation){
+        StringBuilder column = new StringBuilder();
+        new TreeMap<>(outcomes.getOrDefault(operation, new ConcurrentHashMap<>()))
+                .forEach((outcome, count) -> column.append(column.length() == 0 ? "" : " ").append(outcome).append('=').append(count.sum()));
+        return column.toString();
+    }
+
+    private static double millis(Histogram histogram, double percentile){
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+}